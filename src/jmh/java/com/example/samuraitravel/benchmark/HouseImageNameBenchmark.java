@@ -0,0 +1,58 @@
+package com.example.samuraitravel.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.samuraitravel.service.ImageStorage;
+
+//民宿画像のアップロード時に行う、内容のハッシュ値の計算と保存する画像名の生成
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HouseImageNameBenchmark {
+	//一般的な民宿の写真と同程度の大きさ
+	private static final int IMAGE_SIZE = 500 * 1024;
+	
+	private byte[] image;
+	private String hash;
+	
+	@Setup
+	public void setUp() throws NoSuchAlgorithmException {
+		image = new byte[IMAGE_SIZE];
+		new Random(1).nextBytes(image);
+		hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("house01".getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	@Benchmark
+	public String hashImage() throws NoSuchAlgorithmException {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+	}
+	
+	@Benchmark
+	public String toImageName() {
+		return ImageStorage.toImageName(hash, "IMG_0001.JPG");
+	}
+	
+	@Benchmark
+	public boolean isValidImageName() {
+		return ImageStorage.isValidImageName(hash + ".jpg");
+	}
+}
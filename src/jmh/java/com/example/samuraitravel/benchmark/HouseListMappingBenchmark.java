@@ -0,0 +1,53 @@
+package com.example.samuraitravel.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.KeysetScrollPosition;
+
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.entity.House;
+
+//民宿一覧の1ページ分を、画面表示用の項目とカーソルに変換する処理と、受け取ったカーソルを戻す処理
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HouseListMappingBenchmark {
+	//民宿一覧の1ページあたりの件数と、その数倍の件数
+	@Param({"10", "100"})
+	private int pageSize;
+	
+	private List<House> houses;
+	private String cursor;
+	
+	@Setup
+	public void setUp() {
+		houses = SyntheticData.houses(pageSize);
+		cursor = SyntheticData.toHousePage(houses).getNextCursor();
+	}
+	
+	@Benchmark
+	public CursorPage<HouseListItem> toHousePage() {
+		return SyntheticData.toHousePage(houses);
+	}
+	
+	@Benchmark
+	public KeysetScrollPosition decodeCursor() {
+		return CursorPage.decode(cursor, CursorPage.CREATED_AT_DESC_KEYS);
+	}
+}
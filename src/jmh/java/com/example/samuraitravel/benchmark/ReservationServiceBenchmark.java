@@ -0,0 +1,53 @@
+package com.example.samuraitravel.benchmark;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.MapBindingResult;
+
+import com.example.samuraitravel.service.ReservationService;
+
+//予約内容の確認に進むたびに実行する、宿泊料金の計算と入力済みの期間の表示用文字列の生成
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationServiceBenchmark {
+	private ReservationService reservationService;
+	private LocalDate checkinDate;
+	private LocalDate checkoutDate;
+	private BindingResult bindingResult;
+	
+	@Setup
+	public void setUp() {
+		//計測するメソッドはリポジトリなどを使わないため、依存するオブジェクトは渡さない
+		reservationService = new ReservationService(null, null, null, null, null, null);
+		checkinDate = LocalDate.of(2031, 6, 1);
+		checkoutDate = LocalDate.of(2031, 6, 8);
+		bindingResult = new MapBindingResult(new HashMap<>(), "reservationInputForm");
+	}
+	
+	@Benchmark
+	public Integer calculateAmount() {
+		return reservationService.calculateAmount(checkinDate, checkoutDate, 12000);
+	}
+	
+	@Benchmark
+	public String getPreviousDates() {
+		return reservationService.getPreviousDates(checkinDate, checkoutDate, bindingResult);
+	}
+}
@@ -0,0 +1,78 @@
+package com.example.samuraitravel.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.dto.ReviewListItem;
+import com.example.samuraitravel.entity.House;
+
+//ベンチマーク用の、データベースを使わずに作成した民宿とレビュー
+final class SyntheticData {
+	private static final Instant BASE_TIME = Instant.parse("2031-06-01T00:00:00Z");
+	
+	private SyntheticData() {
+	}
+	
+	static List<House> houses(int count) {
+		List<House> houses = new ArrayList<>(count);
+		for(int i = 1; i <= count; i++) {
+			House house = new House();
+			house.setId(i);
+			house.setName("SAMURAIの宿 " + i);
+			house.setImageName("house" + String.format("%02d", i % 20 + 1) + ".jpg");
+			house.setDescription("閑静な住宅街に佇む一軒家の民宿です。最寄り駅から徒歩" + (i % 15 + 1) + "分で、観光にも便利です。");
+			house.setPrice(5000 + (i % 10) * 1000);
+			house.setCapacity(2 + i % 6);
+			house.setPostalCode("101-0022");
+			house.setAddress("東京都千代田区神田練塀町" + i + "番地");
+			house.setPhoneNumber("012-345-678");
+			house.setCreatedAt(Timestamp.from(BASE_TIME.minusSeconds(i * 60L)));
+			houses.add(house);
+		}
+		return houses;
+	}
+	
+	//民宿一覧のクエリと同じ項目を、民宿から詰め替える
+	static HouseListItem toListItem(House house, BigDecimal averageScore, Integer reviewCount) {
+		return new HouseListItem(house.getId(), house.getName(), house.getImageName(), house.getDescription(), house.getPrice(),
+				house.getCapacity(), house.getPostalCode(), house.getAddress(), house.getCreatedAt(), averageScore, reviewCount);
+	}
+	
+	//新着順の一覧と同じく、最後の民宿の作成日時とIDをカーソルにしたページに変換する
+	static CursorPage<HouseListItem> toHousePage(List<House> houses) {
+		List<HouseListItem> items = new ArrayList<>(houses.size());
+		for(House house : houses) {
+			items.add(toListItem(house, BigDecimal.valueOf(350 + house.getId() % 150, 2), house.getId() % 12));
+		}
+		
+		Window<HouseListItem> window = Window.from(items, index -> positionOf(items.get(index)), true);
+		return CursorPage.of(window, true);
+	}
+	
+	private static KeysetScrollPosition positionOf(HouseListItem house) {
+		Map<String, Object> keys = new LinkedHashMap<>();
+		keys.put("createdAt", house.getCreatedAt());
+		keys.put("id", house.getId());
+		
+		return ScrollPosition.forward(keys);
+	}
+	
+	static CursorPage<ReviewListItem> reviewPage(int count) {
+		List<ReviewListItem> reviews = new ArrayList<>(count);
+		for(int i = 1; i <= count; i++) {
+			reviews.add(new ReviewListItem(i, i, "侍 太郎" + i, i % 5 + 1, "とても快適に過ごせました。また利用したいです。", Timestamp.from(BASE_TIME.minusSeconds(i * 3600L))));
+		}
+		return new CursorPage<>(reviews, "bmV4dA", true);
+	}
+}
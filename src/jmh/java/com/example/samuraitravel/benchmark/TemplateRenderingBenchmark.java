@@ -0,0 +1,151 @@
+package com.example.samuraitravel.benchmark;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.expression.DefaultWebSecurityExpressionHandler;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.security.web.servlet.support.csrf.CsrfRequestDataValueProcessor;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.extras.springsecurity6.dialect.SpringSecurityDialect;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import com.example.samuraitravel.dto.HouseReviewSummary;
+import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.form.ReservationInputForm;
+import com.example.samuraitravel.security.UserDetailsImpl;
+import com.example.samuraitravel.service.HouseImageService;
+import com.example.samuraitravel.service.LocalImageStorage;
+
+//民宿一覧ページと民宿詳細ページを、データベースを使わずに作成したモデルでThymeleafのテンプレートから描画する
+//テンプレートエンジンの設定はSpring Bootの既定値に合わせ、ヘッダーのログイン状態の表示とCSRFトークンの埋め込みも含めて計測する
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+	//民宿一覧の1ページあたりの件数と、民宿詳細ページに表示する最新のレビューの件数
+	private static final int HOUSE_PAGE_SIZE = 10;
+	private static final int LATEST_REVIEW_COUNT = 6;
+	
+	private StaticWebApplicationContext applicationContext;
+	private HouseImageService houseImageService;
+	private View indexView;
+	private View showView;
+	private Map<String, Object> indexModel;
+	private Map<String, Object> showModel;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		MockServletContext servletContext = new MockServletContext();
+		applicationContext = new StaticWebApplicationContext();
+		applicationContext.setServletContext(servletContext);
+		//テンプレートから参照するBeanと、sec:authorizeの評価・フォームへのCSRFトークンの埋め込みに使うBean
+		houseImageService = new HouseImageService(new LocalImageStorage(Files.createTempDirectory("benchmark-storage").toString()), servletContext);
+		applicationContext.getBeanFactory().registerSingleton("houseImageService", houseImageService);
+		applicationContext.registerSingleton("webSecurityExpressionHandler", DefaultWebSecurityExpressionHandler.class);
+		applicationContext.registerSingleton("requestDataValueProcessor", CsrfRequestDataValueProcessor.class);
+		applicationContext.refresh();
+		servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, applicationContext);
+		
+		SpringResourceTemplateResolver templateResolver = new SpringResourceTemplateResolver();
+		templateResolver.setApplicationContext(applicationContext);
+		templateResolver.setPrefix("classpath:/templates/");
+		templateResolver.setSuffix(".html");
+		templateResolver.setTemplateMode(TemplateMode.HTML);
+		templateResolver.setCharacterEncoding("UTF-8");
+		templateResolver.setCacheable(true);
+		
+		SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+		templateEngine.setTemplateResolver(templateResolver);
+		templateEngine.addDialect(new SpringSecurityDialect());
+		
+		ThymeleafViewResolver viewResolver = new ThymeleafViewResolver();
+		viewResolver.setTemplateEngine(templateEngine);
+		viewResolver.setCharacterEncoding("UTF-8");
+		viewResolver.setApplicationContext(applicationContext);
+		indexView = viewResolver.resolveViewName("houses/index", Locale.JAPAN);
+		showView = viewResolver.resolveViewName("houses/show", Locale.JAPAN);
+		
+		indexModel = new HashMap<>();
+		indexModel.put("housePage", SyntheticData.toHousePage(SyntheticData.houses(HOUSE_PAGE_SIZE)));
+		
+		House house = SyntheticData.houses(1).get(0);
+		showModel = new HashMap<>();
+		showModel.put("house", house);
+		showModel.put("reviewPage", SyntheticData.reviewPage(LATEST_REVIEW_COUNT));
+		showModel.put("reviewSummary", new HouseReviewSummary(11, new BigDecimal("3.82"), List.of(1, 1, 2, 3, 4)));
+		showModel.put("hasPostedReview", false);
+		showModel.put("hasPostedFavorite", true);
+		showModel.put("reservationInputForm", new ReservationInputForm());
+		
+		//ログイン済みの会員として描画する（ヘッダーの氏名とレビューの編集リンクの判定を含む）
+		UserDetailsImpl userDetailsImpl = new UserDetailsImpl(1, "taro.samurai@example.com", "侍 太郎", "ROLE_GENERAL", true, null);
+		SecurityContextHolder.getContext().setAuthentication(
+				UsernamePasswordAuthenticationToken.authenticated(userDetailsImpl, null, userDetailsImpl.getAuthorities()));
+		
+		//モデルの不足で描画が途中で失敗していないことを、計測の前に確認する
+		for(String html : List.of(renderHouseIndex(), renderHouseShow())) {
+			if(!html.contains("SAMURAIの宿 1") || !html.contains("侍 太郎") || !html.contains("</html>")) {
+				throw new IllegalStateException("テンプレートが正しく描画されませんでした。");
+			}
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+		houseImageService.shutdown();
+		applicationContext.close();
+	}
+	
+	@Benchmark
+	public String renderHouseIndex() throws Exception {
+		return render(indexView, indexModel, "/houses");
+	}
+	
+	@Benchmark
+	public String renderHouseShow() throws Exception {
+		return render(showView, showModel, "/houses/1");
+	}
+	
+	private String render(View view, Map<String, Object> model, String requestUri) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(applicationContext.getServletContext(), "GET", requestUri);
+		request.setAttribute(CsrfToken.class.getName(), new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "benchmark-csrf-token"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		view.render(model, request, response);
+		
+		return response.getContentAsString();
+	}
+}
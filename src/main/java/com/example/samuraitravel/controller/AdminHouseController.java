@@ -9,6 +9,7 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -22,6 +23,7 @@ import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.form.HouseEditForm;
 import com.example.samuraitravel.form.HouseRegisterForm;
 import com.example.samuraitravel.service.HouseService;
+import com.example.samuraitravel.service.ImageStorageException;
 
 @Controller
 @RequestMapping("/admin/houses") //ルートパスの基準値の設定　各メソッドに共通のパスを繰り返し記述する必要がなくなる
@@ -91,7 +93,13 @@ public class AdminHouseController {
 			return "admin/houses/register"; // 登録ページに戻る
 		}
 		
-		houseService.createHouse(houseRegisterForm); // 民宿を登録するサービスメソッドを呼び出す
+		try {
+			houseService.createHouse(houseRegisterForm); // 民宿を登録するサービスメソッドを呼び出す
+		} catch(ImageStorageException e) { // 画像の保存に失敗した場合は登録せずにフォームを再表示
+			bindingResult.addError(new FieldError(bindingResult.getObjectName(), "imageFile", "画像の保存に失敗しました。時間をおいて再度お試しください。"));
+			model.addAttribute("houseRegisterForm", houseRegisterForm);
+			return "admin/houses/register";
+		}
 		redirectAttributes.addFlashAttribute("successMessage","民宿を登録しました。"); // 成功メッセージをリダイレクト先に渡す
 		
 		return "redirect:/admin/houses"; // 民宿一覧ページにリダイレクト
@@ -143,7 +151,14 @@ public class AdminHouseController {
 			return "admin/houses/edit"; // 編集ページに戻る
 		}
 		
-		houseService.updateHouse(houseEditForm, house); // 民宿情報を更新するサービスメソッドを呼び出す
+		try {
+			houseService.updateHouse(houseEditForm, house); // 民宿情報を更新するサービスメソッドを呼び出す
+		} catch(ImageStorageException e) { // 画像の保存に失敗した場合は更新せずにフォームを再表示
+			bindingResult.addError(new FieldError(bindingResult.getObjectName(), "imageFile", "画像の保存に失敗しました。時間をおいて再度お試しください。"));
+			model.addAttribute("house", house);
+			model.addAttribute("houseEditForm", houseEditForm);
+			return "admin/houses/edit";
+		}
 		redirectAttributes.addFlashAttribute("successMessage","民宿情報を編集しました。"); // 成功メッセージをリダイレクト先に渡す
 		
 		return "redirect:/admin/houses"; // 民宿一覧ページにリダイレクト
@@ -15,7 +15,6 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.example.samuraitravel.entity.User;
 import com.example.samuraitravel.entity.VerificationToken;
-import com.example.samuraitravel.event.SignupEventPublisher;
 import com.example.samuraitravel.form.SignupForm;
 import com.example.samuraitravel.service.UserService;
 import com.example.samuraitravel.service.VerificationTokenService;
@@ -23,12 +22,10 @@ import com.example.samuraitravel.service.VerificationTokenService;
 @Controller
 public class AuthController {
 	private final UserService userService;
-	private final SignupEventPublisher signupEventPublisher;
 	private final VerificationTokenService verificationTokenService;
 	
-	public AuthController(UserService userService, SignupEventPublisher signupEventPublisher, VerificationTokenService verificationTokenService) {
+	public AuthController(UserService userService, VerificationTokenService verificationTokenService) {
 		this.userService = userService;
-		this.signupEventPublisher = signupEventPublisher;
 		this.verificationTokenService = verificationTokenService;
 	}
 	
@@ -78,15 +75,12 @@ public class AuthController {
 			return "auth/signup";
 		}
 	
-		// 入力されたフォーム情報をもとに、新しいユーザーを作成
-		User createdUser = userService.createUser(signupForm);
-		
 		// 現在のリクエストURLを取得（メール認証用のベースURLとして使用）
-		String requestUrl = new String(httpServletRequest.getRequestURI());
+		String requestUrl = httpServletRequest.getRequestURL().toString();
 		
-		// メール認証イベントを発行
-		// このイベントにより、ユーザーに認証メールが送信される
-		signupEventPublisher.publishSignupEvent(createdUser, requestUrl);
+		// 入力されたフォーム情報をもとに、新しいユーザーを作成
+		// 同じトランザクション内で認証メールが送信待ちとして保存され、バックグラウンドで送信される
+		userService.createUser(signupForm, requestUrl);
 		redirectAttributes.addFlashAttribute("successMessage", "ご入力いただいたメールアドレスに認証メールを送信しました。 メールに記載されているリンクをクリックし、会員登録を完了してください。");
 		
 		return "redirect:/";
@@ -1,27 +1,32 @@
 package com.example.samuraitravel.controller;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort.Direction;
-import org.springframework.data.web.PageableDefault;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import com.example.samuraitravel.dto.CursorPage;
 import com.example.samuraitravel.entity.Favorite;
 import com.example.samuraitravel.entity.User;
 import com.example.samuraitravel.security.UserDetailsImpl;
 import com.example.samuraitravel.service.FavoriteService;
+import com.example.samuraitravel.service.UserService;
 
 @Controller
 public class FavoriteController {
+	//1ページあたりのお気に入り数
+	private static final int PAGE_SIZE = 10;
+	
 	private final FavoriteService favoriteService;
+	private final UserService userService;
 	
-	public FavoriteController(FavoriteService favoriteService) {
+	public FavoriteController(FavoriteService favoriteService, UserService userService) {
 		this.favoriteService = favoriteService;
+		this.userService = userService;
 	}
 	
 	//お気に入り追加メソッド
@@ -29,8 +34,12 @@ public class FavoriteController {
 	public String addFavorite(@PathVariable Integer houseId, @AuthenticationPrincipal UserDetailsImpl userDetailsImpl) {
 	
 		if (userDetailsImpl != null) {
-			Integer userId = userDetailsImpl.getUser().getId();
-			favoriteService.addFavorite(houseId,  userDetailsImpl, userId);
+			Integer userId = userDetailsImpl.getId();
+			try {
+				favoriteService.addFavorite(houseId,  userDetailsImpl, userId);
+			} catch(DataIntegrityViolationException e) {
+				//二重送信で同じお気に入りを登録しようとした場合は一意制約で弾かれるため、登録済みとして扱う
+			}
 	}
 	
 		return "redirect:/houses/" + houseId;
@@ -41,7 +50,7 @@ public class FavoriteController {
 	public String deleteFavorite(@PathVariable Integer houseId,  @AuthenticationPrincipal UserDetailsImpl userDetailsImpl ) {
 		
 		if (userDetailsImpl != null) {
-			Integer userId = userDetailsImpl.getUser().getId();
+			Integer userId = userDetailsImpl.getId();
 			favoriteService.deleteFavorite(houseId, userId);
 	}
 		return "redirect:/houses/" + houseId;
@@ -49,11 +58,12 @@ public class FavoriteController {
 	
 	@GetMapping("/favorites")
 	public String indec(@AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
-			@PageableDefault(page = 0, size = 10, sort = "id", direction = Direction.ASC) Pageable pageable,
+			@RequestParam(name = "cursor", required = false) String cursor,
 			Model model)
 	{
-		User user = userDetailsImpl.getUser();
-		Page<Favorite> favoritePage = favoriteService.findFavoritesByUserOrderByCreatedAtDesc(user, pageable);
+		//検索条件にだけ使うため、ユーザーは読み込まずに参照する
+		User user = userService.getUserReference(userDetailsImpl.getId());
+		CursorPage<Favorite> favoritePage = favoriteService.findFavoritesByUserOrderByCreatedAtDesc(user, cursor, PAGE_SIZE);
 		
 		model.addAttribute("favoritePage", favoritePage);
 		
@@ -1,28 +1,26 @@
 package com.example.samuraitravel.controller;
 
-import java.util.List;
-
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import com.example.samuraitravel.entity.House;
-import com.example.samuraitravel.service.HouseService;
+import com.example.samuraitravel.dto.HomePageContent;
+import com.example.samuraitravel.service.HomePageCache;
 
 @Controller
 public class HomeController {
-	private final HouseService houseService;
+	private final HomePageCache homePageCache;
 	
-	public HomeController(HouseService houseService) {
-		this.houseService = houseService;
+	public HomeController(HomePageCache homePageCache) {
+		this.homePageCache = homePageCache;
 	}
 	@GetMapping("/")
 	public String index(Model model) {
-		List<House> newHouses = houseService.findTop8HouseByOrderByCreatedAtDesc();
-		List<House> popularHouse = houseService.findTop3HouseByOrderByReservationCountDesc();
-		model.addAttribute("newHouses", newHouses); 
-		model.addAttribute("popularHouse", popularHouse);
+		//新着・人気の民宿はキャッシュから取得する（民宿や予約が書き込まれるまでデータベースにアクセスしない）
+		HomePageContent homePageContent = homePageCache.get();
+		model.addAttribute("newHouses", homePageContent.getNewHouses()); 
+		model.addAttribute("popularHouses", homePageContent.getPopularHouses());
 		
 		return "index";
 	}
-}
\ No newline at end of file
+}
@@ -1,12 +1,11 @@
 package com.example.samuraitravel.controller;
 
-import java.util.List;
+import java.time.LocalDate;
 import java.util.Optional;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort.Direction;
-import org.springframework.data.web.PageableDefault;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -17,28 +16,32 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseDetail;
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.dto.HouseSearchCriteria;
 import com.example.samuraitravel.entity.Review;
-import com.example.samuraitravel.entity.User;
 import com.example.samuraitravel.form.ReservationInputForm;
 import com.example.samuraitravel.security.UserDetailsImpl;
-import com.example.samuraitravel.service.FavoriteService;
+import com.example.samuraitravel.service.HouseDetailService;
 import com.example.samuraitravel.service.HouseService;
 import com.example.samuraitravel.service.ReviewService;
 
 @Controller
 @RequestMapping("/houses")
 public class HouseController {
+	//1ページあたりの民宿数
+	private static final int PAGE_SIZE = 10;
+	
 	private final HouseService houseService;
 	private final ReviewService reviewService;
-	private final FavoriteService favoriteService;
-	private boolean hasPostedFavorite;
+	private final HouseDetailService houseDetailService;
 	
 	
-	public HouseController(HouseService houseService, ReviewService reviewService, FavoriteService favoriteService) {
+	public HouseController(HouseService houseService, ReviewService reviewService, HouseDetailService houseDetailService) {
 		this.houseService = houseService;
 		this.reviewService = reviewService;
-		this.favoriteService = favoriteService;
+		this.houseDetailService = houseDetailService;
 		
 	}
 
@@ -47,42 +50,28 @@ public class HouseController {
 	public String index(@RequestParam(name = "keyword", required = false) String keyword,
 						@RequestParam(name = "area", required = false) String area,
 						@RequestParam(name = "price", required = false) Integer price,
+						@RequestParam(name = "capacity", required = false) Integer capacity,
 						@RequestParam(name = "order", required = false) String order,
-						@PageableDefault(page = 0, size = 10, sort = "id", direction = Direction.ASC) Pageable pageable,
+						@RequestParam(name = "checkinDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkinDate,
+						@RequestParam(name = "checkoutDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkoutDate,
+						@RequestParam(name = "cursor", required = false) String cursor,
+						HttpServletRequest request,
 						Model model) {
-		Page<House> housePage;
+		// 指定された条件をすべて組み合わせて1本のクエリで検索し、カーソルの位置から続きを取得する
+		HouseSearchCriteria criteria = new HouseSearchCriteria(keyword, area, price, capacity, order, checkinDate, checkoutDate);
 		
-		if(keyword != null && !keyword.isEmpty()) {
-			if(order != null && order.equals("priceAsc")) {
-				housePage = houseService.findHousesByNameLikeOrAddressLikeOrderByPriceAsc(keyword, keyword, pageable);
-			} else {
-				housePage = houseService.findHousesByNameLikeOrAddressLikeOrderByCreatedAtDesc(keyword, keyword, pageable);
-			}
-		} else if(area != null && !area.isEmpty()) {
-			if(order != null && order.equals("priceAsc")) {
-				housePage = houseService.findHousesByAddressLikeOrderByPriceAsc(area, pageable);
-			} else {
-				housePage = houseService.findHousesByAddressLikeOrderByCreatedAtDesc(area, pageable);
-			}
-		} else if(price != null) {
-			if(order != null && order.equals("priceAsc")) {
-				housePage = houseService.findHousesByPriceLessThanEqualOrderByPriceAsc(price, pageable);
-			} else {
-				housePage = houseService.findHousesByPriceLessThanEqualOrderByCreatedAtDesc(price, pageable);
-			}
-		} else {
-			if(order != null && order.equals("priceAsc")) {
-				housePage = houseService.findAllHousesByOrderByPriceAsc(pageable);
-			} else {
-				housePage = houseService.findAllHousesByOrderByCreatedAtDesc(pageable);
-			}
-		}
+		// 応答時間のメトリクスを検索の種類ごとに分ける
+		request.setAttribute(RequestMetricsConfig.SEARCH_MODE_ATTRIBUTE, criteria.toSearchMode());
+		CursorPage<HouseListItem> housePage = houseService.searchHouses(criteria, cursor, PAGE_SIZE);
 		
 		model.addAttribute("housePage", housePage);
 		model.addAttribute("keyword", keyword);
 		model.addAttribute("area", area);
 		model.addAttribute("price", price);
+		model.addAttribute("capacity", capacity);
 		model.addAttribute("order", order);
+		model.addAttribute("checkinDate", checkinDate);
+		model.addAttribute("checkoutDate", checkoutDate);
 		
 		return "houses/index";
 	}
@@ -91,40 +80,33 @@ public class HouseController {
 	public String show(@PathVariable(name = "id") Integer id, 
 					   @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
 					   RedirectAttributes redirectAttributes, Model model) {
-		Optional<House> optionalHouse = houseService.findHouseById(id);
-		List<Review> reviews = reviewService.findReviewByHouseIdOrderByCreatedAtDesc(id);
+		//ログイン中のユーザーのIDを取得
+		Integer userId = (userDetailsImpl != null) ? userDetailsImpl.getId() : null;
 		
-		if(optionalHouse.isEmpty()) {
+		//民宿・最新のレビュー・レビューの集計・ユーザーがレビューとお気に入りを投稿済みかをまとめて取得
+		Optional<HouseDetail> optionalHouseDetail = houseDetailService.findHouseDetail(id, userId);
+		
+		if(optionalHouseDetail.isEmpty()) {
 			redirectAttributes.addFlashAttribute("errorMessage", "民宿が存在しません。");
 			
 			return "redirect:/houses";
 		}
 		
-		House house = optionalHouse.get();
-		model.addAttribute("house", house);
+		addHouseDetailAttributes(optionalHouseDetail.get(), model);
 		model.addAttribute("reservationInputForm", new ReservationInputForm());
-		model.addAttribute("reviews", reviews);
-		
-		//ユーザーの情報を取得
-		User user = (userDetailsImpl != null) ? userDetailsImpl.getUser() : null;
-		
-		//ユーザーがすでにレビューを投稿しているかの確認
-		boolean hasPostedReview = false;
-		if(user != null) {
-			hasPostedReview = reviewService.hasUserPostedReview(id, user.getId());
-		}
-		
-		boolean hasPostedFavorite = false;
-		if (user != null) {
-			hasPostedFavorite = favoriteService.hasUserPostedFavorite(id, user.getId());
-		}
-		
-		model.addAttribute("hasPostedReview", hasPostedReview);
-		model.addAttribute("hasPostedFavorite", hasPostedFavorite);
 		
 		return "houses/show";
 	}
 	
+	//民宿詳細ページの表示に必要な情報をモデルに追加する（予約内容に不備がある場合の再表示でも使う）
+	public static void addHouseDetailAttributes(HouseDetail houseDetail, Model model) {
+		model.addAttribute("house", houseDetail.getHouse());
+		model.addAttribute("reviewPage", houseDetail.getReviewPage());
+		model.addAttribute("reviewSummary", houseDetail.getReviewSummary());
+		model.addAttribute("hasPostedReview", houseDetail.isPostedReview());
+		model.addAttribute("hasPostedFavorite", houseDetail.isPostedFavorite());
+	}
+	
 	//レビューを削除
 	@PostMapping("/{id}/delete")
 	public String delete(@PathVariable(name = "id") Integer id, RedirectAttributes redirectAttributes, Review review) {
@@ -0,0 +1,88 @@
+package com.example.samuraitravel.controller;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+
+import com.example.samuraitravel.service.HouseImageService;
+import com.example.samuraitravel.service.ImageStorage;
+import com.example.samuraitravel.service.ImageVariant;
+
+//民宿画像を配信する
+//画像名は内容から決まり、同じ名前の画像の内容は変わらないため、ブラウザやCDNに長期間キャッシュさせる
+@Controller
+public class ImageController {
+	private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+	
+	//縮小画像の生成前に元の画像で代用する場合は、生成後の画像に早く切り替わるよう短時間だけキャッシュさせる
+	private static final CacheControl FALLBACK_CACHE_CONTROL = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+	
+	private final ImageStorage imageStorage;
+	private final HouseImageService houseImageService;
+	
+	public ImageController(ImageStorage imageStorage, HouseImageService houseImageService) {
+		this.imageStorage = imageStorage;
+		this.houseImageService = houseImageService;
+	}
+	
+	@GetMapping("/storage/{imageName}")
+	public ResponseEntity<Resource> show(@PathVariable(name = "imageName") String imageName, WebRequest webRequest) {
+		if(!ImageStorage.isValidImageName(imageName)) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		
+		//ブラウザが同じ画像を持っている場合は、保存先から読み込まずに304を返す
+		//（ETagは実際の画像を返したときにだけ付けるため、代用の画像をキャッシュしているブラウザには一致しない）
+		String etag = "\"" + StringUtils.stripFilenameExtension(imageName) + "\"";
+		String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if(ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).eTag(etag).build();
+		}
+		
+		Optional<String> optionalOriginalName = ImageVariant.findOriginalName(imageName);
+		Optional<Resource> optionalResource = optionalOriginalName.isPresent()
+				? imageStorage.load(imageName)
+				: houseImageService.loadOriginal(imageName);
+		
+		if(optionalResource.isPresent()) {
+			return ResponseEntity.ok()
+					.cacheControl(CACHE_CONTROL)
+					.eTag(etag)
+					.contentType(toMediaType(imageName))
+					.body(optionalResource.get());
+		}
+		
+		//縮小画像がまだない場合は生成を依頼し、元の画像を返す
+		if(optionalOriginalName.isPresent()) {
+			String originalName = optionalOriginalName.get();
+			Optional<Resource> optionalOriginal = houseImageService.loadOriginal(originalName);
+			
+			if(optionalOriginal.isPresent()) {
+				houseImageService.requestDerivatives(originalName);
+				
+				return ResponseEntity.ok()
+						.cacheControl(FALLBACK_CACHE_CONTROL)
+						.contentType(toMediaType(originalName))
+						.body(optionalOriginal.get());
+			}
+		}
+		
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+	}
+	
+	private MediaType toMediaType(String imageName) {
+		return MediaTypeFactory.getMediaType(imageName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+	}
+}
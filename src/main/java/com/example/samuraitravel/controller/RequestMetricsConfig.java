@@ -0,0 +1,65 @@
+package com.example.samuraitravel.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+//リクエストの応答時間（http.server.requests）を、処理したコントローラーのメソッドと民宿一覧の検索の種類ごとに記録する
+@Configuration
+public class RequestMetricsConfig {
+	//コントローラーが検索の種類を設定するリクエスト属性
+	public static final String SEARCH_MODE_ATTRIBUTE = RequestMetricsConfig.class.getName() + ".searchMode";
+
+	private static final String REQUESTS_METRIC = "http.server.requests";
+
+	//Prometheusのタグはメトリクス名ごとに揃える必要があるため、該当しないリクエストにも同じタグを付ける
+	private static final String NONE = "none";
+
+	@Bean
+	public ServerRequestObservationConvention handlerRequestObservationConvention() {
+		return new DefaultServerRequestObservationConvention() {
+			@Override
+			public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+				return super.getLowCardinalityKeyValues(context).and(handler(context), searchMode(context));
+			}
+		};
+	}
+
+	//パーセンタイルをPrometheus側で集計できるよう、応答時間をヒストグラムで公開する
+	@Bean
+	public MeterFilter requestHistogramMeterFilter() {
+		return new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				if(!id.getName().equals(REQUESTS_METRIC)) {
+					return config;
+				}
+				return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+			}
+		};
+	}
+
+	//「クラス名.メソッド名」（例：HouseController.index）
+	private static KeyValue handler(ServerRequestObservationContext context) {
+		Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+		if(handler instanceof HandlerMethod handlerMethod) {
+			return KeyValue.of("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+		}
+		return KeyValue.of("handler", NONE);
+	}
+
+	private static KeyValue searchMode(ServerRequestObservationContext context) {
+		Object searchMode = context.getCarrier().getAttribute(SEARCH_MODE_ATTRIBUTE);
+		return KeyValue.of("search.mode", searchMode != null ? searchMode.toString() : NONE);
+	}
+}
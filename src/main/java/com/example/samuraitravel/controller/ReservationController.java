@@ -1,14 +1,14 @@
 package com.example.samuraitravel.controller;
 
 import java.time.LocalDate;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import jakarta.servlet.http.HttpSession;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort.Direction;
-import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -19,40 +19,52 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.example.samuraitravel.dto.CursorPage;
 import com.example.samuraitravel.dto.ReservationDTO;
 import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.Reservation;
 import com.example.samuraitravel.entity.User;
 import com.example.samuraitravel.form.ReservationInputForm;
 import com.example.samuraitravel.security.UserDetailsImpl;
+import com.example.samuraitravel.service.CheckoutSessionService;
+import com.example.samuraitravel.service.HouseDetailService;
 import com.example.samuraitravel.service.HouseService;
 import com.example.samuraitravel.service.ReservationService;
-import com.example.samuraitravel.service.StripeService;
+import com.example.samuraitravel.service.UserService;
 
 @Controller
 public class ReservationController {
+	//1ページあたりの予約数
+	private static final int PAGE_SIZE = 10;
+	
 	private final ReservationService reservationService;
 	private final HouseService houseService;
-	private final StripeService stripeService;
+	private final CheckoutSessionService checkoutSessionService;
+	private final HouseDetailService houseDetailService;
+	private final UserService userService;
 	
-	public ReservationController(ReservationService reservationService, HouseService houseservice, StripeService stripeService) {
+	public ReservationController(ReservationService reservationService, HouseService houseservice, CheckoutSessionService checkoutSessionService,
+								 HouseDetailService houseDetailService, UserService userService) {
 		this.reservationService = reservationService;
 		this.houseService = houseservice;
-		this.stripeService = stripeService;
+		this.checkoutSessionService = checkoutSessionService;
+		this.houseDetailService = houseDetailService;
+		this.userService = userService;
 	}
 	
 	@GetMapping("/reservations")
 	public String index(@AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
-						@PageableDefault(page = 0, size = 10, sort = "id", direction = Direction.ASC)
-						Pageable pageable, Model model)
+						@RequestParam(name = "cursor", required = false) String cursor, Model model)
 	{
-		// 現在ログインしているユーザーを取得
-		User user = userDetailsImpl.getUser();
+		// 現在ログインしているユーザーを、検索条件にだけ使うため読み込まずに参照する
+		User user = userService.getUserReference(userDetailsImpl.getId());
 		
-		// ユーザーの予約を作成日時の降順で取得し、ページングを適用
-		Page<Reservation> reservationPage = reservationService.findHousesByUserOrderByCreatedAtDesc(user, pageable);
+		// ユーザーの予約を作成日時の降順で、カーソルの位置から取得
+		CursorPage<Reservation> reservationPage = reservationService.findHousesByUserOrderByCreatedAtDesc(user, cursor, PAGE_SIZE);
 		
 		// 取得した予約情報をモデルに追加
 		model.addAttribute("reservationPage", reservationPage);
@@ -64,6 +76,7 @@ public class ReservationController {
 	public String input(@PathVariable(name = "id") Integer id,
 						@ModelAttribute @Validated ReservationInputForm reservationInputForm,
 						BindingResult bindingResult,
+						@AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
 						RedirectAttributes redirectAttributes,
 						HttpSession httpSession,
 						Model model)
@@ -94,6 +107,13 @@ public class ReservationController {
 			bindingResult.addError(fieldError);
 		}
 		
+		// 指定された期間にすでに予約が入っていないかを確認
+		if(checkinDate != null && checkoutDate != null && !bindingResult.hasFieldErrors("checkinDate")
+				&& !reservationService.isHouseAvailable(house.getId(), checkinDate, checkoutDate)) {
+			FieldError fieldError = new FieldError(bindingResult.getObjectName(), "checkinDate", "選択された期間にはすでに予約が入っています。別の日付を選択してください。");
+			bindingResult.addError(fieldError);
+		}
+		
 		// 宿泊人数が定員を超えていないかを確認
 		if(numberOfPeople != null && !reservationService.isWithinCapacity(numberOfPeople, capacity)) {
 			FieldError fieldError = new FieldError(bindingResult.getObjectName(), "numberOfPeople", "宿泊人数が定員を超えています。");
@@ -102,8 +122,11 @@ public class ReservationController {
 		if(bindingResult.hasErrors()) {
 			String previousDates = reservationService.getPreviousDates(checkinDate, checkoutDate, bindingResult);
 			
+			// 民宿詳細ページの表示に必要な民宿・レビュー・お気に入りの情報を追加
+			houseDetailService.findHouseDetail(id, userDetailsImpl.getId())
+					.ifPresent(houseDetail -> HouseController.addHouseDetailAttributes(houseDetail, model));
+			
 			// モデルに必要な情報を追加
-			model.addAttribute("house", house);
 			model.addAttribute("reservationInputForm", reservationInputForm);
 			model.addAttribute("previousDates", previousDates);
 			model.addAttribute("errorMessage", "予約内容に不備があります。");
@@ -136,16 +159,34 @@ public class ReservationController {
 			return "redirect:/houses";
 		}
 		
-		User user = userDetailsImpl.getUser();
+		// Stripeのセッションの作成を開始する（作成を待たずにページを表示し、セッションIDは画面から取得する）
+		checkoutSessionService.prepare(httpSession, reservationDTO, userDetailsImpl.getId());
 		
-		String sessionId = stripeService.createStripeSession(reservationDTO, user);
 		// モデルに予約情報を追加
 		model.addAttribute("reservationDTO", reservationDTO);
-		model.addAttribute("sessionId", sessionId);
 		
 		return "reservations/confirm";
 	}
 	
+	@GetMapping("/reservations/confirm/session")
+	@ResponseBody
+	public CompletableFuture<ResponseEntity<Map<String, String>>> checkoutSession(@AuthenticationPrincipal UserDetailsImpl userDetailsImpl, HttpSession httpSession) {
+		ReservationDTO reservationDTO = (ReservationDTO)httpSession.getAttribute("reservationDTO");
+		
+		if(reservationDTO == null) {
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+					.body(Map.of("errorMessage", "セッションがタイムアウトしました。もう一度予約内容を入力してください。")));
+		}
+		
+		// セッションIDが得られるまでリクエストのスレッドを解放し、得られた時点で応答する
+		return checkoutSessionService.prepare(httpSession, reservationDTO, userDetailsImpl.getId())
+				.thenApply(sessionId -> sessionId.isEmpty()
+						? ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("errorMessage", "決済の準備に失敗しました。時間をおいて再度お試しください。"))
+						: ResponseEntity.ok(Map.of("sessionId", sessionId)))
+				.exceptionally(ex -> ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+						.body(Map.of("errorMessage", "決済の準備に時間がかかっています。時間をおいて再度お試しください。")));
+	}
+	
 	/*
 	@PostMapping("/reservations/create")
 	public String create(@AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
@@ -159,7 +200,7 @@ public class ReservationController {
 		}
 		
 		// 現在ログインしているユーザーを取得
-		User user = userDetailsImpl.getUser();
+		User user = userService.getUserReference(userDetailsImpl.getId());
 		
 		// 予約を作成
 		reservationService.createReservation(reservationDTO, user);
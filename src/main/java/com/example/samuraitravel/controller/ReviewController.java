@@ -2,10 +2,7 @@ package com.example.samuraitravel.controller;
 
 import java.util.Optional;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort.Direction;
-import org.springframework.data.web.PageableDefault;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,8 +13,12 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.ReviewListItem;
 import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.Review;
 import com.example.samuraitravel.entity.User;
@@ -26,23 +27,28 @@ import com.example.samuraitravel.form.ReviewInputForm;
 import com.example.samuraitravel.security.UserDetailsImpl;
 import com.example.samuraitravel.service.HouseService;
 import com.example.samuraitravel.service.ReviewService;
+import com.example.samuraitravel.service.UserService;
 
 @Controller
 @RequestMapping("/houses/{houseId}/reviews")
 public class ReviewController {
+	//1ページあたりのレビュー数
+	private static final int PAGE_SIZE = 10;
+	
 	private final ReviewService reviewService;
 	private final HouseService houseService;
+	private final UserService userService;
 	
-	public ReviewController(ReviewService reviewService, HouseService houseService) {
+	public ReviewController(ReviewService reviewService, HouseService houseService, UserService userService) {
 		this.reviewService = reviewService;
 		this.houseService = houseService;
+		this.userService = userService;
 	}
 
 	//レビュー一覧を表示するメソッド
 	@GetMapping("/index")
 	public String index(@PathVariable(name = "houseId") Integer houseId, @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
-						@PageableDefault(page = 0, size = 10, sort = "id", direction = Direction.ASC)
-						Pageable pageable, Model model) {
+						@RequestParam(name = "cursor", required = false) String cursor, Model model) {
 		
 		//民宿の情報を取得
 		Optional<House> optionalHouse =houseService.findHouseById(houseId);
@@ -51,17 +57,29 @@ public class ReviewController {
 		}
 		model.addAttribute("house", optionalHouse.get());
 		
-		//ユーザーの情報を取得(nullを考慮)
-		User user = (userDetailsImpl != null) ? userDetailsImpl.getUser() : null;
-		model.addAttribute("user", user);
+		//ログイン中のユーザーの情報を取得(nullを考慮)
+		model.addAttribute("user", userDetailsImpl);
 		
-		//レビュー情報を取得
-		Page<Review> reviewPage = reviewService.findlReviewByHouseId(houseId, pageable);
+		//レビュー情報をカーソルの位置から取得
+		CursorPage<ReviewListItem> reviewPage = reviewService.findlReviewByHouseId(houseId, cursor, PAGE_SIZE, viewerIdOf(userDetailsImpl));
 		model.addAttribute("reviewPage", reviewPage);
 		
 		return "reviews/index";
 	}
 	
+	//レビューの続きをJSONで返すメソッド（民宿詳細ページとレビュー一覧ページの「もっと見る」から読み込む）
+	@GetMapping
+	@ResponseBody
+	public CursorPage<ReviewListItem> list(@PathVariable(name = "houseId") Integer houseId, @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+										   @RequestParam(name = "cursor", required = false) String cursor) {
+		return reviewService.findlReviewByHouseId(houseId, cursor, PAGE_SIZE, viewerIdOf(userDetailsImpl));
+	}
+	
+	//閲覧中のユーザーのID（未ログインの場合null）
+	private Integer viewerIdOf(UserDetailsImpl userDetailsImpl) {
+		return userDetailsImpl != null ? userDetailsImpl.getId() : null;
+	}
+	
 	//レビュー投稿フォームを表示するメソッド
 	@GetMapping("/input")
 	public String input(@PathVariable(name = "houseId") Integer houseId,
@@ -73,8 +91,7 @@ public class ReviewController {
 		}
 		model.addAttribute("house", optionalHouse.get());
 				
-		User user = (userDetailsImpl != null) ? userDetailsImpl.getUser() : null;
-		model.addAttribute("user", user);
+		model.addAttribute("user", userDetailsImpl);
 		
 		//フォームオブジェクトをセット
 		model.addAttribute("reviewInputForm", new ReviewInputForm());
@@ -94,8 +111,7 @@ public class ReviewController {
 		}
 		model.addAttribute("house", optionalHouse.get());
 				
-		User user = (userDetailsImpl != null) ? userDetailsImpl.getUser() : null;
-		model.addAttribute("user", user);
+		model.addAttribute("user", userDetailsImpl);
 		
 		//レビューを取得
 		Optional<Review> optionalReview = reviewService.findReviewById(reviewId);
@@ -130,10 +146,16 @@ public class ReviewController {
 		// houseIdをReviewInputFormに設定
 		reviewInputForm.setHouseId(houseId);
 		
-		User user = (userDetailsImpl != null) ? userDetailsImpl.getUser() : null;
+		//レビューとの関連付けにだけ使うため、ユーザーは読み込まずに参照する
+		User user = userService.getUserReference(userDetailsImpl.getId());
 		
-		// 投稿されたレビューの登録
-		reviewService.createReview(reviewInputForm, user);
+		// 投稿されたレビューの登録（同じ民宿へのレビューは1人1件までで、二重送信はデータベースの一意制約で弾かれる）
+		try {
+			reviewService.createReview(reviewInputForm, user);
+		} catch(DataIntegrityViolationException e) {
+			redirectAttributes.addFlashAttribute("errorMessage", "この民宿のレビューはすでに投稿済みです。");
+			return "redirect:/houses/{houseId}/reviews/index";
+		}
 		redirectAttributes.addFlashAttribute("successMessage", "レビューを投稿しました。");
 		
 		return "redirect:/houses/{houseId}/reviews/index";
@@ -1,5 +1,6 @@
 package com.example.samuraitravel.controller;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,20 +9,23 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 
-import com.example.samuraitravel.service.StripeService;
+import com.example.samuraitravel.service.StripeWebhookService;
+import com.example.samuraitravel.service.StripeWebhookWorker;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
 import com.stripe.net.Webhook;
 
 @Controller
 public class StripeWebhookController {
-	private final StripeService stripeService;
+	private final StripeWebhookService stripeWebhookService;
+	private final ObjectProvider<StripeWebhookWorker> stripeWebhookWorker;
 	
 	@Value("${stripe.webhook-secret}")
 	private String webhookSecret;
 	
-	public StripeWebhookController(StripeService stripeService) {
-		this.stripeService = stripeService;
+	public StripeWebhookController(StripeWebhookService stripeWebhookService, ObjectProvider<StripeWebhookWorker> stripeWebhookWorker) {
+		this.stripeWebhookService = stripeWebhookService;
+		this.stripeWebhookWorker = stripeWebhookWorker;
 	}
 	
 	@PostMapping("/stripe/webhook")
@@ -36,8 +40,11 @@ public class StripeWebhookController {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
 		}
 		
-		if ("checkout.session.completed".equals(event.getType())) {
-			stripeService.processSessionCompleted(event);
+		//イベントを受信箱に保存してすぐに応答し、予約の登録はワーカーに任せる（再送されたイベントは保存しない）
+		//このサーバーのワーカーが無効な場合は、ワーカーが有効なサーバーが受信箱から取り出して処理する
+		if ("checkout.session.completed".equals(event.getType()) && stripeWebhookService.receive(event, payload)) {
+			String eventId = event.getId();
+			stripeWebhookWorker.ifAvailable(worker -> worker.submit(eventId));
 		}
 		
 		return new ResponseEntity<>("Success", HttpStatus.OK);
@@ -1,6 +1,15 @@
 package com.example.samuraitravel.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -21,6 +30,7 @@ import com.example.samuraitravel.service.UserService;
 @RequestMapping("/user")
 public class UserController {
 	private final UserService userService;
+	private final SecurityContextRepository securityContextRepository = new HttpSessionSecurityContextRepository();
 	
 	public UserController(UserService userService) {
 		this.userService = userService;
@@ -29,7 +39,8 @@ public class UserController {
 	// ユーザーのホームページを表示するメソッド
 	@GetMapping
 	public String index(@AuthenticationPrincipal UserDetailsImpl userDetailsImpl, Model model) {
-		User user = userDetailsImpl.getUser();
+		//セッションには表示名などしか保持していないため、会員情報をデータベースから取得する
+		User user = userService.findUserById(userDetailsImpl.getId()).orElseThrow();
 		
 		model.addAttribute("user", user);
 		
@@ -40,7 +51,7 @@ public class UserController {
 	@GetMapping("/edit")
 	public String edit(@AuthenticationPrincipal UserDetailsImpl userDetailsImpl, Model model) {
 		// 現在のユーザー情報を取得
-		User user = userDetailsImpl.getUser();
+		User user = userService.findUserById(userDetailsImpl.getId()).orElseThrow();
 		// ユーザー情報をフォームに設定
 		UserEditForm userEditForm = new UserEditForm(user.getName(), user.getFurigana(), user.getPostalCode(), user.getAddress(), user.getPhoneNumber(), user.getEmail());
 		
@@ -56,10 +67,12 @@ public class UserController {
 						 BindingResult bindingResult,
 						 @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
 						 RedirectAttributes redirectAttributes,
-						 Model model)
+						 Model model,
+						 HttpServletRequest httpServletRequest,
+						 HttpServletResponse httpServletResponse)
 	{
-		// 現在のユーザー情報を取得
-		User user = userDetailsImpl.getUser();
+		// 更新するため、現在のユーザー情報をデータベースから読み込み直す
+		User user = userService.findUserById(userDetailsImpl.getId()).orElseThrow();
 		
 		//メールアドレスが変更されており、かつ登録済みであれば、BindingResultオブジェクトにエラー内容を追加する
 		if(userService.isEmailChanged(userEditForm, user) && userService.isEmailRegistered(userEditForm.getEmail())) {
@@ -76,8 +89,21 @@ public class UserController {
 		
 		// ユーザー情報を更新
 		userService.updateUser(userEditForm, user);
+		refreshAuthentication(user, httpServletRequest, httpServletResponse);
 		redirectAttributes.addFlashAttribute("successMessage", " 会員情報を編集しました。");
 		
 		return "redirect:/user";
 	}
-}
\ No newline at end of file
+	
+	// 変更後の氏名・メールアドレスをヘッダーなどに反映するため、セッションのログイン情報を作り直す
+	private void refreshAuthentication(User user, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) {
+		UserDetailsImpl userDetailsImpl = UserDetailsImpl.of(user);
+		userDetailsImpl.eraseCredentials();
+		Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(userDetailsImpl, null, userDetailsImpl.getAuthorities());
+		
+		SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+		securityContext.setAuthentication(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		securityContextRepository.saveContext(securityContext, httpServletRequest, httpServletResponse);
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.samuraitravel.dto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//キーセット方式でページングした一覧（件数は数えず、次のページの有無とカーソルだけを持つ）
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+	//作成日時の降順で並べる一覧のカーソルに含めるキー
+	public static final Map<String, Class<?>> CREATED_AT_DESC_KEYS = keys("createdAt", Timestamp.class, "id", Integer.class);
+
+	//料金の安い順で並べる一覧のカーソルに含めるキー
+	public static final Map<String, Class<?>> PRICE_ASC_KEYS = keys("price", Integer.class, "id", Integer.class);
+
+	//平均評価の高い順で並べる一覧のカーソルに含めるキー
+	public static final Map<String, Class<?>> RATING_DESC_KEYS = keys("averageScore", BigDecimal.class, "id", Integer.class);
+
+	private List<T> content;
+
+	//次のページを取得するためのカーソル（次のページがない場合はnull）
+	private String nextCursor;
+
+	//先頭のページかどうか
+	private boolean first;
+
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+
+	public boolean isEmpty() {
+		return content.isEmpty();
+	}
+
+	//リポジトリから取得したウィンドウを、最後の要素の位置をカーソルにして画面表示用に変換する
+	public static <T> CursorPage<T> of(Window<T> window, boolean first) {
+		String nextCursor = null;
+		if(window.hasNext() && !window.isEmpty()) {
+			nextCursor = encode((KeysetScrollPosition)window.positionAt(window.size() - 1));
+		}
+
+		return new CursorPage<>(window.getContent(), nextCursor, first);
+	}
+
+	//カーソルの文字列をスクロール位置に戻す（未指定・不正な値・並べ替え順が異なるカーソルは先頭のページとして扱う）
+	public static KeysetScrollPosition decode(String cursor, Map<String, Class<?>> keyTypes) {
+		if(cursor == null || cursor.isEmpty()) {
+			return ScrollPosition.keyset();
+		}
+
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			Map<String, Object> keys = new LinkedHashMap<>();
+
+			for(String pair : decoded.split("&")) {
+				String[] nameAndValue = pair.split("=", 2);
+				Class<?> type = keyTypes.get(nameAndValue[0]);
+				if(type == null || nameAndValue.length != 2) {
+					return ScrollPosition.keyset();
+				}
+				keys.put(nameAndValue[0], parseValue(nameAndValue[1], type));
+			}
+
+			if(!keys.keySet().equals(keyTypes.keySet())) {
+				return ScrollPosition.keyset();
+			}
+
+			return ScrollPosition.forward(keys);
+		} catch(IllegalArgumentException e) {
+			return ScrollPosition.keyset();
+		}
+	}
+
+	//スクロール位置のキーを「名前=値」の形で連結し、URLに載せられる文字列にする
+	public static String encode(KeysetScrollPosition position) {
+		StringBuilder builder = new StringBuilder();
+
+		for(Map.Entry<String, Object> entry : position.getKeys().entrySet()) {
+			if(builder.length() > 0) {
+				builder.append('&');
+			}
+			builder.append(entry.getKey()).append('=').append(formatValue(entry.getValue()));
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String formatValue(Object value) {
+		if(value instanceof Timestamp timestamp) {
+			return timestamp.toInstant().toString();
+		}
+		if(value instanceof BigDecimal decimal) {
+			return decimal.toPlainString();
+		}
+
+		return String.valueOf(value);
+	}
+
+	private static Object parseValue(String value, Class<?> type) {
+		try {
+			if(type == Timestamp.class) {
+				return Timestamp.from(Instant.parse(value));
+			}
+			if(type == Integer.class) {
+				return Integer.valueOf(value);
+			}
+			if(type == BigDecimal.class) {
+				return new BigDecimal(value);
+			}
+		} catch(RuntimeException e) {
+			throw new IllegalArgumentException("Invalid cursor value: " + value, e);
+		}
+
+		throw new IllegalArgumentException("Unsupported cursor key type: " + type);
+	}
+
+	private static Map<String, Class<?>> keys(String firstName, Class<?> firstType, String secondName, Class<?> secondType) {
+		Map<String, Class<?>> keys = new LinkedHashMap<>();
+		keys.put(firstName, firstType);
+		keys.put(secondName, secondType);
+		return Collections.unmodifiableMap(keys);
+	}
+}
@@ -0,0 +1,15 @@
+package com.example.samuraitravel.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//トップページに表示する民宿（キャッシュの単位）
+@Data
+@AllArgsConstructor
+public class HomePageContent {
+	private List<HouseListItem> newHouses;
+	
+	private List<HouseListItem> popularHouses;
+}
@@ -0,0 +1,23 @@
+package com.example.samuraitravel.dto;
+
+import com.example.samuraitravel.entity.House;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//民宿詳細ページの表示に必要な情報をまとめた読み取り用のモデル
+@Data
+@AllArgsConstructor
+public class HouseDetail {
+	private House house;
+	
+	private HouseReviewSummary reviewSummary;
+	
+	//最新のレビュー（続きはJSONで読み込む）
+	private CursorPage<ReviewListItem> reviewPage;
+	
+	//閲覧中のユーザーがこの民宿にレビュー・お気に入りを投稿済みか（未ログインの場合はfalse）
+	private boolean postedReview;
+	
+	private boolean postedFavorite;
+}
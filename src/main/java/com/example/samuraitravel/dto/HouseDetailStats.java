@@ -0,0 +1,34 @@
+package com.example.samuraitravel.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//民宿詳細ページのレビューの集計と、閲覧中のユーザーのレビュー・お気に入りの有無を1行で受け取るプロジェクション
+@Data
+@AllArgsConstructor
+public class HouseDetailStats {
+	private Integer reviewCount;
+	
+	private BigDecimal averageScore;
+	
+	private Integer score1Count;
+	
+	private Integer score2Count;
+	
+	private Integer score3Count;
+	
+	private Integer score4Count;
+	
+	private Integer score5Count;
+	
+	private boolean postedReview;
+	
+	private boolean postedFavorite;
+	
+	public HouseReviewSummary toReviewSummary() {
+		return new HouseReviewSummary(reviewCount, averageScore, List.of(score1Count, score2Count, score3Count, score4Count, score5Count));
+	}
+}
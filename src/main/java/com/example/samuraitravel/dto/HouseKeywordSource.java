@@ -0,0 +1,17 @@
+package com.example.samuraitravel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//キーワード索引の構築に必要な民宿の項目
+@Data
+@AllArgsConstructor
+public class HouseKeywordSource {
+	private Integer id;
+	
+	private String name;
+	
+	private String address;
+	
+	private String description;
+}
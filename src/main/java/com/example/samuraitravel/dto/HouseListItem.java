@@ -0,0 +1,35 @@
+package com.example.samuraitravel.dto;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//民宿一覧のカード表示に必要な項目だけを保持する軽量なプロジェクション
+@Data
+@AllArgsConstructor
+public class HouseListItem {
+	private Integer id;
+	
+	private String name;
+	
+	private String imageName;
+	
+	private String description;
+	
+	private Integer price;
+	
+	private Integer capacity;
+	
+	private String postalCode;
+	
+	private String address;
+	
+	private Timestamp createdAt;
+	
+	//レビューの集計から取得した平均評価とレビュー数
+	private BigDecimal averageScore;
+	
+	private Integer reviewCount;
+}
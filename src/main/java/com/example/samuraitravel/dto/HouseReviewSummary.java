@@ -0,0 +1,32 @@
+package com.example.samuraitravel.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//民宿詳細ページに表示するレビューの集計（平均評価・件数・評価ごとの件数）
+@Data
+@AllArgsConstructor
+public class HouseReviewSummary {
+	private Integer reviewCount;
+
+	private BigDecimal averageScore;
+
+	//評価ごとのレビュー数（0番目が評価1）
+	private List<Integer> scoreCounts;
+
+	public static HouseReviewSummary empty() {
+		return new HouseReviewSummary(0, BigDecimal.ZERO, List.of(0, 0, 0, 0, 0));
+	}
+
+	public int getScoreCount(int score) {
+		return scoreCounts.get(score - 1);
+	}
+
+	//指定された評価のレビューが全体に占める割合（%）
+	public int getScorePercentage(int score) {
+		return reviewCount == 0 ? 0 : getScoreCount(score) * 100 / reviewCount;
+	}
+}
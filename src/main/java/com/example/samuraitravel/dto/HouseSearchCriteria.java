@@ -0,0 +1,96 @@
+package com.example.samuraitravel.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HouseSearchCriteria {
+	//並べ替え順の指定値
+	public static final String ORDER_CREATED_AT_DESC = "createdAtDesc";
+	public static final String ORDER_PRICE_ASC = "priceAsc";
+	public static final String ORDER_RATING_DESC = "ratingDesc";
+	
+	//民宿名・住所に含まれるキーワード
+	private String keyword;
+	
+	//都道府県（住所の先頭に一致させる）
+	private String area;
+	
+	//1泊あたりの上限料金
+	private Integer price;
+	
+	//宿泊人数（定員がこの人数以上の民宿に絞り込む）
+	private Integer capacity;
+	
+	//並べ替え順
+	private String order;
+	
+	//宿泊期間（この期間に予約が入っていない民宿に絞り込む）
+	private LocalDate checkinDate;
+	
+	private LocalDate checkoutDate;
+	
+	//キーワード索引で絞り込んだ民宿ID（nullの場合はキーワードをLIKE検索する）
+	private List<Integer> houseIds;
+	
+	//宿泊期間に予約が入っているため除外する民宿ID（宿泊期間が指定されていてnullの場合は、予約テーブルを参照して除外する）
+	private Collection<Integer> excludedHouseIds;
+	
+	public HouseSearchCriteria(String keyword, String area, Integer price, Integer capacity, String order) {
+		this(keyword, area, price, capacity, order, null, null, null, null);
+	}
+	
+	public HouseSearchCriteria(String keyword, String area, Integer price, Integer capacity, String order, LocalDate checkinDate, LocalDate checkoutDate) {
+		this(keyword, area, price, capacity, order, checkinDate, checkoutDate, null, null);
+	}
+	
+	public boolean hasKeyword() {
+		return keyword != null && !keyword.isEmpty();
+	}
+	
+	public boolean hasArea() {
+		return area != null && !area.isEmpty();
+	}
+	
+	//チェックイン日がチェックアウト日より前の場合だけ、宿泊期間で絞り込む
+	public boolean hasStayPeriod() {
+		return checkinDate != null && checkoutDate != null && checkinDate.isBefore(checkoutDate);
+	}
+	
+	//メトリクスで応答時間を分けるための検索の種類（指定された絞り込み条件を「+」でつなぐ。条件がない場合はall）
+	public String toSearchMode() {
+		List<String> modes = new ArrayList<>();
+		if(hasKeyword()) {
+			modes.add("keyword");
+		}
+		if(hasArea()) {
+			modes.add("area");
+		}
+		if(price != null) {
+			modes.add("price");
+		}
+		if(capacity != null) {
+			modes.add("capacity");
+		}
+		if(hasStayPeriod()) {
+			modes.add("period");
+		}
+		return modes.isEmpty() ? "all" : String.join("+", modes);
+	}
+	
+	public boolean isOrderByPriceAsc() {
+		return ORDER_PRICE_ASC.equals(order);
+	}
+	
+	public boolean isOrderByRatingDesc() {
+		return ORDER_RATING_DESC.equals(order);
+	}
+}
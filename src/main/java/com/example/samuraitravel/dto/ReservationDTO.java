@@ -1,5 +1,6 @@
 package com.example.samuraitravel.dto;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
 import lombok.AllArgsConstructor;
@@ -7,7 +8,9 @@ import lombok.Data;
 
 @Data
 @AllArgsConstructor
-public class ReservationDTO {
+public class ReservationDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Integer houseId;
 
     private LocalDate checkinDate;
@@ -0,0 +1,37 @@
+package com.example.samuraitravel.dto;
+
+import java.sql.Timestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Data;
+
+//レビューのカード表示に必要な項目だけを保持する軽量なプロジェクション（民宿詳細・レビュー一覧・JSONで共通）
+@Data
+public class ReviewListItem {
+	private Integer id;
+	
+	//投稿者本人かどうかの判定にだけ使い、未ログインでも取得できるJSONには含めない
+	@JsonIgnore
+	private Integer userId;
+	
+	private String userName;
+	
+	private Integer score;
+	
+	private String comment;
+	
+	private Timestamp createdAt;
+	
+	//閲覧中のユーザーが投稿したレビューかどうか（編集・削除のリンクを表示する）
+	private boolean editable;
+	
+	public ReviewListItem(Integer id, Integer userId, String userName, Integer score, String comment, Timestamp createdAt) {
+		this.id = id;
+		this.userId = userId;
+		this.userName = userName;
+		this.score = score;
+		this.comment = comment;
+		this.createdAt = createdAt;
+	}
+}
@@ -3,7 +3,6 @@ package com.example.samuraitravel.entity;
 import java.sql.Timestamp;
 import java.util.List;
 
-import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -13,11 +12,16 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.Data;
 import lombok.ToString;
 
+//民宿はほぼすべての画面で読まれ、書き込みは管理画面からに限られるため2次キャッシュに保持する
 @Entity
 @Table(name = "houses")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data 
 @ToString(exclude = {"reservations", "reviews", "favorites"})
 public class House {
@@ -56,14 +60,14 @@ public class House {
 	@Column(name = "updated_at", insertable = false, updatable = false)
 	private Timestamp updatedAt;
 
-	// Houseエンティティが削除されると、関連するReservationエンティティも自動的に削除される
-	@OneToMany(mappedBy = "house", fetch = FetchType.EAGER, cascade = CascadeType.REMOVE)
+	// 関連するエンティティは一覧・詳細表示では使わないため遅延読み込みにする
+	// 民宿の削除時はHouseServiceで関連レコードを一括削除してから民宿を削除する
+	@OneToMany(mappedBy = "house", fetch = FetchType.LAZY)
 	private List<Reservation> reservations;
 	
-	// Houseエンティティが削除されると、関連するReviewエンティティも自動的に削除される
-	@OneToMany(mappedBy = "house", fetch = FetchType.EAGER, cascade = CascadeType.REMOVE)
+	@OneToMany(mappedBy = "house", fetch = FetchType.LAZY)
 	private List<Review> reviews;
 	
-	@OneToMany(mappedBy = "house", fetch = FetchType.EAGER, cascade = CascadeType.REMOVE)
+	@OneToMany(mappedBy = "house", fetch = FetchType.LAZY)
 	private List<Favorite> favorites;
 }
\ No newline at end of file
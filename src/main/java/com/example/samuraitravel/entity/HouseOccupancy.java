@@ -0,0 +1,35 @@
+package com.example.samuraitravel.entity;
+
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+
+//民宿ごと・年ごとの予約状況（1月1日を0ビット目として、予約が入っている泊をビットで表す）
+@Entity
+@Table(name = "house_occupancies")
+@IdClass(HouseOccupancyId.class)
+@Data
+public class HouseOccupancy {
+	@Id
+	@Column(name = "house_id")
+	private Integer houseId;
+	
+	@Id
+	@Column(name = "stay_year")
+	private Integer stayYear;
+	
+	@Column(name = "occupied_days")
+	private byte[] occupiedDays;
+	
+	@Column(name = "created_at", insertable = false, updatable = false)
+	private Timestamp createdAt;
+	
+	@Column(name = "updated_at", insertable = false, updatable = false)
+	private Timestamp updatedAt;
+}
@@ -0,0 +1,17 @@
+package com.example.samuraitravel.entity;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//民宿の予約状況の主キー（民宿IDと年）
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HouseOccupancyId implements Serializable {
+	private Integer houseId;
+	
+	private Integer stayYear;
+}
@@ -0,0 +1,29 @@
+package com.example.samuraitravel.entity;
+
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+
+//民宿ごとの予約数（人気ランキング用に予約の登録時に加算する）
+@Entity
+@Table(name = "house_popularities")
+@Data
+public class HousePopularity {
+	@Id
+	@Column(name = "house_id")
+	private Integer houseId;
+	
+	@Column(name = "reservation_count")
+	private Integer reservationCount;
+	
+	@Column(name = "created_at", insertable = false, updatable = false)
+	private Timestamp createdAt;
+	
+	@Column(name = "updated_at", insertable = false, updatable = false)
+	private Timestamp updatedAt;
+}
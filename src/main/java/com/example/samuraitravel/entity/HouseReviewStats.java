@@ -0,0 +1,53 @@
+package com.example.samuraitravel.entity;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+
+//民宿ごとのレビューの集計（レビューの投稿・編集・削除と同じトランザクションで更新する）
+@Entity
+@Table(name = "house_review_stats")
+@Data
+public class HouseReviewStats {
+	@Id
+	@Column(name = "house_id")
+	private Integer houseId;
+
+	@Column(name = "review_count")
+	private Integer reviewCount;
+
+	@Column(name = "score_sum")
+	private Integer scoreSum;
+
+	//評価（1〜5）ごとのレビュー数
+	@Column(name = "score1_count")
+	private Integer score1Count;
+
+	@Column(name = "score2_count")
+	private Integer score2Count;
+
+	@Column(name = "score3_count")
+	private Integer score3Count;
+
+	@Column(name = "score4_count")
+	private Integer score4Count;
+
+	@Column(name = "score5_count")
+	private Integer score5Count;
+
+	//評価の高い順の並べ替えにインデックスを使うため、平均評価も列として保持する
+	@Column(name = "average_score")
+	private BigDecimal averageScore;
+
+	@Column(name = "created_at", insertable = false, updatable = false)
+	private Timestamp createdAt;
+
+	@Column(name = "updated_at", insertable = false, updatable = false)
+	private Timestamp updatedAt;
+}
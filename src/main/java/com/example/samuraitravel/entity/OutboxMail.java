@@ -0,0 +1,65 @@
+package com.example.samuraitravel.entity;
+
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+
+//送信待ちのメール（送信のきっかけとなった処理と同じトランザクションで保存し、バックグラウンドでまとめて送信する）
+@Entity
+@Table(name = "mail_outbox")
+@Data
+public class OutboxMail {
+	//送信状況
+	public static final String STATUS_PENDING = "PENDING";
+	public static final String STATUS_SENDING = "SENDING";
+	public static final String STATUS_SENT = "SENT";
+	public static final String STATUS_FAILED = "FAILED";
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+	
+	@Column(name = "mail_from")
+	private String mailFrom;
+	
+	@Column(name = "mail_to")
+	private String mailTo;
+	
+	@Column(name = "subject")
+	private String subject;
+	
+	@Column(name = "body")
+	private String body;
+	
+	@Column(name = "status", insertable = false)
+	private String status;
+	
+	@Column(name = "attempts", insertable = false)
+	private Integer attempts;
+	
+	@Column(name = "next_attempt_at", insertable = false)
+	private Timestamp nextAttemptAt;
+	
+	@Column(name = "locked_at")
+	private Timestamp lockedAt;
+	
+	@Column(name = "last_error")
+	private String lastError;
+	
+	@Column(name = "sent_at")
+	private Timestamp sentAt;
+	
+	@Column(name = "created_at", insertable = false, updatable = false)
+	private Timestamp createdAt;
+	
+	@Column(name = "updated_at", insertable = false, updatable = false)
+	private Timestamp updatedAt;
+}
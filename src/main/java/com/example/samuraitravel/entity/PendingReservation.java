@@ -0,0 +1,42 @@
+package com.example.samuraitravel.entity;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+
+//StripeのCheckoutセッションを作成した時点の予約内容（決済完了のWebhookで予約を登録するまで保持する）
+@Entity
+@Table(name = "pending_reservations")
+@Data
+public class PendingReservation {
+	@Id
+	@Column(name = "session_id")
+	private String sessionId;
+	
+	@Column(name = "house_id")
+	private Integer houseId;
+	
+	@Column(name = "user_id")
+	private Integer userId;
+	
+	@Column(name = "checkin_date")
+	private LocalDate checkinDate;
+	
+	@Column(name = "checkout_date")
+	private LocalDate checkoutDate;
+	
+	@Column(name = "number_of_people")
+	private Integer numberOfPeople;
+	
+	@Column(name = "amount")
+	private Integer amount;
+	
+	@Column(name = "created_at", insertable = false, updatable = false)
+	private Timestamp createdAt;
+}
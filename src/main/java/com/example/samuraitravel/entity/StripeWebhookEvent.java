@@ -0,0 +1,54 @@
+package com.example.samuraitravel.entity;
+
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+
+//受信したStripeのWebhookイベント（イベントIDで重複を排除し、ワーカーが順次処理する）
+@Entity
+@Table(name = "stripe_webhook_events")
+@Data
+public class StripeWebhookEvent {
+	//処理状況
+	public static final String STATUS_PENDING = "PENDING";
+	public static final String STATUS_PROCESSING = "PROCESSING";
+	public static final String STATUS_DONE = "DONE";
+	public static final String STATUS_FAILED = "FAILED";
+	public static final String STATUS_CONFLICT = "CONFLICT"; //決済済みだが予約が他の予約と重複したため、返金して会員に知らせた
+	
+	@Id
+	@Column(name = "event_id")
+	private String eventId;
+	
+	@Column(name = "event_type")
+	private String eventType;
+	
+	@Column(name = "payload")
+	private String payload;
+	
+	@Column(name = "status")
+	private String status;
+	
+	@Column(name = "attempts")
+	private Integer attempts;
+	
+	@Column(name = "next_attempt_at")
+	private Timestamp nextAttemptAt;
+	
+	@Column(name = "locked_at")
+	private Timestamp lockedAt;
+	
+	@Column(name = "last_error")
+	private String lastError;
+	
+	@Column(name = "created_at", insertable = false, updatable = false)
+	private Timestamp createdAt;
+	
+	@Column(name = "updated_at", insertable = false, updatable = false)
+	private Timestamp updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.example.samuraitravel.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.example.samuraitravel.entity.House;
+
+import lombok.Getter;
+
+@Getter
+public class HouseChangedEvent extends ApplicationEvent {
+	private House house;
+	
+	//削除された場合はtrue（登録・更新の場合はfalse）
+	private boolean deleted;
+	
+	public HouseChangedEvent(Object source, House house, boolean deleted) {
+		super(source);
+		
+		this.house = house;
+		this.deleted = deleted;
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.samuraitravel.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.example.samuraitravel.entity.House;
+
+@Component
+public class HouseChangedEventPublisher {
+	private final ApplicationEventPublisher applicationEventPublisher;
+	
+	public HouseChangedEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		this.applicationEventPublisher = applicationEventPublisher;
+	}
+	
+	//民宿が登録・更新されたことを通知する
+	public void publishHouseSavedEvent(House house) {
+		applicationEventPublisher.publishEvent(new HouseChangedEvent(this, house, false));
+	}
+	
+	//民宿が削除されたことを通知する
+	public void publishHouseDeletedEvent(House house) {
+		applicationEventPublisher.publishEvent(new HouseChangedEvent(this, house, true));
+	}
+}
@@ -0,0 +1,18 @@
+package com.example.samuraitravel.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.example.samuraitravel.entity.Reservation;
+
+import lombok.Getter;
+
+@Getter
+public class ReservationCreatedEvent extends ApplicationEvent {
+	private Reservation reservation;
+	
+	public ReservationCreatedEvent(Object source, Reservation reservation) {
+		super(source);
+		
+		this.reservation = reservation;
+	}
+}
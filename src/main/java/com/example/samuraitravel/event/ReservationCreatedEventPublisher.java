@@ -0,0 +1,20 @@
+package com.example.samuraitravel.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.example.samuraitravel.entity.Reservation;
+
+@Component
+public class ReservationCreatedEventPublisher {
+	private final ApplicationEventPublisher applicationEventPublisher;
+	
+	public ReservationCreatedEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		this.applicationEventPublisher = applicationEventPublisher;
+	}
+	
+	//予約が登録されたことを通知する
+	public void publishReservationCreatedEvent(Reservation reservation) {
+		applicationEventPublisher.publishEvent(new ReservationCreatedEvent(this, reservation));
+	}
+}
@@ -3,23 +3,23 @@ package com.example.samuraitravel.event;
 import java.util.UUID;
 
 import org.springframework.context.event.EventListener;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
 import com.example.samuraitravel.entity.User;
+import com.example.samuraitravel.service.MailOutboxService;
 import com.example.samuraitravel.service.VerificationTokenService;
 
 @Component
 public class SignupEventListener {
     private final VerificationTokenService verificationTokenService;
-    private final JavaMailSender javaMailSender;
+    private final MailOutboxService mailOutboxService;
 
-    public SignupEventListener(VerificationTokenService verificationTokenService, JavaMailSender mailSender) {
+    public SignupEventListener(VerificationTokenService verificationTokenService, MailOutboxService mailOutboxService) {
         this.verificationTokenService = verificationTokenService;
-        this.javaMailSender = mailSender;
+        this.mailOutboxService = mailOutboxService;
     }
 
+    // 会員登録と同じトランザクション内で実行し、トークンと認証メールを会員と一緒に保存する（送信はバックグラウンドで行う）
     @EventListener
     private void onSignupEvent(SignupEvent signupEvent) {
     	 // SignupEventクラスから通知を受けたときに実行される処理
@@ -33,11 +33,6 @@ public class SignupEventListener {
         String confirmationUrl = signupEvent.getRequestUrl() + "/verify?token=" + token;
         String message = "以下のリンクをクリックして会員登録を完了してください。";
 
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setFrom(senderAddress);
-        mailMessage.setTo(recipientAddress);
-        mailMessage.setSubject(subject);
-        mailMessage.setText(message + "\n" + confirmationUrl);
-        javaMailSender.send(mailMessage);
+        mailOutboxService.enqueue(senderAddress, recipientAddress, subject, message + "\n" + confirmationUrl);
     }
 }
\ No newline at end of file
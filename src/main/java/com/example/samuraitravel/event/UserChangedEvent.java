@@ -0,0 +1,19 @@
+package com.example.samuraitravel.event;
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+@Getter
+public class UserChangedEvent extends ApplicationEvent {
+	//変更前と変更後のメールアドレス（ログイン情報のキャッシュのキー）
+	private List<String> emails;
+	
+	public UserChangedEvent(Object source, List<String> emails) {
+		super(source);
+		
+		this.emails = emails;
+	}
+}
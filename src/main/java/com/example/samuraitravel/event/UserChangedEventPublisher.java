@@ -0,0 +1,20 @@
+package com.example.samuraitravel.event;
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserChangedEventPublisher {
+	private final ApplicationEventPublisher applicationEventPublisher;
+	
+	public UserChangedEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		this.applicationEventPublisher = applicationEventPublisher;
+	}
+	
+	//会員情報が変更されたことを通知する（メールアドレスが変更された場合は変更前のものも渡す）
+	public void publishUserChangedEvent(String... emails) {
+		applicationEventPublisher.publishEvent(new UserChangedEvent(this, List.of(emails)));
+	}
+}
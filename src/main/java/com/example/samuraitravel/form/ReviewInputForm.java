@@ -1,5 +1,7 @@
 package com.example.samuraitravel.form;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import lombok.Data;
@@ -7,6 +9,8 @@ import lombok.Data;
 @Data
 public class ReviewInputForm {
 	@NotNull(message = "評価を選択してください。")
+	@Min(value = 1, message = "評価を選択してください。")
+	@Max(value = 5, message = "評価を選択してください。")
 	private Integer score;
 	
 	private String comment;
@@ -0,0 +1,146 @@
+package com.example.samuraitravel.repository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+//データベースへの同時アクセス数を、コネクションプールの大きさまでに制限するDataSource
+//仮想スレッドではプールの大きさを大きく超える数のリクエストが同時にコネクションを求めるため、
+//プールの手前で順番待ちさせて待ち件数と待ち時間を計測し、上限の時間を超えて待たせた場合は失敗させる
+public class DatabaseConcurrencyLimiter extends DelegatingDataSource implements AutoCloseable {
+	private final int permits;
+	private final Semaphore semaphore;
+	private final long acquireTimeoutNanos;
+	
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicInteger peakActive = new AtomicInteger();
+	private final LongAdder acquisitions = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	
+	public DatabaseConcurrencyLimiter(DataSource targetDataSource, int permits, Duration acquireTimeout) {
+		super(targetDataSource);
+		this.permits = permits;
+		//待っている順にコネクションを渡し、特定のリクエストだけが待たされ続けないようにする
+		this.semaphore = new Semaphore(permits, true);
+		this.acquireTimeoutNanos = acquireTimeout.toNanos();
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		try {
+			return limited(super.getConnection());
+		} catch(SQLException | RuntimeException e) {
+			semaphore.release();
+			throw e;
+		}
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		try {
+			return limited(super.getConnection(username, password));
+		} catch(SQLException | RuntimeException e) {
+			semaphore.release();
+			throw e;
+		}
+	}
+	
+	//アプリケーションの終了時に、元のコネクションプールを閉じる
+	@Override
+	public void close() throws Exception {
+		if(getTargetDataSource() instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+	}
+	
+	public int getPermits() {
+		return permits;
+	}
+	
+	//コネクションを使用中の数
+	public int getActive() {
+		return permits - semaphore.availablePermits();
+	}
+	
+	//コネクションを使用中の数の最大値
+	public int getPeakActive() {
+		return peakActive.get();
+	}
+	
+	//順番待ちしている数
+	public int getPending() {
+		return pending.get();
+	}
+	
+	public long getAcquisitions() {
+		return acquisitions.sum();
+	}
+	
+	public double getWaitSeconds() {
+		return waitNanos.sum() / 1_000_000_000.0;
+	}
+	
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+	
+	private void acquire() throws SQLException {
+		long startedAt = System.nanoTime();
+		pending.incrementAndGet();
+		try {
+			if(!semaphore.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				timeouts.increment();
+				throw new SQLTransientConnectionException("データベースへの同時アクセス数が上限（" + permits + "）に達しています。");
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("データベースへのアクセスを待っている間に割り込まれました。", e);
+		} finally {
+			pending.decrementAndGet();
+		}
+		
+		acquisitions.increment();
+		waitNanos.add(System.nanoTime() - startedAt);
+		peakActive.accumulateAndGet(getActive(), Math::max);
+	}
+	
+	//コネクションをプールに返した後で、1回だけ同時アクセス数の枠を返す
+	private Connection limited(Connection connection) {
+		AtomicBoolean released = new AtomicBoolean(false);
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+			switch(method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					break;
+			}
+			
+			try {
+				return method.invoke(connection, args);
+			} catch(InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				if(method.getName().equals("close") && released.compareAndSet(false, true)) {
+					semaphore.release();
+				}
+			}
+		});
+	}
+}
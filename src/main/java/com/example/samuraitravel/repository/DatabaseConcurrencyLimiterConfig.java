@@ -0,0 +1,58 @@
+package com.example.samuraitravel.repository;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//データベースへの同時アクセス数の制限を、DataSourceに組み込む
+//仮想スレッドでリクエストを処理する場合（spring.threads.virtual.enabled=true）は既定で有効になる
+@Configuration
+@ConditionalOnExpression("${samuraitravel.database.limiter.enabled:${spring.threads.virtual.enabled:false}}")
+public class DatabaseConcurrencyLimiterConfig {
+	@Bean
+	public static BeanPostProcessor databaseConcurrencyLimiterPostProcessor(Environment environment) {
+		//同時アクセス数の上限は、指定がなければコネクションプールの大きさ（HikariCPの既定値は10）にする
+		int permits = environment.getProperty("samuraitravel.database.limiter.permits", Integer.class,
+				environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+		//待ち時間の上限は、HikariCPのコネクション取得の待ち時間の既定値に合わせる
+		Duration acquireTimeout = environment.getProperty("samuraitravel.database.limiter.acquire-timeout", Duration.class, Duration.ofSeconds(30));
+		
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if(bean instanceof DataSource dataSource && !(bean instanceof DatabaseConcurrencyLimiter)) {
+					return new DatabaseConcurrencyLimiter(dataSource, permits, acquireTimeout);
+				}
+				return bean;
+			}
+		};
+	}
+	
+	//使用中・順番待ちの数、待ち時間、待ち時間の上限を超えた回数をメトリクスとして公開する
+	@Bean
+	public MeterBinder databaseConcurrencyLimiterMetrics(DataSource dataSource) {
+		return meterRegistry -> {
+			if(!(dataSource instanceof DatabaseConcurrencyLimiter limiter)) {
+				return;
+			}
+			
+			Gauge.builder("db.limiter.permits", limiter, DatabaseConcurrencyLimiter::getPermits).register(meterRegistry);
+			Gauge.builder("db.limiter.active", limiter, DatabaseConcurrencyLimiter::getActive).register(meterRegistry);
+			Gauge.builder("db.limiter.pending", limiter, DatabaseConcurrencyLimiter::getPending).register(meterRegistry);
+			FunctionTimer.builder("db.limiter.acquire", limiter, DatabaseConcurrencyLimiter::getAcquisitions, DatabaseConcurrencyLimiter::getWaitSeconds, TimeUnit.SECONDS).register(meterRegistry);
+			FunctionCounter.builder("db.limiter.timeouts", limiter, DatabaseConcurrencyLimiter::getTimeouts).register(meterRegistry);
+		};
+	}
+}
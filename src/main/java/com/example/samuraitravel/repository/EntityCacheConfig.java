@@ -0,0 +1,117 @@
+package com.example.samuraitravel.repository;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.entity.Role;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//ほぼ毎回読まれて滅多に変わらない民宿・ロールと、トップページ・民宿一覧のクエリ結果を、アプリケーション内の2次キャッシュに保持する
+//キャッシュは件数の上限と有効期限つきで、民宿の書き込み時はHouseCacheEvictorが明示的に削除する
+//書き込みのネイティブクエリにはHINT_NATIVE_SPACESで書き込むテーブルを指定する（指定しないとすべてのリージョンが削除される）
+@Configuration
+public class EntityCacheConfig {
+	//トップページと民宿一覧のクエリ結果のリージョン
+	public static final String HOUSE_LIST_QUERY_REGION = "house-list-queries";
+	
+	//ロール名での検索結果のリージョン
+	public static final String ROLE_QUERY_REGION = "role-queries";
+	
+	//件数の上限と有効期限つきで保持するリージョン（エンティティのリージョン名はクラス名）とクエリ結果のリージョン
+	private static final List<String> CACHED_REGIONS = List.of(House.class.getName(), Role.class.getName(), HOUSE_LIST_QUERY_REGION, ROLE_QUERY_REGION);
+	
+	//キャッシュ可能なクエリのうちリージョンを指定しないもの（Hibernateが必ず作成する）
+	private static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+	
+	//テーブルの最終更新時刻のリージョン（クエリ結果が古いかの判定に使うため、期限切れで消えないようにする）
+	private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+	
+	@Bean(destroyMethod = "close")
+	public CacheManager entityCacheManager(@Value("${samuraitravel.entity-cache.max-entries:1000}") long maxEntries,
+										   @Value("${samuraitravel.entity-cache.ttl:PT10M}") Duration ttl) {
+		//アプリケーションコンテキストごとに別のキャッシュマネージャーを使う（テストで複数のコンテキストが同時に動くため）
+		CachingProvider cachingProvider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+		CacheManager cacheManager = cachingProvider.getCacheManager(URI.create("samuraitravel:entity-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+		
+		for(String region : CACHED_REGIONS) {
+			cacheManager.createCache(region, regionConfiguration(maxEntries, ttl));
+		}
+		cacheManager.createCache(DEFAULT_QUERY_REGION, regionConfiguration(maxEntries, ttl));
+		cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, regionConfiguration(maxEntries, null));
+		
+		return cacheManager;
+	}
+	
+	//Hibernateの2次キャッシュとクエリキャッシュを、上で作成したキャッシュで有効にする
+	@Bean
+	public HibernatePropertiesCustomizer entityCacheHibernatePropertiesCustomizer(CacheManager entityCacheManager) {
+		return properties -> {
+			properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+			properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+			properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+			properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+			//設定していないリージョンを暗黙に作らず、起動時に気付けるようにする
+			properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+			//リージョンごとのヒット数を集計するため統計を有効にする（セッションごとのログは出さない）
+			properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+			properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+		};
+	}
+	
+	//リージョンごとのヒット・ミス・格納の件数をメトリクスとして公開する
+	@Bean
+	public MeterBinder entityCacheMetrics(EntityManagerFactory entityManagerFactory) {
+		return meterRegistry -> {
+			Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+			
+			for(String region : CACHED_REGIONS) {
+				FunctionCounter.builder("entity.cache.requests", statistics, s -> regionStatistics(s, region).getHitCount())
+						.tag("region", region).tag("result", "hit").register(meterRegistry);
+				FunctionCounter.builder("entity.cache.requests", statistics, s -> regionStatistics(s, region).getMissCount())
+						.tag("region", region).tag("result", "miss").register(meterRegistry);
+				FunctionCounter.builder("entity.cache.puts", statistics, s -> regionStatistics(s, region).getPutCount())
+						.tag("region", region).register(meterRegistry);
+			}
+		};
+	}
+	
+	private static CacheRegionStatistics regionStatistics(Statistics statistics, String region) {
+		return statistics.getCacheRegionStatistics(region);
+	}
+	
+	//ttlがnullの場合は有効期限なし（値はコピーせずそのまま保持する）
+	private static CaffeineConfiguration<Object, Object> regionConfiguration(long maxEntries, Duration ttl) {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setMaximumSize(OptionalLong.of(maxEntries));
+		if(ttl != null) {
+			configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+		}
+		configuration.setStoreByValue(false);
+		
+		return configuration;
+	}
+}
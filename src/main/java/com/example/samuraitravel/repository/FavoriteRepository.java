@@ -2,19 +2,30 @@ package com.example.samuraitravel.repository;
 
 import java.util.List;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.samuraitravel.entity.Favorite;
 import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.User;
 
 public interface FavoriteRepository extends JpaRepository<Favorite, Integer> {
-	//特定のユーザーのお気に入りを取得
-	public Page<Favorite> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+	//特定のユーザーのお気に入りを取得（カード表示に使う民宿を同じクエリで取得し、作成日時とidをキーに前のページの続きから取得する）
+	@EntityGraph(attributePaths = "house")
+	public Window<Favorite> findByUserOrderByCreatedAtDescIdDesc(User user, ScrollPosition position, Limit limit);
 	
 	public List<Favorite> findByHouseAndUser(House house, User user);
 
 	boolean existsByUserIdAndHouseId(Integer userId, Integer houseId);
+	
+	//民宿の削除時に、関連するお気に入りをエンティティを読み込まずに一括削除する
+	@Modifying
+	@Query("DELETE FROM Favorite f WHERE f.house = :house")
+	public void deleteByHouse(@Param("house") House house);
 }
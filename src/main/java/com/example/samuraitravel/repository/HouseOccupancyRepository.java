@@ -0,0 +1,35 @@
+package com.example.samuraitravel.repository;
+
+import static org.hibernate.jpa.HibernateHints.*;
+
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.example.samuraitravel.entity.HouseOccupancy;
+import com.example.samuraitravel.entity.HouseOccupancyId;
+
+public interface HouseOccupancyRepository extends JpaRepository<HouseOccupancy, HouseOccupancyId> {
+	//指定された民宿・年の予約状況のレコードがなければ、予約のない状態で作成する
+	@Modifying
+	@QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "house_occupancies"))
+	@Query(value = "INSERT IGNORE INTO house_occupancies (house_id, stay_year, occupied_days) VALUES (:houseId, :year, X'')", nativeQuery = true)
+	public void insertIfAbsent(@Param("houseId") Integer houseId, @Param("year") Integer year);
+	
+	//予約の重複を防ぐため、指定された民宿・年の予約状況を行ロックして取得する
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT o FROM HouseOccupancy o WHERE o.houseId = :houseId AND o.stayYear = :year")
+	public Optional<HouseOccupancy> findForUpdate(@Param("houseId") Integer houseId, @Param("year") Integer year);
+	
+	@Modifying
+	@Query("DELETE FROM HouseOccupancy o WHERE o.houseId = :houseId")
+	public void deleteByHouseId(@Param("houseId") Integer houseId);
+}
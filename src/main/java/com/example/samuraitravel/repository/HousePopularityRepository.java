@@ -0,0 +1,40 @@
+package com.example.samuraitravel.repository;
+
+import static org.hibernate.jpa.HibernateHints.*;
+
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.example.samuraitravel.entity.HousePopularity;
+
+public interface HousePopularityRepository extends JpaRepository<HousePopularity, Integer> {
+	//指定された民宿の予約数を1加算する（レコードがなければ作成する）
+	@Modifying
+	@QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "house_popularities"))
+	@Query(value = "INSERT INTO house_popularities (house_id, reservation_count) VALUES (:houseId, 1) "
+			+ "ON DUPLICATE KEY UPDATE reservation_count = reservation_count + 1", nativeQuery = true)
+	public void incrementReservationCount(@Param("houseId") Integer houseId);
+	
+	//予約数のレコードがない民宿に、予約数0のレコードを作成する
+	@Modifying
+	@QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "house_popularities"))
+	@Query(value = "INSERT INTO house_popularities (house_id, reservation_count) "
+			+ "SELECT h.id, 0 FROM houses h LEFT JOIN house_popularities p ON p.house_id = h.id WHERE p.house_id IS NULL", nativeQuery = true)
+	public void insertMissingHouses();
+	
+	//予約テーブルを集計し直して予約数を実際の件数に合わせる
+	@Modifying
+	@QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "house_popularities"))
+	@Query(value = "UPDATE house_popularities p SET reservation_count = "
+			+ "(SELECT COUNT(*) FROM reservations r WHERE r.house_id = p.house_id)", nativeQuery = true)
+	public void recountReservations();
+	
+	@Modifying
+	@Query("DELETE FROM HousePopularity p WHERE p.houseId = :houseId")
+	public void deleteByHouseId(@Param("houseId") Integer houseId);
+}
@@ -1,27 +1,51 @@
 package com.example.samuraitravel.repository;
 
+import static org.hibernate.jpa.HibernateHints.*;
+
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.example.samuraitravel.dto.HouseKeywordSource;
+import com.example.samuraitravel.dto.HouseListItem;
 import com.example.samuraitravel.entity.House;
 
-public interface HouseRepository extends JpaRepository<House, Integer>{
+public interface HouseRepository extends JpaRepository<House, Integer>, HouseSearchRepository {
 	public Page<House> findByNameLike(String keyword, Pageable pageable);
 	public House findFirstByOrderByIdDesc();
-	public Page<House> findByNameLikeOrAddressLikeOrderByCreatedAtDesc(String nameKeyword, String addressKeyword, Pageable pageable);
-	public Page<House> findByNameLikeOrAddressLikeOrderByPriceAsc(String nameKeyword, String addressKeyword, Pageable pageable);
-	public Page<House> findByAddressLikeOrderByCreatedAtDesc(String area, Pageable pageable);
-	public Page<House> findByAddressLikeOrderByPriceAsc(String area, Pageable pageable);
-	public Page<House> findByPriceLessThanEqualOrderByCreatedAtDesc(Integer price, Pageable pageable);
-	public Page<House> findByPriceLessThanEqualOrderByPriceAsc(Integer price, Pageable pageable);
-	public Page<House> findAllByOrderByCreatedAtDesc(Pageable pageable);
-	public Page<House> findAllByOrderByPriceAsc(Pageable pageable);
-	public List<House> findTop8ByOrderByCreatedAtDesc();
 	
-	@Query("SELECT h FROM House h LEFT JOIN h.reservations r GROUP BY h.id ORDER BY COUNT(r) DESC")
-	List<House> findAllByOrderByReservationCountDesc(Pageable pageable);
-}
\ No newline at end of file
+	//作成日時が新しい順に民宿を一覧表示用のプロジェクションで取得する（平均評価はレビューの集計を結合して取得する）
+	@QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = EntityCacheConfig.HOUSE_LIST_QUERY_REGION) })
+	@Query("SELECT new com.example.samuraitravel.dto.HouseListItem(h.id, h.name, h.imageName, h.description, h.price, h.capacity, h.postalCode, h.address, h.createdAt, "
+			+ "COALESCE(s.averageScore, 0), COALESCE(s.reviewCount, 0)) "
+			+ "FROM House h LEFT JOIN HouseReviewStats s ON s.houseId = h.id ORDER BY h.createdAt DESC, h.id DESC")
+	public List<HouseListItem> findListItemsByOrderByCreatedAtDesc(Pageable pageable);
+	
+	//指定されたIDの民宿を一覧表示用のプロジェクションで取得する
+	@QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = EntityCacheConfig.HOUSE_LIST_QUERY_REGION) })
+	@Query("SELECT new com.example.samuraitravel.dto.HouseListItem(h.id, h.name, h.imageName, h.description, h.price, h.capacity, h.postalCode, h.address, h.createdAt, "
+			+ "COALESCE(s.averageScore, 0), COALESCE(s.reviewCount, 0)) "
+			+ "FROM House h LEFT JOIN HouseReviewStats s ON s.houseId = h.id WHERE h.id IN :ids")
+	public List<HouseListItem> findListItemsByIdIn(@Param("ids") Collection<Integer> ids);
+	
+	//キーワード索引の構築に必要な項目だけをID順に取得する
+	@Query("SELECT new com.example.samuraitravel.dto.HouseKeywordSource(h.id, h.name, h.address, h.description) FROM House h ORDER BY h.id")
+	public List<HouseKeywordSource> findAllKeywordSources();
+	
+	//キーワード索引の差分更新のため、指定された日時以降に登録・更新された民宿の項目をID順に取得する
+	@Query("SELECT new com.example.samuraitravel.dto.HouseKeywordSource(h.id, h.name, h.address, h.description) FROM House h WHERE h.updatedAt >= :updatedAt ORDER BY h.id")
+	public List<HouseKeywordSource> findKeywordSourcesUpdatedSince(@Param("updatedAt") Timestamp updatedAt);
+	
+	//民宿の最終更新日時（キーワード索引の差分更新の起点にする）
+	@Query("SELECT MAX(h.updatedAt) FROM House h")
+	public Timestamp findMaxUpdatedAt();
+}
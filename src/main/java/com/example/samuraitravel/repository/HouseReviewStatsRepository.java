@@ -0,0 +1,44 @@
+package com.example.samuraitravel.repository;
+
+import static org.hibernate.jpa.HibernateHints.*;
+
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.example.samuraitravel.dto.HouseDetailStats;
+import com.example.samuraitravel.entity.HouseReviewStats;
+
+public interface HouseReviewStatsRepository extends JpaRepository<HouseReviewStats, Integer> {
+	//指定された民宿のレビューの集計のレコードがなければ、レビュー0件の状態で作成する
+	@Modifying
+	@QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "house_review_stats"))
+	@Query(value = "INSERT IGNORE INTO house_review_stats (house_id) VALUES (:houseId)", nativeQuery = true)
+	public void insertIfAbsent(@Param("houseId") Integer houseId);
+
+	//同じ民宿へのレビューの同時投稿で集計がずれないよう、行ロックして取得する
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT s FROM HouseReviewStats s WHERE s.houseId = :houseId")
+	public Optional<HouseReviewStats> findForUpdate(@Param("houseId") Integer houseId);
+
+	//民宿詳細ページ用に、レビューの集計と指定されたユーザーのレビュー・お気に入りの有無を1回のクエリで取得する
+	//（有無の判定はreviews(house_id, user_id)とfavorites(user_id, house_id)の一意インデックスで行う。userIdがnullの場合はどちらもfalse）
+	@Query("SELECT new com.example.samuraitravel.dto.HouseDetailStats(s.reviewCount, s.averageScore, "
+			+ "s.score1Count, s.score2Count, s.score3Count, s.score4Count, s.score5Count, "
+			+ "CASE WHEN EXISTS (SELECT 1 FROM Review r WHERE r.house.id = s.houseId AND r.user.id = :userId) THEN true ELSE false END, "
+			+ "CASE WHEN EXISTS (SELECT 1 FROM Favorite f WHERE f.user.id = :userId AND f.house.id = s.houseId) THEN true ELSE false END) "
+			+ "FROM HouseReviewStats s WHERE s.houseId = :houseId")
+	public Optional<HouseDetailStats> findDetailStats(@Param("houseId") Integer houseId, @Param("userId") Integer userId);
+	
+	@Modifying
+	@Query("DELETE FROM HouseReviewStats s WHERE s.houseId = :houseId")
+	public void deleteByHouseId(@Param("houseId") Integer houseId);
+}
@@ -0,0 +1,12 @@
+package com.example.samuraitravel.repository;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.dto.HouseSearchCriteria;
+
+public interface HouseSearchRepository {
+	//検索条件を組み合わせた1本のクエリで民宿を検索し、一覧表示用のプロジェクションを指定された位置の続きから取得する
+	public Window<HouseListItem> scroll(HouseSearchCriteria criteria, KeysetScrollPosition position, int limit);
+}
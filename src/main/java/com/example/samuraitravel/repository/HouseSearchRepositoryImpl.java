@@ -0,0 +1,175 @@
+package com.example.samuraitravel.repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.dto.HouseSearchCriteria;
+import com.example.samuraitravel.service.HouseKeywordIndex;
+
+public class HouseSearchRepositoryImpl implements HouseSearchRepository {
+	//一覧表示に必要な列だけを取得する（件数は数えない）
+	private static final String SELECT_CLAUSE = "SELECT h.id AS id, h.name AS name, h.imageName AS imageName, h.description AS description,"
+			+ " h.price AS price, h.capacity AS capacity, h.postalCode AS postalCode, h.address AS address, h.createdAt AS createdAt,"
+			+ " COALESCE(s.averageScore, 0) AS averageScore, COALESCE(s.reviewCount, 0) AS reviewCount";
+
+	//平均評価はレビューの集計を結合して取得する
+	private static final String FROM_CLAUSE = " FROM House h LEFT JOIN HouseReviewStats s ON s.houseId = h.id";
+
+	//評価の高い順の場合は、集計の平均評価のインデックスの順に読めるよう集計側から結合する（集計は民宿の登録時に作成される）
+	private static final String RATING_FROM_CLAUSE = " FROM HouseReviewStats s JOIN House h ON h.id = s.houseId";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Window<HouseListItem> scroll(HouseSearchCriteria criteria, KeysetScrollPosition position, int limit) {
+		//キーワード索引で該当する民宿が見つからなかった場合はクエリを発行しない
+		if(criteria.getHouseIds() != null && criteria.getHouseIds().isEmpty()) {
+			return Window.from(List.of(), index -> position);
+		}
+		
+		Map<String, Object> parameters = new HashMap<>();
+		String whereClause = buildWhereClause(criteria, position, parameters);
+
+		String fromClause = criteria.isOrderByRatingDesc() ? RATING_FROM_CLAUSE : FROM_CLAUSE;
+		TypedQuery<Tuple> query = entityManager.createQuery(SELECT_CLAUSE + fromClause + whereClause + buildOrderByClause(criteria), Tuple.class);
+		parameters.forEach(query::setParameter);
+		//次のページの有無を件数なしで判定するため、1件多く取得する
+		query.setMaxResults(limit + 1);
+		//同じ条件・同じ位置の一覧は、民宿や集計が書き込まれるまでクエリキャッシュから返す
+		query.setHint(HibernateHints.HINT_CACHEABLE, true);
+		query.setHint(HibernateHints.HINT_CACHE_REGION, EntityCacheConfig.HOUSE_LIST_QUERY_REGION);
+
+		List<Tuple> tuples = query.getResultList();
+		boolean hasNext = tuples.size() > limit;
+
+		List<HouseListItem> content = new ArrayList<>(Math.min(tuples.size(), limit));
+		for(Tuple tuple : tuples.subList(0, Math.min(tuples.size(), limit))) {
+			content.add(new HouseListItem(
+					tuple.get("id", Integer.class),
+					tuple.get("name", String.class),
+					tuple.get("imageName", String.class),
+					tuple.get("description", String.class),
+					tuple.get("price", Integer.class),
+					tuple.get("capacity", Integer.class),
+					tuple.get("postalCode", String.class),
+					tuple.get("address", String.class),
+					tuple.get("createdAt", Timestamp.class),
+					tuple.get("averageScore", BigDecimal.class),
+					tuple.get("reviewCount", Integer.class)));
+		}
+
+		return Window.from(content, index -> positionOf(criteria, content.get(index)), hasNext);
+	}
+
+	//指定された条件だけをWHERE句に組み立てる
+	private String buildWhereClause(HouseSearchCriteria criteria, KeysetScrollPosition position, Map<String, Object> parameters) {
+		List<String> predicates = new ArrayList<>();
+
+		if(criteria.getHouseIds() != null) {
+			predicates.add("h.id IN :houseIds");
+			parameters.put("houseIds", criteria.getHouseIds());
+		} else if(criteria.hasKeyword()) {
+			//キーワード索引と同じく正規化して空白で区切り、すべての語をいずれかの項目に含む民宿に絞り込む
+			List<String> terms = HouseKeywordIndex.splitTerms(criteria.getKeyword());
+			for(int i = 0; i < terms.size(); i++) {
+				String parameter = "keyword" + i;
+				predicates.add("(LOWER(h.name) LIKE :" + parameter + " ESCAPE '!' OR LOWER(h.address) LIKE :" + parameter + " ESCAPE '!' OR LOWER(h.description) LIKE :" + parameter + " ESCAPE '!')");
+				parameters.put(parameter, "%" + escapeLike(terms.get(i)) + "%");
+			}
+		}
+
+		//キーワード索引の民宿IDを使う場合は、予約が入っている民宿をすでに取り除いている
+		if(criteria.getExcludedHouseIds() != null) {
+			if(!criteria.getExcludedHouseIds().isEmpty()) {
+				predicates.add("h.id NOT IN :excludedHouseIds");
+				parameters.put("excludedHouseIds", criteria.getExcludedHouseIds());
+			}
+		} else if(criteria.hasStayPeriod() && criteria.getHouseIds() == null) {
+			predicates.add("NOT EXISTS (SELECT r.id FROM Reservation r WHERE r.house = h AND r.checkinDate < :checkoutDate AND r.checkoutDate > :checkinDate)");
+			parameters.put("checkinDate", criteria.getCheckinDate());
+			parameters.put("checkoutDate", criteria.getCheckoutDate());
+		}
+
+		//住所は都道府県名から始まるため、前方一致にしてインデックスを利用できるようにする
+		if(criteria.hasArea()) {
+			predicates.add("h.address LIKE :area ESCAPE '!'");
+			parameters.put("area", escapeLike(criteria.getArea()) + "%");
+		}
+
+		if(criteria.getPrice() != null) {
+			predicates.add("h.price <= :price");
+			parameters.put("price", criteria.getPrice());
+		}
+
+		if(criteria.getCapacity() != null) {
+			predicates.add("h.capacity >= :capacity");
+			parameters.put("capacity", criteria.getCapacity());
+		}
+
+		//前のページの最後の民宿より後ろにあるものだけを対象にする（OFFSETで読み飛ばさない）
+		if(!position.isInitial()) {
+			if(criteria.isOrderByPriceAsc()) {
+				predicates.add("(h.price > :lastPrice OR (h.price = :lastPrice AND h.id > :lastId))");
+				parameters.put("lastPrice", position.getKeys().get("price"));
+			} else if(criteria.isOrderByRatingDesc()) {
+				predicates.add("(s.averageScore < :lastAverageScore OR (s.averageScore = :lastAverageScore AND s.houseId < :lastId))");
+				parameters.put("lastAverageScore", position.getKeys().get("averageScore"));
+			} else {
+				predicates.add("(h.createdAt < :lastCreatedAt OR (h.createdAt = :lastCreatedAt AND h.id < :lastId))");
+				parameters.put("lastCreatedAt", position.getKeys().get("createdAt"));
+			}
+			parameters.put("lastId", position.getKeys().get("id"));
+		}
+
+		return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+	}
+
+	//民宿の位置を、並べ替えに使っている列の値で表す
+	private KeysetScrollPosition positionOf(HouseSearchCriteria criteria, HouseListItem house) {
+		Map<String, Object> keys = new LinkedHashMap<>();
+		if(criteria.isOrderByPriceAsc()) {
+			keys.put("price", house.getPrice());
+		} else if(criteria.isOrderByRatingDesc()) {
+			keys.put("averageScore", house.getAverageScore());
+		} else {
+			keys.put("createdAt", house.getCreatedAt());
+		}
+		keys.put("id", house.getId());
+
+		return ScrollPosition.forward(keys);
+	}
+
+	//ページ境界で順序が揺れないよう、idを第2ソートキーにする
+	private String buildOrderByClause(HouseSearchCriteria criteria) {
+		if(criteria.isOrderByPriceAsc()) {
+			return " ORDER BY h.price ASC, h.id ASC";
+		}
+		if(criteria.isOrderByRatingDesc()) {
+			return " ORDER BY s.averageScore DESC, s.houseId DESC";
+		}
+
+		return " ORDER BY h.createdAt DESC, h.id DESC";
+	}
+
+	//LIKE検索のワイルドカード文字をエスケープする（MySQLでバックスラッシュが特殊扱いされるため「!」をエスケープ文字にする）
+	private String escapeLike(String value) {
+		return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+	}
+}
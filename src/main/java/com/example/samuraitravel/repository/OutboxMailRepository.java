@@ -0,0 +1,31 @@
+package com.example.samuraitravel.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.samuraitravel.entity.OutboxMail;
+
+public interface OutboxMailRepository extends JpaRepository<OutboxMail, Long> {
+	//送信予定時刻を過ぎた送信待ちのメールのIDを古い順に取得する
+	@Query("SELECT m.id FROM OutboxMail m WHERE m.status = 'PENDING' AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+	public List<Long> findDueIds(@Param("now") Timestamp now, Pageable pageable);
+	
+	//送信中のまま止まっているメールのIDを取得する（ORで1本にまとめるとインデックスが使われないため分ける）
+	@Query("SELECT m.id FROM OutboxMail m WHERE m.status = 'SENDING' AND m.lockedAt < :staleBefore ORDER BY m.lockedAt")
+	public List<Long> findStaleIds(@Param("staleBefore") Timestamp staleBefore, Pageable pageable);
+	
+	//メールを送信中にする（他のサーバーがすでに送信中にしている場合は0を返す）
+	@Modifying
+	@Query("UPDATE OutboxMail m SET m.status = 'SENDING', m.lockedAt = :now, m.attempts = m.attempts + 1 "
+			+ "WHERE m.id = :id "
+			+ "AND ((m.status = 'PENDING' AND m.nextAttemptAt <= :now) OR (m.status = 'SENDING' AND m.lockedAt < :staleBefore))")
+	public int claim(@Param("id") Long id, @Param("now") Timestamp now, @Param("staleBefore") Timestamp staleBefore);
+	
+	public long countByStatus(String status);
+}
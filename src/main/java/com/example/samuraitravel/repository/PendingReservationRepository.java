@@ -0,0 +1,17 @@
+package com.example.samuraitravel.repository;
+
+import java.sql.Timestamp;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.samuraitravel.entity.PendingReservation;
+
+public interface PendingReservationRepository extends JpaRepository<PendingReservation, String> {
+	//決済されないまま期限が過ぎた予約内容を削除する
+	@Modifying
+	@Query("DELETE FROM PendingReservation p WHERE p.createdAt < :createdBefore")
+	public int deleteByCreatedAtBefore(@Param("createdBefore") Timestamp createdBefore);
+}
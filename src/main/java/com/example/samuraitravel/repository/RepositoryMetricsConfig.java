@@ -0,0 +1,102 @@
+package com.example.samuraitravel.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+//リポジトリのメソッドごとの実行時間（Spring Bootが記録するspring.data.repository.invocations）に加えて、
+//取得した件数をspring.data.repository.rowsとして記録する
+@Configuration
+public class RepositoryMetricsConfig {
+	private static final String ROWS_METRIC = "spring.data.repository.rows";
+
+	//パーセンタイルをPrometheus側で集計できるよう、ヒストグラムで公開する実行時間・待ち時間
+	//（リポジトリのメソッドの実行時間と、コネクションプールからコネクションを取得するまでの待ち時間）
+	private static final Collection<String> HISTOGRAM_METRICS = List.of("spring.data.repository.invocations", "hikaricp.connections.acquire");
+
+	//リポジトリを作成する前に、戻り値の件数を記録する処理を組み込む
+	@Bean
+	public static BeanPostProcessor repositoryRowsMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				if(bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+					repositoryFactoryBean.addRepositoryFactoryCustomizer(repositoryFactory -> repositoryFactory.addRepositoryProxyPostProcessor(
+							(proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(rowsInterceptor(repositoryInformation.getRepositoryInterface(), meterRegistry))));
+				}
+				return bean;
+			}
+		};
+	}
+
+	@Bean
+	public MeterFilter repositoryHistogramMeterFilter() {
+		return new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				if(!HISTOGRAM_METRICS.contains(id.getName())) {
+					return config;
+				}
+				return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+			}
+		};
+	}
+
+	//件数を返さないメソッド（更新・件数の集計・存在確認など）と、読み終えるまで件数の分からないStreamは記録しない
+	private static MethodInterceptor rowsInterceptor(Class<?> repositoryInterface, ObjectProvider<MeterRegistry> meterRegistry) {
+		return invocation -> {
+			Object result = invocation.proceed();
+
+			Class<?> returnType = invocation.getMethod().getReturnType();
+			if(returnType == void.class || returnType.isPrimitive() || Number.class.isAssignableFrom(returnType) || Boolean.class == returnType
+					|| BaseStream.class.isAssignableFrom(returnType)) {
+				return result;
+			}
+
+			DistributionSummary.builder(ROWS_METRIC)
+					.description("リポジトリのメソッドが取得した件数")
+					.baseUnit("rows")
+					.tag("repository", repositoryInterface.getSimpleName())
+					.tag("method", invocation.getMethod().getName())
+					.register(meterRegistry.getObject())
+					.record(countRows(result));
+
+			return result;
+		};
+	}
+
+	private static int countRows(Object result) {
+		if(result == null) {
+			return 0;
+		}
+		if(result instanceof Collection<?> collection) {
+			return collection.size();
+		}
+		if(result instanceof Slice<?> slice) {
+			return slice.getNumberOfElements();
+		}
+		if(result instanceof Window<?> window) {
+			return window.size();
+		}
+		if(result instanceof Optional<?> optional) {
+			return optional.isPresent() ? 1 : 0;
+		}
+		return 1;
+	}
+}
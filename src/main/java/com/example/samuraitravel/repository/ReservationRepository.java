@@ -1,13 +1,26 @@
 package com.example.samuraitravel.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.Reservation;
 import com.example.samuraitravel.entity.User;
 
 public interface ReservationRepository extends JpaRepository<Reservation, Integer> {
-	public Page<Reservation> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+	//予約一覧では民宿名を表示するため、民宿を同じクエリで取得する（作成日時とidをキーに、前のページの続きから取得する）
+	@EntityGraph(attributePaths = "house")
+	public Window<Reservation> findByUserOrderByCreatedAtDescIdDesc(User user, ScrollPosition position, Limit limit);
 	public Reservation findFirstByOrderByIdDesc();
+	
+	//民宿の削除時に、関連する予約をエンティティを読み込まずに一括削除する
+	@Modifying
+	@Query("DELETE FROM Reservation r WHERE r.house = :house")
+	public void deleteByHouse(@Param("house") House house);
 }
\ No newline at end of file
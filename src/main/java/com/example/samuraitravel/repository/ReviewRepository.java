@@ -1,15 +1,35 @@
 package com.example.samuraitravel.repository;
 
+import java.sql.Timestamp;
 import java.util.List;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.example.samuraitravel.dto.ReviewListItem;
+import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.Review;
 
 public interface ReviewRepository extends JpaRepository<Review, Integer> {
-	public List<Review> findByHouseIdOrderByCreatedAtDesc(Integer houseId);
-	public Page<Review> findByHouseId(Integer houseId, Pageable pageable);
+	//レビューはエンティティを読み込まず、カード表示に必要な列と投稿者名だけを新しい順に指定件数取得する
+	//（民宿IDではなく民宿で検索することで、民宿テーブルを結合せずreviews.house_idのインデックスを使う）
+	@Query("SELECT new com.example.samuraitravel.dto.ReviewListItem(r.id, u.id, u.name, r.score, r.comment, r.createdAt) "
+			+ "FROM Review r JOIN r.user u WHERE r.house = :house ORDER BY r.createdAt DESC, r.id DESC")
+	public List<ReviewListItem> findLatestListItems(@Param("house") House house, Limit limit);
+	
+	//2ページ目以降は、前のページの最後のレビューの作成日時とidをキーに続きから取得する
+	@Query("SELECT new com.example.samuraitravel.dto.ReviewListItem(r.id, u.id, u.name, r.score, r.comment, r.createdAt) "
+			+ "FROM Review r JOIN r.user u WHERE r.house = :house "
+			+ "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) ORDER BY r.createdAt DESC, r.id DESC")
+	public List<ReviewListItem> findListItemsAfter(@Param("house") House house, @Param("createdAt") Timestamp createdAt, @Param("id") Integer id, Limit limit);
+	
 	boolean existsByHouseIdAndUserId(Integer houseId, Integer userId);
+	
+	//民宿の削除時に、関連するレビューをエンティティを読み込まずに一括削除する
+	@Modifying
+	@Query("DELETE FROM Review r WHERE r.house = :house")
+	public void deleteByHouse(@Param("house") House house);
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package com.example.samuraitravel.repository;
 
+import static org.hibernate.jpa.HibernateHints.*;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.samuraitravel.entity.Role;
 
 
 public interface RoleRepository extends JpaRepository<Role, Integer> {
+	//会員登録のたびに同じロールを検索するため、結果をクエリキャッシュに保持する
+	@QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = EntityCacheConfig.ROLE_QUERY_REGION) })
 	public Role findByName(String name);
 
 }
@@ -0,0 +1,40 @@
+package com.example.samuraitravel.repository;
+
+import static org.hibernate.jpa.HibernateHints.*;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.example.samuraitravel.entity.StripeWebhookEvent;
+
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+	//イベントを未処理の状態で保存する（同じイベントIDがすでにある場合は何もせず0を返す）
+	@Modifying
+	@QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "stripe_webhook_events"))
+	@Query(value = "INSERT IGNORE INTO stripe_webhook_events (event_id, event_type, payload) VALUES (:eventId, :eventType, :payload)", nativeQuery = true)
+	public int insertIfAbsent(@Param("eventId") String eventId, @Param("eventType") String eventType, @Param("payload") String payload);
+	
+	//処理予定時刻を過ぎた未処理のイベントのIDを古い順に取得する
+	@Query("SELECT e.eventId FROM StripeWebhookEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+	public List<String> findDueEventIds(@Param("now") Timestamp now, Pageable pageable);
+	
+	//処理中のまま止まっているイベントのIDを取得する（ORで1本にまとめるとインデックスが使われないため分ける）
+	@Query("SELECT e.eventId FROM StripeWebhookEvent e WHERE e.status = 'PROCESSING' AND e.lockedAt < :staleBefore ORDER BY e.lockedAt")
+	public List<String> findStaleEventIds(@Param("staleBefore") Timestamp staleBefore, Pageable pageable);
+	
+	//イベントを処理中にする（他のワーカーがすでに処理中にしている場合は0を返す）
+	@Modifying
+	@Query("UPDATE StripeWebhookEvent e SET e.status = 'PROCESSING', e.lockedAt = :now, e.attempts = e.attempts + 1 "
+			+ "WHERE e.eventId = :eventId "
+			+ "AND ((e.status = 'PENDING' AND e.nextAttemptAt <= :now) OR (e.status = 'PROCESSING' AND e.lockedAt < :staleBefore))")
+	public int claim(@Param("eventId") String eventId, @Param("now") Timestamp now, @Param("staleBefore") Timestamp staleBefore);
+}
@@ -0,0 +1,45 @@
+package com.example.samuraitravel.security;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.event.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+//メールアドレスごとのログイン情報のキャッシュ（件数の上限と有効期限つき）
+//会員情報の変更がコミットされたら該当するメールアドレスのエントリを削除する
+@Component
+public class UserDetailsCache {
+	private final Cache<String, UserDetailsImpl> cache;
+	
+	public UserDetailsCache(MeterRegistry meterRegistry,
+							@Value("${samuraitravel.user-details-cache.max-entries:10000}") long maxEntries,
+							@Value("${samuraitravel.user-details-cache.ttl:PT10M}") Duration ttl) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxEntries)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "user-details");
+	}
+	
+	public UserDetailsImpl get(String email) {
+		return cache.getIfPresent(email);
+	}
+	
+	public void put(String email, UserDetailsImpl userDetailsImpl) {
+		cache.put(email, userDetailsImpl);
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onUserChanged(UserChangedEvent userChangedEvent) {
+		cache.invalidateAll(userChangedEvent.getEmails());
+	}
+}
@@ -1,65 +1,98 @@
 package com.example.samuraitravel.security;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.example.samuraitravel.entity.User;
 
-public class UserDetailsImpl implements UserDetails {
-	private final User user;
-	private final Collection<GrantedAuthority> authorities;
-	
-	public UserDetailsImpl(User user, Collection<GrantedAuthority> authorities) {
-		this.user = user;
-		this.authorities = authorities;
+//セキュリティコンテキスト（セッション）に保持するログインユーザーの情報
+//エンティティは保持せず、画面表示と認可に必要な項目だけを持つ（会員情報を変更する場合はエンティティを読み込み直す）
+public class UserDetailsImpl implements UserDetails, CredentialsContainer {
+	private final Integer id;
+	private final String email;
+	private final String name;
+	private final String roleName;
+	private final boolean enabled;
+
+	//ハッシュ済みのパスワード（ログイン後は消去され、セッションには保存されない）
+	private String password;
+
+	public UserDetailsImpl(Integer id, String email, String name, String roleName, boolean enabled, String password) {
+		this.id = id;
+		this.email = email;
+		this.name = name;
+		this.roleName = roleName;
+		this.enabled = enabled;
+		this.password = password;
+	}
+
+	public static UserDetailsImpl of(User user) {
+		return new UserDetailsImpl(user.getId(), user.getEmail(), user.getName(), user.getRole().getName(), user.getEnabled(), user.getPassword());
+	}
+
+	//パスワードの消去がキャッシュ内のインスタンスに影響しないよう、複製を返す
+	public UserDetailsImpl copy() {
+		return new UserDetailsImpl(id, email, name, roleName, enabled, password);
 	}
-	
-	public User getUser() {
-		return user;
+
+	public Integer getId() {
+		return id;
 	}
-	
+
+	public String getName() {
+		return name;
+	}
+
 	//ハッシュ済みのパスワードを返す
 	@Override
 	public String getPassword() {
-		return user.getPassword();
+		return password;
 	}
-	
+
 	//ログイン時に利用するユーザー名(メールアドレス)を返す
 	@Override
 	public String getUsername() {
-		return user.getEmail();
+		return email;
 	}
-	
+
 	//ロールのコレクションを返す
 	@Override
 	public Collection<? extends GrantedAuthority> getAuthorities() {
-		return authorities;
+		return List.of(new SimpleGrantedAuthority(roleName));
 	}
-	
+
 	//アカウントが期間切れでなければtrueを返す
 	@Override
 	public boolean isAccountNonExpired() {
 		return true;
 	}
-	
+
 	//ユーザーがロックされていなければtrueを返す
 	@Override
 	public boolean isAccountNonLocked() {
 		return true;
 	}
-	
+
 	//ユーザーのパスワードが期限切れでなければtrueを返す
 	@Override
 	public boolean isCredentialsNonExpired() {
 		return true;
 	}
-	
+
 	//ユーザーが有効であればtrueを返す
 	@Override
 	public boolean isEnabled() {
-		return user.getEnabled();
+		return enabled;
+	}
+
+	//認証に成功した後、パスワードを消去する
+	@Override
+	public void eraseCredentials() {
+		password = null;
 	}
-	
 }
@@ -1,10 +1,5 @@
 package com.example.samuraitravel.security;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -16,22 +11,28 @@ import com.example.samuraitravel.repository.UserRepository;
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 	private final UserRepository userRepository;
+	private final UserDetailsCache userDetailsCache;
 	
-	public UserDetailsServiceImpl(UserRepository userRepository) {
+	public UserDetailsServiceImpl(UserRepository userRepository, UserDetailsCache userDetailsCache) {
 		this.userRepository = userRepository;
+		this.userDetailsCache = userDetailsCache;
 	}
 	
 	@Override
 	public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+		UserDetailsImpl userDetailsImpl = userDetailsCache.get(email);
 		
-		try {
-			User user = userRepository.findByEmail(email);
-			String userRoleName = user.getRole().getName();
-			Collection<GrantedAuthority> authorities = new ArrayList<>();
-			authorities.add(new SimpleGrantedAuthority(userRoleName));
-			return new UserDetailsImpl(user, authorities);
-		} catch (Exception e) {
-			throw new UsernameNotFoundException("ユーザーが見つかりませんでした。");
+		if(userDetailsImpl == null) {
+			try {
+				User user = userRepository.findByEmail(email);
+				userDetailsImpl = UserDetailsImpl.of(user);
+			} catch (Exception e) {
+				throw new UsernameNotFoundException("ユーザーが見つかりませんでした。");
+			}
+			userDetailsCache.put(email, userDetailsImpl);
 		}
+		
+		//認証後のパスワードの消去はキャッシュ外の複製に対して行う
+		return userDetailsImpl.copy();
 	}
 }
@@ -2,9 +2,12 @@ package com.example.samuraitravel.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -14,12 +17,26 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 @EnableWebSecurity
 @EnableMethodSecurity
 public class WebSecurityConfig {
+	//Prometheusがメトリクスを収集するURLは、フォームでログインできないためBasic認証で管理者に限定する（セッションは作らない）
 	@Bean
+	@Order(1)
+	public SecurityFilterChain prometheusSecurityFilterChain(HttpSecurity http) throws Exception {
+		http
+			.securityMatcher("/actuator/prometheus")
+			.authorizeHttpRequests((requests) -> requests.anyRequest().hasRole("ADMIN"))
+			.httpBasic(Customizer.withDefaults())
+			.sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+			.csrf((csrf) -> csrf.disable());
+		return http.build();
+	}
+	
+	@Bean
+	@Order(2)
 	public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 		http
 			.authorizeHttpRequests((requests) -> requests
-				.requestMatchers("/css/**", "/images/**", "/js/**", "/storage/**", "/", "/signup/**", "/houses", "/houses/{id}", "/stripe/webhook", "/houses/*/reviews/index").permitAll() //全てのユーザーにアクセスを許可するURL
-				.requestMatchers("/admin/**").hasRole("ADMIN") //管理者にのみアクセスを許可するURL hasRoleは指定したロールのみにアクセスを許可
+				.requestMatchers("/css/**", "/images/**", "/js/**", "/storage/**", "/", "/signup/**", "/houses", "/houses/{id}", "/stripe/webhook", "/houses/*/reviews", "/houses/*/reviews/index").permitAll() //全てのユーザーにアクセスを許可するURL
+				.requestMatchers("/admin/**", "/actuator/**").hasRole("ADMIN") //管理者にのみアクセスを許可するURL hasRoleは指定したロールのみにアクセスを許可
 				.anyRequest().authenticated() //上記以外のURLはログインが必要（会員または管理者のどちらでもOK）
 				)
 			.formLogin((form) -> form
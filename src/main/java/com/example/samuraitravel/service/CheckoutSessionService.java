@@ -0,0 +1,127 @@
+package com.example.samuraitravel.service;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSession;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.WebUtils;
+
+import com.example.samuraitravel.dto.ReservationDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+//StripeのCheckoutセッションの作成をリクエストのスレッドから切り離し、予約内容ごとにHTTPセッションへ保持する
+//確認ページを再読み込みしても、予約内容が同じで有効期限内であれば作成済みのセッションを使い回す
+//HTTPセッションには直列化できる値だけを保持し（セッションの永続化・レプリケーションに対応するため）、作成中の処理はアプリケーション内で保持する
+@Service
+public class CheckoutSessionService {
+	//HTTPセッションに保持する属性名
+	private static final String SESSION_ATTRIBUTE = "checkoutSession";
+	
+	private final StripeService stripeService;
+	
+	//Stripeとの通信は待ち時間がほとんどのため、仮想スレッドで実行する
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	
+	//作成中のセッションID（キーはCheckoutSession.requestId。作成できたらHTTPセッションに反映して削除する）
+	//反映できなかったものが残り続けないよう、件数の上限と有効期限をつける
+	private final Cache<String, CompletableFuture<String>> pendingSessionIds;
+	
+	//Stripeの応答を待つ最大時間
+	private final Duration timeout;
+	
+	//作成したセッションを使い回す期間（StripeのCheckoutセッションは既定で24時間有効）
+	private final Duration sessionTtl;
+	
+	public CheckoutSessionService(StripeService stripeService,
+								  @Value("${samuraitravel.stripe.checkout.timeout:PT10S}") Duration timeout,
+								  @Value("${samuraitravel.stripe.checkout.session-ttl:PT23H}") Duration sessionTtl,
+								  @Value("${samuraitravel.stripe.checkout.pending-max-entries:10000}") long pendingMaxEntries) {
+		this.stripeService = stripeService;
+		this.timeout = timeout;
+		this.sessionTtl = sessionTtl;
+		this.pendingSessionIds = Caffeine.newBuilder()
+				.maximumSize(pendingMaxEntries)
+				.expireAfterWrite(timeout.multipliedBy(10))
+				.build();
+	}
+	
+	//予約内容に対応するセッションの作成を開始する（作成中・作成済みのものがあればそれを返す）
+	public CompletableFuture<String> prepare(HttpSession httpSession, ReservationDTO reservationDTO, Integer userId) {
+		synchronized(WebUtils.getSessionMutex(httpSession)) {
+			CheckoutSession checkoutSession = (CheckoutSession)httpSession.getAttribute(SESSION_ATTRIBUTE);
+			if(checkoutSession != null && checkoutSession.isFor(reservationDTO, userId)) {
+				//作成済みのセッションIDがある場合はそのまま使う
+				if(checkoutSession.sessionId() != null) {
+					return CompletableFuture.completedFuture(checkoutSession.sessionId());
+				}
+				
+				//作成中であればその完了を待つ（別のサーバーで開始された場合や、作成に失敗した場合は作り直す）
+				CompletableFuture<String> pendingSessionId = pendingSessionIds.getIfPresent(checkoutSession.requestId());
+				if(pendingSessionId != null && !pendingSessionId.isCompletedExceptionally() && !"".equals(pendingSessionId.getNow(null))) {
+					return pendingSessionId;
+				}
+			}
+			
+			CheckoutSession newCheckoutSession = new CheckoutSession(UUID.randomUUID().toString(), reservationDTO, userId, null, Instant.now().plus(sessionTtl));
+			CompletableFuture<String> sessionId = CompletableFuture
+					.supplyAsync(() -> stripeService.createStripeSession(reservationDTO, userId), executor)
+					.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			
+			pendingSessionIds.put(newCheckoutSession.requestId(), sessionId);
+			httpSession.setAttribute(SESSION_ATTRIBUTE, newCheckoutSession);
+			sessionId.thenAccept(createdSessionId -> complete(httpSession, newCheckoutSession, createdSessionId));
+			
+			return sessionId;
+		}
+	}
+	
+	//作成できたセッションIDをHTTPセッションに反映し、作成中の処理を手放す
+	private void complete(HttpSession httpSession, CheckoutSession checkoutSession, String sessionId) {
+		if(sessionId.isEmpty()) {
+			return;
+		}
+		
+		try {
+			synchronized(WebUtils.getSessionMutex(httpSession)) {
+				//その間に別の予約内容で作り直されていた場合は反映しない
+				CheckoutSession current = (CheckoutSession)httpSession.getAttribute(SESSION_ATTRIBUTE);
+				if(current != null && current.requestId().equals(checkoutSession.requestId())) {
+					httpSession.setAttribute(SESSION_ATTRIBUTE, checkoutSession.withSessionId(sessionId));
+				}
+			}
+			pendingSessionIds.invalidate(checkoutSession.requestId());
+		} catch(IllegalStateException e) {
+			//HTTPセッションが無効になっている場合は、期限切れで削除されるまで残す
+		}
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	//HTTPセッションに保持するCheckoutセッションの予約内容と、作成済みの場合はそのセッションID
+	private record CheckoutSession(String requestId, ReservationDTO reservationDTO, Integer userId, String sessionId, Instant expiresAt) implements Serializable {
+		private static final long serialVersionUID = 1L;
+		
+		//予約内容とユーザーが同じで、有効期限内であれば使い回せる
+		boolean isFor(ReservationDTO reservationDTO, Integer userId) {
+			return this.reservationDTO.equals(reservationDTO) && this.userId.equals(userId) && Instant.now().isBefore(expiresAt);
+		}
+		
+		CheckoutSession withSessionId(String sessionId) {
+			return new CheckoutSession(requestId, reservationDTO, userId, sessionId, expiresAt);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.samuraitravel.service;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+//起動時のスキーマのマイグレーションとサンプルデータの投入
+//どちらもFlywayの履歴テーブルで適用済みかを管理し、複数のサーバーが同時に起動してもロックを取って1回だけ適用する
+@Component
+public class DatabaseMigrationStrategy implements FlywayMigrationStrategy {
+	//サンプルデータの置き場所と、その適用履歴を記録するテーブル（スキーマの履歴とは別に管理する）
+	private static final String SEED_LOCATION = "classpath:db/seed";
+	private static final String SEED_HISTORY_TABLE = "flyway_seed_history";
+
+	//サンプルデータを投入する条件
+	public enum SeedMode {
+		//常に投入する（開発環境）
+		ALWAYS,
+		//ユーザーも民宿も登録されていないデータベースにだけ投入する（本番環境）
+		IF_EMPTY,
+		//投入しない
+		NEVER
+	}
+
+	private final StartupReport startupReport;
+	private final SeedMode seedMode;
+
+	public DatabaseMigrationStrategy(StartupReport startupReport,
+									 @Value("${samuraitravel.database.seed-mode:always}") SeedMode seedMode) {
+		this.startupReport = startupReport;
+		this.seedMode = seedMode;
+	}
+
+	@Override
+	public void migrate(Flyway flyway) {
+		startupReport.measure("スキーマのマイグレーション", () -> {
+			MigrateResult result = flyway.migrate();
+			System.out.println("スキーマのマイグレーションを" + result.migrationsExecuted + "件適用しました（バージョン: " + result.targetSchemaVersion + "）");
+		});
+
+		if(shouldSeed(flyway.getConfiguration().getDataSource())) {
+			startupReport.measure("サンプルデータの投入", () -> {
+				MigrateResult result = seed(flyway);
+				System.out.println("サンプルデータを" + result.migrationsExecuted + "件適用しました");
+			});
+		}
+	}
+
+	private boolean shouldSeed(DataSource dataSource) {
+		switch(seedMode) {
+			case ALWAYS:
+				return true;
+			case IF_EMPTY:
+				JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+				return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) == 0
+						&& jdbcTemplate.queryForObject("SELECT COUNT(*) FROM houses", Integer.class) == 0;
+			default:
+				return false;
+		}
+	}
+
+	//スキーマと同じ接続設定で、サンプルデータだけを別の履歴テーブルでマイグレーションする
+	//（既存のテーブルがあっても履歴テーブルがなければ作成して、未適用のサンプルデータだけを適用する）
+	private MigrateResult seed(Flyway flyway) {
+		return Flyway.configure(flyway.getConfiguration().getClassLoader())
+				.configuration(flyway.getConfiguration())
+				.locations(SEED_LOCATION)
+				.table(SEED_HISTORY_TABLE)
+				.baselineOnMigrate(true)
+				.baselineVersion("0")
+				.load()
+				.migrate();
+	}
+}
@@ -6,13 +6,14 @@ import java.util.Optional;
 import jakarta.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 
+import com.example.samuraitravel.dto.CursorPage;
 import com.example.samuraitravel.entity.Favorite;
 import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.User;
@@ -35,10 +36,10 @@ public class FavoriteService {
 		this.houseRepository = houseRepository;
 	}
 	
-	//お気に入りリストを取得
-	public Page<Favorite> findFavoritesByUserOrderByCreatedAtDesc(User user, Pageable pageable) {
-		
-		return favoriteRepository.findByUserOrderByCreatedAtDesc(user, pageable);
+	//お気に入りリストをカーソルの位置から指定された件数だけ取得
+	public CursorPage<Favorite> findFavoritesByUserOrderByCreatedAtDesc(User user, String cursor, int size) {
+		KeysetScrollPosition position = CursorPage.decode(cursor, CursorPage.CREATED_AT_DESC_KEYS);
+		return CursorPage.of(favoriteRepository.findByUserOrderByCreatedAtDescIdDesc(user, position, Limit.of(size)), position.isInitial());
 	}
 	
 	public boolean isFavorite(Integer userId, Integer houseId) {
@@ -63,7 +64,8 @@ public class FavoriteService {
 		
 		
 		House house = houseRepository.findById(houseId).orElseThrow(() -> new EntityNotFoundException("指定されたIDの民宿が存在しません。"));
-		User user = userRepository.findById(userId).orElseThrow(() -> new EntityNotFoundException("指定されたIDのユーザーが存在しません。"));
+		//ログイン中のユーザーは存在するため、読み込まずに参照する
+		User user = userRepository.getReferenceById(userId);
 		
 		favorite.setHouse(house);
 		favorite.setUser(user);
@@ -73,7 +75,7 @@ public class FavoriteService {
 	 
 	//お気に入りの削除
 	public void deleteFavorite(Integer houseId, Integer userId) {
-		User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("Invalid user ID"));
+		User user = userRepository.getReferenceById(userId);
 		House house = houseRepository.findById(houseId).orElseThrow(() -> new IllegalArgumentException("Inavalid house ID"));
 		List<Favorite> favorite = favoriteRepository.findByHouseAndUser(house, user);
 		if(favorite != null) {
@@ -0,0 +1,108 @@
+package com.example.samuraitravel.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.dto.HomePageContent;
+import com.example.samuraitravel.event.HouseChangedEvent;
+import com.example.samuraitravel.event.ReservationCreatedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//トップページに表示する新着・人気の民宿のキャッシュ
+//民宿や予約が書き込まれたら古い内容として扱い、次のリクエスト1件だけが作り直す（その間、他のリクエストには古い内容を返す）
+@Component
+public class HomePageCache {
+	//トップページに表示する件数
+	private static final int NEW_HOUSES_LIMIT = 8;
+	private static final int POPULAR_HOUSES_LIMIT = 3;
+	
+	private final HouseService houseService;
+	private final long ttlMillis;
+	private final Counter hitCounter;
+	private final Counter staleCounter;
+	private final Counter missCounter;
+	
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
+	private final ReentrantLock initialLoadLock = new ReentrantLock();
+	private volatile HomePageContent content;
+	private volatile long loadedAt;
+	private volatile boolean stale = true;
+	
+	public HomePageCache(HouseService houseService, MeterRegistry meterRegistry,
+						 @Value("${samuraitravel.home-cache.ttl:PT5M}") Duration ttl) {
+		this.houseService = houseService;
+		this.ttlMillis = ttl.toMillis();
+		this.hitCounter = Counter.builder("home.page.cache.requests").tag("result", "hit").register(meterRegistry);
+		this.staleCounter = Counter.builder("home.page.cache.requests").tag("result", "stale").register(meterRegistry);
+		this.missCounter = Counter.builder("home.page.cache.requests").tag("result", "miss").register(meterRegistry);
+	}
+	
+	public HomePageContent get() {
+		HomePageContent current = content;
+		
+		//初回はキャッシュがないため、作り終えるまで待つ
+		if(current == null) {
+			//仮想スレッドで処理している場合にキャリアスレッドを占有しないよう、synchronizedではなくロックで待つ
+			initialLoadLock.lock();
+			try {
+				if(content == null) {
+					missCounter.increment();
+					refresh();
+				}
+				return content;
+			} finally {
+				initialLoadLock.unlock();
+			}
+		}
+		
+		boolean expired = System.currentTimeMillis() - loadedAt > ttlMillis;
+		if((stale || expired) && refreshing.compareAndSet(false, true)) {
+			//作り直しは1つのリクエストだけが行い、他のリクエストには古い内容を返す
+			try {
+				staleCounter.increment();
+				refresh();
+				return content;
+			} finally {
+				refreshing.set(false);
+			}
+		}
+		
+		hitCounter.increment();
+		return current;
+	}
+	
+	//キャッシュを古い内容として扱う
+	public void invalidate() {
+		stale = true;
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHouseChanged(HouseChangedEvent houseChangedEvent) {
+		invalidate();
+	}
+	
+	@TransactionalEventListener
+	public void onReservationCreated(ReservationCreatedEvent reservationCreatedEvent) {
+		invalidate();
+	}
+	
+	private void refresh() {
+		//作り直している間に書き込みがあった場合は、次のリクエストでもう一度作り直す
+		stale = false;
+		try {
+			content = new HomePageContent(houseService.findNewHouses(NEW_HOUSES_LIMIT), houseService.findPopularHouses(POPULAR_HOUSES_LIMIT));
+		} catch(RuntimeException e) {
+			//作り直せなかった場合は古い内容のままにし、次のリクエストでもう一度作り直す
+			stale = true;
+			throw e;
+		}
+		loadedAt = System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,153 @@
+package com.example.samuraitravel.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+//民宿ごと・年ごとの予約状況をビット列で保持するメモリ上の索引
+//日付範囲での空き検索を、予約テーブルを検索せずに行う
+@Component
+public class HouseAvailabilityIndex {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//年 → 民宿ID → 予約が入っている泊（1月1日を0ビット目とする）
+	private Map<Integer, Map<Integer, BitSet>> occupancies = new HashMap<>();
+
+	//読み込み中に反映された変更（読み込み中でなければnull）。読み込み結果で置き換えたあとに適用し直す
+	private List<Runnable> changesDuringReload;
+
+	//指定された期間（チェックアウト日の泊は含まない）に予約が1泊も入っていないかどうか
+	public boolean isAvailable(Integer houseId, LocalDate checkinDate, LocalDate checkoutDate) {
+		lock.readLock().lock();
+		try {
+			for(Map.Entry<Integer, BitSet> entry : toNightsByYear(checkinDate, checkoutDate).entrySet()) {
+				BitSet occupiedDays = occupancies.getOrDefault(entry.getKey(), Map.of()).get(houseId);
+				if(occupiedDays != null && occupiedDays.intersects(entry.getValue())) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//指定された期間に1泊でも予約が入っている民宿のIDを返す
+	public Set<Integer> findOccupiedHouseIds(LocalDate checkinDate, LocalDate checkoutDate) {
+		Set<Integer> houseIds = new HashSet<>();
+
+		lock.readLock().lock();
+		try {
+			for(Map.Entry<Integer, BitSet> entry : toNightsByYear(checkinDate, checkoutDate).entrySet()) {
+				Map<Integer, BitSet> houses = occupancies.get(entry.getKey());
+				if(houses == null) {
+					continue;
+				}
+				for(Map.Entry<Integer, BitSet> house : houses.entrySet()) {
+					if(house.getValue().intersects(entry.getValue())) {
+						houseIds.add(house.getKey());
+					}
+				}
+			}
+			return houseIds;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//指定された期間の泊を予約済みにする
+	public void occupy(Integer houseId, LocalDate checkinDate, LocalDate checkoutDate) {
+		lock.writeLock().lock();
+		try {
+			if(changesDuringReload != null) {
+				changesDuringReload.add(() -> applyOccupy(houseId, checkinDate, checkoutDate));
+			}
+			applyOccupy(houseId, checkinDate, checkoutDate);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//民宿を索引から削除する
+	public void remove(Integer houseId) {
+		lock.writeLock().lock();
+		try {
+			if(changesDuringReload != null) {
+				changesDuringReload.add(() -> applyRemove(houseId));
+			}
+			applyRemove(houseId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//テーブルからの読み込みを始める前に呼び出し、以降の変更を置き換え後に適用し直せるように記録する
+	//（読み込みに失敗した場合も、次の読み込みの開始時に記録を作り直す）
+	public void beginReload() {
+		lock.writeLock().lock();
+		try {
+			changesDuringReload = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//テーブルから読み込んだ予約状況で索引全体を置き換え、読み込み中に反映された変更を適用し直す
+	public void replaceAll(Map<Integer, Map<Integer, BitSet>> newOccupancies) {
+		lock.writeLock().lock();
+		try {
+			occupancies = newOccupancies;
+			if(changesDuringReload != null) {
+				changesDuringReload.forEach(Runnable::run);
+				changesDuringReload = null;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void applyOccupy(Integer houseId, LocalDate checkinDate, LocalDate checkoutDate) {
+		for(Map.Entry<Integer, BitSet> entry : toNightsByYear(checkinDate, checkoutDate).entrySet()) {
+			occupancies.computeIfAbsent(entry.getKey(), year -> new HashMap<>())
+					.computeIfAbsent(houseId, id -> new BitSet())
+					.or(entry.getValue());
+		}
+	}
+
+	private void applyRemove(Integer houseId) {
+		for(Map<Integer, BitSet> houses : occupancies.values()) {
+			houses.remove(houseId);
+		}
+	}
+
+	//期間に含まれる泊を年ごとのビット列に変換する（年をまたぐ予約は複数の年に分かれる）
+	public static Map<Integer, BitSet> toNightsByYear(LocalDate checkinDate, LocalDate checkoutDate) {
+		Map<Integer, BitSet> nightsByYear = new TreeMap<>();
+
+		LocalDate date = checkinDate;
+		while(date.isBefore(checkoutDate)) {
+			LocalDate endOfSegment = LocalDate.of(date.getYear() + 1, 1, 1);
+			if(checkoutDate.isBefore(endOfSegment)) {
+				endOfSegment = checkoutDate;
+			}
+
+			BitSet nights = new BitSet();
+			nights.set(date.getDayOfYear() - 1, date.getDayOfYear() - 1 + (int)(endOfSegment.toEpochDay() - date.toEpochDay()));
+			nightsByYear.put(date.getYear(), nights);
+
+			date = endOfSegment;
+		}
+
+		return nightsByYear;
+	}
+}
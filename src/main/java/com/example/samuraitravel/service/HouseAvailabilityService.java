@@ -0,0 +1,115 @@
+package com.example.samuraitravel.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.entity.HouseOccupancy;
+import com.example.samuraitravel.entity.HouseOccupancyId;
+import com.example.samuraitravel.entity.Reservation;
+import com.example.samuraitravel.event.HouseChangedEvent;
+import com.example.samuraitravel.event.ReservationCreatedEvent;
+import com.example.samuraitravel.repository.HouseOccupancyRepository;
+
+@Service
+public class HouseAvailabilityService {
+	private final HouseOccupancyRepository houseOccupancyRepository;
+	private final HouseAvailabilityIndex houseAvailabilityIndex;
+	
+	public HouseAvailabilityService(HouseOccupancyRepository houseOccupancyRepository, HouseAvailabilityIndex houseAvailabilityIndex) {
+		this.houseOccupancyRepository = houseOccupancyRepository;
+		this.houseAvailabilityIndex = houseAvailabilityIndex;
+	}
+	
+	//指定された期間に民宿の予約が入っていないかどうかを確認する
+	//他のサーバーで登録された予約も反映するため、メモリ上の索引ではなく予約状況のテーブルを主キーで読み込む
+	@Transactional(readOnly = true)
+	public boolean isAvailable(Integer houseId, LocalDate checkinDate, LocalDate checkoutDate) {
+		Map<Integer, BitSet> nightsByYear = HouseAvailabilityIndex.toNightsByYear(checkinDate, checkoutDate);
+		List<HouseOccupancyId> houseOccupancyIds = nightsByYear.keySet().stream()
+				.map(year -> new HouseOccupancyId(houseId, year))
+				.toList();
+		
+		for(HouseOccupancy houseOccupancy : houseOccupancyRepository.findAllById(houseOccupancyIds)) {
+			if(BitSet.valueOf(houseOccupancy.getOccupiedDays()).intersects(nightsByYear.get(houseOccupancy.getStayYear()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	//指定された期間に予約が入っている民宿のIDを取得する（検索の絞り込み用にメモリ上の索引を使う）
+	public Set<Integer> findOccupiedHouseIds(LocalDate checkinDate, LocalDate checkoutDate) {
+		return houseAvailabilityIndex.findOccupiedHouseIds(checkinDate, checkoutDate);
+	}
+	
+	//予約の登録と同じトランザクション内で、予約状況の行をロックして重複を確認したうえで期間を予約済みにする
+	@Transactional
+	public void occupy(Integer houseId, LocalDate checkinDate, LocalDate checkoutDate) {
+		Map<Integer, BitSet> nightsByYear = HouseAvailabilityIndex.toNightsByYear(checkinDate, checkoutDate);
+		
+		//年の昇順にロックすることで、年をまたぐ予約どうしのデッドロックを防ぐ
+		List<HouseOccupancy> houseOccupancies = new ArrayList<>();
+		for(Integer year : nightsByYear.keySet()) {
+			houseOccupancyRepository.insertIfAbsent(houseId, year);
+			HouseOccupancy houseOccupancy = houseOccupancyRepository.findForUpdate(houseId, year).orElseThrow();
+			
+			if(BitSet.valueOf(houseOccupancy.getOccupiedDays()).intersects(nightsByYear.get(year))) {
+				throw new ReservationConflictException("指定された期間にはすでに予約が入っています。");
+			}
+			houseOccupancies.add(houseOccupancy);
+		}
+		
+		for(HouseOccupancy houseOccupancy : houseOccupancies) {
+			BitSet occupiedDays = BitSet.valueOf(houseOccupancy.getOccupiedDays());
+			occupiedDays.or(nightsByYear.get(houseOccupancy.getStayYear()));
+			houseOccupancy.setOccupiedDays(occupiedDays.toByteArray());
+		}
+		houseOccupancyRepository.saveAll(houseOccupancies);
+	}
+	
+	//民宿の予約状況をすべて削除する
+	@Transactional
+	public void deleteByHouseId(Integer houseId) {
+		houseOccupancyRepository.deleteByHouseId(houseId);
+	}
+	
+	//起動時と定期的に予約状況のテーブルをメモリ上の索引に読み込み、他のサーバーで登録された予約を反映する
+	//（既存の予約からの予約状況の作成はマイグレーションで行う）
+	@Scheduled(fixedDelayString = "${samuraitravel.availability.reload-interval:PT1M}", initialDelayString = "${samuraitravel.availability.reload-interval:PT1M}")
+	@Transactional(readOnly = true)
+	public void load() {
+		houseAvailabilityIndex.beginReload();
+		
+		Map<Integer, Map<Integer, BitSet>> occupanciesByYear = new HashMap<>();
+		for(HouseOccupancy houseOccupancy : houseOccupancyRepository.findAll()) {
+			occupanciesByYear.computeIfAbsent(houseOccupancy.getStayYear(), year -> new HashMap<>())
+					.put(houseOccupancy.getHouseId(), BitSet.valueOf(houseOccupancy.getOccupiedDays()));
+		}
+		houseAvailabilityIndex.replaceAll(occupanciesByYear);
+	}
+	
+	//予約の登録がコミットされたら索引に反映する
+	@TransactionalEventListener
+	public void onReservationCreated(ReservationCreatedEvent reservationCreatedEvent) {
+		Reservation reservation = reservationCreatedEvent.getReservation();
+		houseAvailabilityIndex.occupy(reservation.getHouse().getId(), reservation.getCheckinDate(), reservation.getCheckoutDate());
+	}
+	
+	//民宿の削除がコミットされたら索引から取り除く
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHouseChanged(HouseChangedEvent houseChangedEvent) {
+		if(houseChangedEvent.isDeleted()) {
+			houseAvailabilityIndex.remove(houseChangedEvent.getHouse().getId());
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.example.samuraitravel.service;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.event.HouseChangedEvent;
+import com.example.samuraitravel.repository.EntityCacheConfig;
+
+//民宿の登録・更新・削除がコミットされたら、2次キャッシュの民宿とトップページ・民宿一覧のクエリ結果を削除する
+//（関連レコードの一括削除など、エンティティを経由しない書き込みの後でも古い内容を返さないよう明示的に削除する）
+@Component
+public class HouseCacheEvictor {
+	private final Cache cache;
+	
+	public HouseCacheEvictor(EntityManagerFactory entityManagerFactory) {
+		this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHouseChanged(HouseChangedEvent houseChangedEvent) {
+		cache.evictEntityData(House.class, houseChangedEvent.getHouse().getId());
+		cache.evictQueryRegion(EntityCacheConfig.HOUSE_LIST_QUERY_REGION);
+	}
+}
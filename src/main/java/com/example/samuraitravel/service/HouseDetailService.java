@@ -0,0 +1,38 @@
+package com.example.samuraitravel.service;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+
+import com.example.samuraitravel.dto.HouseDetail;
+import com.example.samuraitravel.dto.HouseDetailStats;
+import com.example.samuraitravel.dto.HouseReviewSummary;
+import com.example.samuraitravel.repository.HouseReviewStatsRepository;
+
+//民宿詳細ページの表示に必要な情報を、レビューの件数やログインの有無によらず一定の回数のクエリで取得する
+//（民宿は2次キャッシュ、最新のレビューは投稿者名つきのプロジェクション、集計と投稿済みかどうかは1回のクエリで取得する）
+@Service
+public class HouseDetailService {
+	private final HouseService houseService;
+	private final ReviewService reviewService;
+	private final HouseReviewStatsRepository houseReviewStatsRepository;
+	
+	public HouseDetailService(HouseService houseService, ReviewService reviewService, HouseReviewStatsRepository houseReviewStatsRepository) {
+		this.houseService = houseService;
+		this.reviewService = reviewService;
+		this.houseReviewStatsRepository = houseReviewStatsRepository;
+	}
+	
+	//民宿が存在しない場合は空を返す（userIdは未ログインの場合null）
+	public Optional<HouseDetail> findHouseDetail(Integer houseId, Integer userId) {
+		return houseService.findHouseById(houseId).map(house -> {
+			//集計は民宿の登録時に作成されるが、ない場合はレビュー0件・未投稿として扱う
+			Optional<HouseDetailStats> stats = houseReviewStatsRepository.findDetailStats(houseId, userId);
+			HouseReviewSummary reviewSummary = stats.map(HouseDetailStats::toReviewSummary).orElseGet(HouseReviewSummary::empty);
+			boolean postedReview = stats.map(HouseDetailStats::isPostedReview).orElse(false);
+			boolean postedFavorite = stats.map(HouseDetailStats::isPostedFavorite).orElse(false);
+			
+			return new HouseDetail(house, reviewSummary, reviewService.findLatestReviews(houseId, userId), postedReview, postedFavorite);
+		});
+	}
+}
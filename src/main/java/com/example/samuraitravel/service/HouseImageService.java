@@ -0,0 +1,200 @@
+package com.example.samuraitravel.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ServletContext;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.event.HouseChangedEvent;
+
+//民宿画像の縮小画像（サムネイル・カード・詳細ページ用）を生成し、画面から参照できるようにする
+//縮小画像はリクエストとは別のスレッドで生成し、生成前は元の画像で代用する
+@Service
+public class HouseImageService {
+	//アプリケーションに同梱しているサンプルの画像の場所
+	private static final String BUNDLED_IMAGE_LOCATION = "static/storage/";
+	
+	//縮小画像のJPEGの画質
+	private static final float JPEG_QUALITY = 0.8f;
+	
+	private final ImageStorage imageStorage;
+	private final ServletContext servletContext;
+	private final ThreadPoolExecutor executor;
+	
+	//生成中・生成待ちの元の画像名（同じ画像の生成を重複して受け付けない）
+	private final Set<String> pendingImageNames = ConcurrentHashMap.newKeySet();
+	
+	public HouseImageService(ImageStorage imageStorage, ServletContext servletContext) {
+		this.imageStorage = imageStorage;
+		this.servletContext = servletContext;
+		//画像の縮小はCPUを使うため、リクエストの処理を妨げないよう少数のスレッドで行う
+		this.executor = new ThreadPoolExecutor(1, 2, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(100), new CustomizableThreadFactory("house-image-"), new ThreadPoolExecutor.AbortPolicy());
+	}
+	
+	//民宿の登録・更新がコミットされたら縮小画像の生成を開始する
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHouseChanged(HouseChangedEvent houseChangedEvent) {
+		String imageName = houseChangedEvent.getHouse().getImageName();
+		
+		if(!houseChangedEvent.isDeleted() && imageName != null) {
+			requestDerivatives(imageName);
+		}
+	}
+	
+	//縮小画像の生成を受け付ける（生成済み・生成中の場合やキューが一杯の場合は何もしない）
+	public void requestDerivatives(String imageName) {
+		if(!pendingImageNames.add(imageName)) {
+			return;
+		}
+		
+		try {
+			executor.execute(() -> {
+				try {
+					generateDerivatives(imageName);
+				} catch(RuntimeException e) {
+					System.out.println("縮小画像の生成に失敗しました: " + imageName + " " + e.getMessage());
+				} finally {
+					pendingImageNames.remove(imageName);
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			//次に縮小画像が要求されたときに改めて受け付ける
+			pendingImageNames.remove(imageName);
+		}
+	}
+	
+	//元の画像から、まだ保存されていない縮小画像を生成して保存する
+	public void generateDerivatives(String imageName) {
+		Resource original = loadOriginal(imageName)
+				.orElseThrow(() -> new ImageStorageException("元の画像が存在しません: " + imageName, null));
+		
+		BufferedImage source = null;
+		for(ImageVariant variant : ImageVariant.values()) {
+			String derivativeName = variant.nameFor(imageName);
+			if(imageStorage.exists(derivativeName)) {
+				continue;
+			}
+			
+			try {
+				if(source == null) {
+					try(InputStream inputStream = original.getInputStream()) {
+						source = ImageIO.read(inputStream);
+					}
+					if(source == null) {
+						throw new ImageStorageException("画像の形式に対応していません: " + imageName, null);
+					}
+				}
+				
+				Path tempFile = Files.createTempFile("derivative-", ".jpg");
+				try {
+					writeJpeg(resize(source, variant.getWidth()), tempFile);
+					imageStorage.put(derivativeName, tempFile, "image/jpeg");
+				} finally {
+					Files.deleteIfExists(tempFile);
+				}
+			} catch(IOException e) {
+				throw new ImageStorageException("縮小画像の生成に失敗しました: " + derivativeName, e);
+			}
+		}
+	}
+	
+	//保存先または同梱のサンプルから元の画像を読み込む
+	public Optional<Resource> loadOriginal(String imageName) {
+		return imageStorage.load(imageName).or(() -> {
+			Resource resource = new ClassPathResource(BUNDLED_IMAGE_LOCATION + imageName);
+			return resource.exists() ? Optional.of(resource) : Optional.empty();
+		});
+	}
+	
+	//画面から使う縮小画像のURL
+	public String url(String imageName, String variantName) {
+		return servletContext.getContextPath() + "/storage/" + ImageVariant.valueOf(variantName).nameFor(imageName);
+	}
+	
+	//画面の幅に合わせてブラウザに縮小画像を選ばせるためのsrcset属性の値
+	public String srcset(String imageName) {
+		StringJoiner srcset = new StringJoiner(", ");
+		for(ImageVariant variant : ImageVariant.values()) {
+			srcset.add(url(imageName, variant.name()) + " " + variant.getWidth() + "w");
+		}
+		
+		return srcset.toString();
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	//縦横比を保ったまま指定した幅に縮小する（元の画像より大きくはしない）
+	//一度に大きく縮小すると画質が落ちるため、半分ずつ縮小してから最後に指定した幅に合わせる
+	private static BufferedImage resize(BufferedImage source, int maxWidth) {
+		int targetWidth = Math.min(maxWidth, source.getWidth());
+		int targetHeight = Math.max(1, (int)Math.round((double)source.getHeight() * targetWidth / source.getWidth()));
+		
+		BufferedImage current = source;
+		int width = source.getWidth();
+		int height = source.getHeight();
+		do {
+			width = Math.max(targetWidth, width / 2);
+			height = Math.max(targetHeight, height / 2);
+			
+			//透過部分は白で塗りつぶす（JPEGは透過に対応していない）
+			BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = next.createGraphics();
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, width, height);
+			graphics.drawImage(current, 0, 0, width, height, null);
+			graphics.dispose();
+			
+			current = next;
+		} while(width != targetWidth || height != targetHeight);
+		
+		return current;
+	}
+	
+	private static void writeJpeg(BufferedImage image, Path file) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(JPEG_QUALITY);
+		param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+		
+		try(ImageOutputStream outputStream = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(outputStream);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+}
@@ -0,0 +1,439 @@
+package com.example.samuraitravel.service;
+
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.dto.HouseKeywordSource;
+import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.event.HouseChangedEvent;
+import com.example.samuraitravel.repository.HouseRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//民宿名・住所・説明文のn-gram（1文字と2文字）転置索引
+//キーワード検索をテーブル全件のLIKE検索ではなく、メモリ上の索引から民宿IDを引くことで行う
+@Component
+public class HouseKeywordIndex {
+	//フィールドをまたいだ部分一致を防ぐための区切り文字
+	private static final char FIELD_SEPARATOR = '\u0000';
+
+	//差分更新で前回の最終更新日時より前にさかのぼって読み込む幅
+	//（更新日時は秒単位のため同じ秒の更新と、更新日時より後にコミットされた更新を取りこぼさないようにする）
+	private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+	private final HouseRepository houseRepository;
+	private final Timer rebuildTimer;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//n-gram → その文字列を含む民宿IDの昇順リスト
+	private Map<String, PostingList> postings = new HashMap<>();
+
+	//民宿ID → 正規化済みのテキスト（候補の最終確認に使う）
+	private Map<Integer, String> documents = new HashMap<>();
+
+	//構築中に反映された変更（構築中でなければnull）。構築した索引に置き換えたあとに適用し直す
+	private List<Runnable> changesDuringRebuild;
+
+	//直近の構築・差分更新の時点での民宿の最終更新日時
+	private Timestamp lastUpdatedAt;
+
+	private volatile boolean ready = false;
+	private volatile long lastRebuildMillis = 0;
+
+	public HouseKeywordIndex(HouseRepository houseRepository, MeterRegistry meterRegistry) {
+		this.houseRepository = houseRepository;
+		this.rebuildTimer = Timer.builder("house.keyword.index.rebuild")
+				.description("民宿キーワード索引の再構築時間")
+				.register(meterRegistry);
+
+		Gauge.builder("house.keyword.index.memory", this, HouseKeywordIndex::estimateMemoryBytes)
+				.description("民宿キーワード索引の推定メモリ使用量")
+				.baseUnit("bytes")
+				.register(meterRegistry);
+		Gauge.builder("house.keyword.index.documents", this, HouseKeywordIndex::countDocuments)
+				.description("民宿キーワード索引に登録されている民宿数")
+				.register(meterRegistry);
+		Gauge.builder("house.keyword.index.terms", this, HouseKeywordIndex::countTerms)
+				.description("民宿キーワード索引のn-gram数")
+				.register(meterRegistry);
+		Gauge.builder("house.keyword.index.last.rebuild", this, index -> index.lastRebuildMillis)
+				.description("直近の索引再構築にかかった時間")
+				.baseUnit("milliseconds")
+				.register(meterRegistry);
+	}
+
+	//起動完了後と、他のサーバーで民宿が削除された場合に、すべての民宿から索引を構築する
+	public synchronized void rebuild() {
+		long start = System.nanoTime();
+
+		lock.writeLock().lock();
+		try {
+			changesDuringRebuild = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		//読み込む前の最終更新日時を記録し、読み込み中に他のサーバーで更新された民宿は次回の差分更新で取り込む
+		Timestamp updatedAt = houseRepository.findMaxUpdatedAt();
+
+		Map<String, PostingList> newPostings = new HashMap<>();
+		Map<Integer, String> newDocuments = new HashMap<>();
+
+		//ID順に取得することで、転置リストへの追加は常に末尾への追記になる
+		for(HouseKeywordSource source : houseRepository.findAllKeywordSources()) {
+			addDocument(newPostings, newDocuments, source.getId(), toDocument(source.getName(), source.getAddress(), source.getDescription()));
+		}
+
+		//構築中にこのサーバーで反映された登録・更新・削除を、置き換えた索引に適用し直す
+		lock.writeLock().lock();
+		try {
+			postings = newPostings;
+			documents = newDocuments;
+			changesDuringRebuild.forEach(Runnable::run);
+			changesDuringRebuild = null;
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		lastUpdatedAt = updatedAt;
+
+		long elapsed = System.nanoTime() - start;
+		lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+		rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+	}
+
+	//定期的に他のサーバーで登録・更新・削除された民宿を索引に反映する
+	//前回以降に更新された民宿だけを読み込んで置き換え、件数が合わない場合（削除があった場合）は索引を構築し直す
+	@Scheduled(fixedDelayString = "${samuraitravel.house-search.keyword-index.refresh-interval:PT30S}", initialDelayString = "${samuraitravel.house-search.keyword-index.refresh-interval:PT30S}")
+	public synchronized void refresh() {
+		//起動時の構築が終わるまでは何もしない
+		if(!ready) {
+			return;
+		}
+		if(lastUpdatedAt == null) {
+			rebuild();
+			return;
+		}
+
+		Timestamp updatedAt = houseRepository.findMaxUpdatedAt();
+		Timestamp since = Timestamp.from(lastUpdatedAt.toInstant().minus(REFRESH_OVERLAP));
+		for(HouseKeywordSource source : houseRepository.findKeywordSourcesUpdatedSince(since)) {
+			put(source.getId(), source.getName(), source.getAddress(), source.getDescription());
+		}
+		if(updatedAt != null) {
+			lastUpdatedAt = updatedAt;
+		}
+
+		if(houseRepository.count() != countDocuments()) {
+			rebuild();
+		}
+	}
+
+	//索引の構築が完了しているかどうか
+	public boolean isReady() {
+		return ready;
+	}
+
+	//空白で区切られたすべての語を含む民宿のIDを昇順で返す
+	public List<Integer> search(String keyword) {
+		List<String> terms = splitTerms(keyword);
+
+		lock.readLock().lock();
+		try {
+			if(terms.isEmpty()) {
+				List<Integer> allIds = new ArrayList<>(documents.keySet());
+				allIds.sort(null);
+				return allIds;
+			}
+
+			//語を構成するn-gramの転置リストを集め、短いものから順に積集合をとる
+			List<PostingList> lists = new ArrayList<>();
+			for(String term : terms) {
+				for(String gram : queryGrams(term)) {
+					PostingList postingList = postings.get(gram);
+					if(postingList == null) {
+						return List.of();
+					}
+					lists.add(postingList);
+				}
+			}
+			lists.sort(Comparator.comparingInt(PostingList::size));
+
+			int[] candidates = lists.get(0).toArray();
+			for(int i = 1; i < lists.size() && candidates.length > 0; i++) {
+				candidates = lists.get(i).intersect(candidates);
+			}
+
+			//n-gramがすべて含まれていても語として連続しているとは限らないため、本文で確認する
+			List<Integer> result = new ArrayList<>(candidates.length);
+			for(int id : candidates) {
+				String document = documents.get(id);
+				if(containsAll(document, terms)) {
+					result.add(id);
+				}
+			}
+
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//民宿の登録・更新・削除がコミットされたら索引に反映する
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHouseChanged(HouseChangedEvent houseChangedEvent) {
+		House house = houseChangedEvent.getHouse();
+
+		if(houseChangedEvent.isDeleted()) {
+			remove(house.getId());
+		} else {
+			put(house.getId(), house.getName(), house.getAddress(), house.getDescription());
+		}
+	}
+
+	//民宿を索引に登録する（登録済みの場合は置き換える）
+	public void put(Integer id, String name, String address, String description) {
+		String document = toDocument(name, address, description);
+
+		lock.writeLock().lock();
+		try {
+			if(changesDuringRebuild != null) {
+				changesDuringRebuild.add(() -> {
+					removeDocument(postings, documents, id);
+					addDocument(postings, documents, id, document);
+				});
+			}
+			removeDocument(postings, documents, id);
+			addDocument(postings, documents, id, document);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//民宿を索引から削除する
+	public void remove(Integer id) {
+		lock.writeLock().lock();
+		try {
+			if(changesDuringRebuild != null) {
+				changesDuringRebuild.add(() -> removeDocument(postings, documents, id));
+			}
+			removeDocument(postings, documents, id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//索引の推定メモリ使用量（バイト）
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 0;
+			for(Map.Entry<String, PostingList> entry : postings.entrySet()) {
+				//HashMapのエントリ + キー文字列 + 転置リストの配列
+				bytes += 32 + 40 + entry.getKey().length() * 2L + entry.getValue().capacityInBytes();
+			}
+			for(String document : documents.values()) {
+				bytes += 32 + 16 + 40 + document.length() * 2L;
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int countDocuments() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int countTerms() {
+		lock.readLock().lock();
+		try {
+			return postings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static void addDocument(Map<String, PostingList> postings, Map<Integer, String> documents, Integer id, String document) {
+		documents.put(id, document);
+		for(String gram : indexGrams(document)) {
+			postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+		}
+	}
+
+	private static void removeDocument(Map<String, PostingList> postings, Map<Integer, String> documents, Integer id) {
+		String document = documents.remove(id);
+		if(document == null) {
+			return;
+		}
+
+		for(String gram : indexGrams(document)) {
+			PostingList postingList = postings.get(gram);
+			if(postingList != null) {
+				postingList.remove(id);
+				if(postingList.size() == 0) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	//索引に登録するn-gram（各フィールドの1文字と連続する2文字）
+	private static Set<String> indexGrams(String document) {
+		Set<String> grams = new LinkedHashSet<>();
+		for(int i = 0; i < document.length(); i++) {
+			char c = document.charAt(i);
+			if(c == FIELD_SEPARATOR) {
+				continue;
+			}
+			grams.add(String.valueOf(c));
+			if(i + 1 < document.length() && document.charAt(i + 1) != FIELD_SEPARATOR) {
+				grams.add(document.substring(i, i + 2));
+			}
+		}
+		return grams;
+	}
+
+	//検索語から引くn-gram（1文字の語はそのまま、2文字以上の語は2文字ずつ）
+	private static Set<String> queryGrams(String term) {
+		Set<String> grams = new LinkedHashSet<>();
+		if(term.length() == 1) {
+			grams.add(term);
+			return grams;
+		}
+		for(int i = 0; i + 1 < term.length(); i++) {
+			grams.add(term.substring(i, i + 2));
+		}
+		return grams;
+	}
+
+	private static String toDocument(String name, String address, String description) {
+		return normalize(name) + FIELD_SEPARATOR + normalize(address) + FIELD_SEPARATOR + normalize(description);
+	}
+
+	//全角英数字・半角カナなどの表記ゆれを吸収し、大文字小文字を区別しないようにする
+	private static String normalize(String text) {
+		if(text == null) {
+			return "";
+		}
+		return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).replace(FIELD_SEPARATOR, ' ');
+	}
+
+	//検索語を正規化して空白で区切る（索引を使わないLIKE検索でも同じ語で絞り込む）
+	public static List<String> splitTerms(String keyword) {
+		List<String> terms = new ArrayList<>();
+		for(String term : normalize(keyword).split("\\s+")) {
+			if(!term.isEmpty()) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+	private static boolean containsAll(String document, List<String> terms) {
+		for(String term : terms) {
+			if(!document.contains(term)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//民宿IDの昇順リスト
+	private static class PostingList {
+		private int[] ids = new int[4];
+		private int size = 0;
+
+		int size() {
+			return size;
+		}
+
+		void add(int id) {
+			//IDは概ね昇順に追加されるため、末尾への追記を優先する
+			if(size == 0 || ids[size - 1] < id) {
+				ensureCapacity();
+				ids[size++] = id;
+				return;
+			}
+
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if(index >= 0) {
+				return;
+			}
+
+			int insertionPoint = -index - 1;
+			ensureCapacity();
+			System.arraycopy(ids, insertionPoint, ids, insertionPoint + 1, size - insertionPoint);
+			ids[insertionPoint] = id;
+			size++;
+		}
+
+		void remove(int id) {
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if(index < 0) {
+				return;
+			}
+
+			System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+			size--;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+
+		//昇順に並んだ候補との積集合をとる
+		int[] intersect(int[] candidates) {
+			int[] result = new int[Math.min(size, candidates.length)];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while(i < size && j < candidates.length) {
+				if(ids[i] == candidates[j]) {
+					result[count++] = ids[i];
+					i++;
+					j++;
+				} else if(ids[i] < candidates[j]) {
+					i++;
+				} else {
+					j++;
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		long capacityInBytes() {
+			return 16 + 16 + ids.length * 4L;
+		}
+
+		private void ensureCapacity() {
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length * 2);
+			}
+		}
+	}
+}
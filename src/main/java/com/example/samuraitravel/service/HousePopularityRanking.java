@@ -0,0 +1,73 @@
+package com.example.samuraitravel.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.stereotype.Component;
+
+//予約数の多い順に民宿IDを並べたメモリ上のランキング
+//上位N件の取得は先頭からN件たどるだけで済み、予約テーブルを集計しない
+@Component
+public class HousePopularityRanking {
+	//予約数の多い順、同数の場合はIDの小さい順
+	private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::reservationCount).reversed().thenComparingInt(Entry::houseId);
+	
+	private final Map<Integer, Entry> entries = new HashMap<>();
+	private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+	
+	//予約数の多い順に指定された件数の民宿IDを取得する
+	public synchronized List<Integer> findTopHouseIds(int limit) {
+		List<Integer> houseIds = new ArrayList<>(limit);
+		Iterator<Entry> iterator = ranking.iterator();
+		while(iterator.hasNext() && houseIds.size() < limit) {
+			houseIds.add(iterator.next().houseId());
+		}
+		return houseIds;
+	}
+	
+	//民宿の予約数を1加算する
+	public synchronized void increment(Integer houseId) {
+		Entry current = entries.get(houseId);
+		put(houseId, current == null ? 1 : current.reservationCount() + 1);
+	}
+	
+	//予約数0の民宿としてランキングに追加する（登録済みの場合は何もしない）
+	public synchronized void addIfAbsent(Integer houseId) {
+		if(!entries.containsKey(houseId)) {
+			put(houseId, 0);
+		}
+	}
+	
+	public synchronized void remove(Integer houseId) {
+		Entry current = entries.remove(houseId);
+		if(current != null) {
+			ranking.remove(current);
+		}
+	}
+	
+	//集計し直した予約数でランキングを置き換える
+	public synchronized void replaceAll(Map<Integer, Integer> reservationCounts) {
+		entries.clear();
+		ranking.clear();
+		reservationCounts.forEach(this::put);
+	}
+	
+	private void put(Integer houseId, int reservationCount) {
+		Entry current = entries.get(houseId);
+		if(current != null) {
+			ranking.remove(current);
+		}
+		
+		Entry entry = new Entry(houseId, reservationCount);
+		entries.put(houseId, entry);
+		ranking.add(entry);
+	}
+	
+	private record Entry(int houseId, int reservationCount) {
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.samuraitravel.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.samuraitravel.entity.HousePopularity;
+import com.example.samuraitravel.event.HouseChangedEvent;
+import com.example.samuraitravel.event.ReservationCreatedEvent;
+import com.example.samuraitravel.repository.HousePopularityRepository;
+
+@Service
+public class HousePopularityService {
+	private final HousePopularityRepository housePopularityRepository;
+	private final HousePopularityRanking housePopularityRanking;
+	
+	public HousePopularityService(HousePopularityRepository housePopularityRepository, HousePopularityRanking housePopularityRanking) {
+		this.housePopularityRepository = housePopularityRepository;
+		this.housePopularityRanking = housePopularityRanking;
+	}
+	
+	//予約数の多い順に指定された件数の民宿IDを取得する
+	public List<Integer> findTopHouseIds(int limit) {
+		return housePopularityRanking.findTopHouseIds(limit);
+	}
+	
+	//予約の登録と同じトランザクション内で予約数を1加算する
+	@Transactional
+	public void incrementReservationCount(Integer houseId) {
+		housePopularityRepository.incrementReservationCount(houseId);
+	}
+	
+	//起動時と定期的に予約テーブルを集計し直し、予約数とランキングを実際の件数に合わせる
+	@Scheduled(fixedDelayString = "${samuraitravel.popularity.reconcile-interval:PT1H}", initialDelayString = "${samuraitravel.popularity.reconcile-interval:PT1H}")
+	@Transactional
+	public void reconcile() {
+		housePopularityRepository.insertMissingHouses();
+		housePopularityRepository.recountReservations();
+		
+		Map<Integer, Integer> reservationCounts = new HashMap<>();
+		for(HousePopularity housePopularity : housePopularityRepository.findAll()) {
+			reservationCounts.put(housePopularity.getHouseId(), housePopularity.getReservationCount());
+		}
+		housePopularityRanking.replaceAll(reservationCounts);
+	}
+	
+	//予約の登録がコミットされたらランキングに反映する
+	@TransactionalEventListener
+	public void onReservationCreated(ReservationCreatedEvent reservationCreatedEvent) {
+		housePopularityRanking.increment(reservationCreatedEvent.getReservation().getHouse().getId());
+	}
+	
+	//民宿の登録・削除をランキングに反映する
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHouseChanged(HouseChangedEvent houseChangedEvent) {
+		Integer houseId = houseChangedEvent.getHouse().getId();
+		
+		if(houseChangedEvent.isDeleted()) {
+			housePopularityRanking.remove(houseId);
+		} else {
+			housePopularityRanking.addIfAbsent(houseId);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.samuraitravel.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.samuraitravel.dto.HouseReviewSummary;
+import com.example.samuraitravel.entity.HouseReviewStats;
+import com.example.samuraitravel.repository.HouseReviewStatsRepository;
+
+//民宿ごとのレビューの集計を、レビューを読み込まずに差分で更新する
+@Service
+public class HouseReviewStatsService {
+	private final HouseReviewStatsRepository houseReviewStatsRepository;
+
+	public HouseReviewStatsService(HouseReviewStatsRepository houseReviewStatsRepository) {
+		this.houseReviewStatsRepository = houseReviewStatsRepository;
+	}
+
+	//民宿のレビューの集計を取得する（集計がない場合はレビュー0件として扱う）
+	public HouseReviewSummary findSummary(Integer houseId) {
+		return houseReviewStatsRepository.findById(houseId)
+				.map(stats -> new HouseReviewSummary(stats.getReviewCount(), stats.getAverageScore(), List.of(
+						stats.getScore1Count(), stats.getScore2Count(), stats.getScore3Count(), stats.getScore4Count(), stats.getScore5Count())))
+				.orElseGet(HouseReviewSummary::empty);
+	}
+
+	//レビューの投稿と同じトランザクション内で集計に加える
+	@Transactional
+	public void addScore(Integer houseId, int score) {
+		HouseReviewStats stats = lock(houseId);
+		apply(stats, score, 1);
+		houseReviewStatsRepository.save(stats);
+	}
+
+	//レビューの編集と同じトランザクション内で、変更前の評価を変更後の評価に置き換える
+	@Transactional
+	public void changeScore(Integer houseId, int oldScore, int newScore) {
+		if(oldScore == newScore) {
+			return;
+		}
+
+		HouseReviewStats stats = lock(houseId);
+		apply(stats, oldScore, -1);
+		apply(stats, newScore, 1);
+		houseReviewStatsRepository.save(stats);
+	}
+
+	//レビューの削除と同じトランザクション内で集計から除く
+	@Transactional
+	public void removeScore(Integer houseId, int score) {
+		HouseReviewStats stats = lock(houseId);
+		apply(stats, score, -1);
+		houseReviewStatsRepository.save(stats);
+	}
+
+	private HouseReviewStats lock(Integer houseId) {
+		houseReviewStatsRepository.insertIfAbsent(houseId);
+		return houseReviewStatsRepository.findForUpdate(houseId).orElseThrow();
+	}
+
+	//件数・合計・評価ごとの件数に差分を加え、平均評価を計算し直す
+	private void apply(HouseReviewStats stats, int score, int delta) {
+		switch(score) {
+			case 1 -> stats.setScore1Count(stats.getScore1Count() + delta);
+			case 2 -> stats.setScore2Count(stats.getScore2Count() + delta);
+			case 3 -> stats.setScore3Count(stats.getScore3Count() + delta);
+			case 4 -> stats.setScore4Count(stats.getScore4Count() + delta);
+			case 5 -> stats.setScore5Count(stats.getScore5Count() + delta);
+			default -> throw new IllegalArgumentException("Invalid score: " + score);
+		}
+
+		stats.setReviewCount(stats.getReviewCount() + delta);
+		stats.setScoreSum(stats.getScoreSum() + score * delta);
+		stats.setAverageScore(stats.getReviewCount() == 0 ? BigDecimal.ZERO
+				: BigDecimal.valueOf(stats.getScoreSum()).divide(BigDecimal.valueOf(stats.getReviewCount()), 2, RoundingMode.HALF_UP));
+	}
+}
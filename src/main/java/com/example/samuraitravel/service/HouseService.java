@@ -1,13 +1,14 @@
 package com.example.samuraitravel.service;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,17 +16,53 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.dto.HouseSearchCriteria;
 import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.event.HouseChangedEventPublisher;
 import com.example.samuraitravel.form.HouseEditForm;
 import com.example.samuraitravel.form.HouseRegisterForm;
+import com.example.samuraitravel.repository.FavoriteRepository;
+import com.example.samuraitravel.repository.HousePopularityRepository;
 import com.example.samuraitravel.repository.HouseRepository;
+import com.example.samuraitravel.repository.HouseReviewStatsRepository;
+import com.example.samuraitravel.repository.ReservationRepository;
+import com.example.samuraitravel.repository.ReviewRepository;
 
 @Service
 public class HouseService {
 	private final HouseRepository houseRepository;
-	
-	public HouseService(HouseRepository houseRepository) {
+	private final ReservationRepository reservationRepository;
+	private final ReviewRepository reviewRepository;
+	private final FavoriteRepository favoriteRepository;
+	private final HousePopularityRepository housePopularityRepository;
+	private final HouseReviewStatsRepository houseReviewStatsRepository;
+	private final HousePopularityService housePopularityService;
+	private final HouseKeywordIndex houseKeywordIndex;
+	private final HouseAvailabilityService houseAvailabilityService;
+	private final ImageStorage imageStorage;
+	private final HouseChangedEventPublisher houseChangedEventPublisher;
+	private final int maxIdParameters;
+	
+	public HouseService(HouseRepository houseRepository, ReservationRepository reservationRepository, ReviewRepository reviewRepository,
+						FavoriteRepository favoriteRepository, HousePopularityRepository housePopularityRepository, HouseReviewStatsRepository houseReviewStatsRepository,
+						HousePopularityService housePopularityService,
+						HouseKeywordIndex houseKeywordIndex, HouseAvailabilityService houseAvailabilityService, ImageStorage imageStorage,
+						HouseChangedEventPublisher houseChangedEventPublisher,
+						@Value("${samuraitravel.house-search.max-id-parameters:1000}") int maxIdParameters) {
 		this.houseRepository = houseRepository;
+		this.reservationRepository = reservationRepository;
+		this.reviewRepository = reviewRepository;
+		this.favoriteRepository = favoriteRepository;
+		this.housePopularityRepository = housePopularityRepository;
+		this.houseReviewStatsRepository = houseReviewStatsRepository;
+		this.housePopularityService = housePopularityService;
+		this.houseKeywordIndex = houseKeywordIndex;
+		this.houseAvailabilityService = houseAvailabilityService;
+		this.imageStorage = imageStorage;
+		this.houseChangedEventPublisher = houseChangedEventPublisher;
+		this.maxIdParameters = maxIdParameters;
 	}
 	
 	//すべての民宿をページングされた状態で所得する
@@ -44,6 +81,11 @@ public class HouseService {
 		return houseRepository.findById(id);
 	}
 	
+	//検索条件に使うための民宿の参照を取得する（民宿テーブルにはアクセスしない）
+	public House getHouseReference(Integer id) {
+		return houseRepository.getReferenceById(id);
+	}
+	
 	//民宿のレコード数を取得する
 	public long countHouses() {
 		return houseRepository.count();
@@ -54,54 +96,61 @@ public class HouseService {
 		return houseRepository.findFirstByOrderByIdDesc();
 	}
 	
-	//指定されたキーワードを民宿名または住所に含む民宿を作成日時が新しい順に並べ替え、ページングされた状態で取得する
-	public Page<House> findHousesByNameLikeOrAddressLikeOrderByCreatedAtDesc(String nameKeyword, String addressKeyword, Pageable pageable) {
-		return houseRepository.findByNameLikeOrAddressLikeOrderByCreatedAtDesc("%" + nameKeyword + "%", "%" + addressKeyword + "%", pageable);
-	}
-	
-	//指定されたキーワードを民宿名または住所に含む民宿を宿泊料金が安い順に並べ替え、ページングされた状態で取得する
-	public Page<House> findHousesByNameLikeOrAddressLikeOrderByPriceAsc(String nameKeyword, String addressKeyword, Pageable pageable) {
-		return houseRepository.findByNameLikeOrAddressLikeOrderByPriceAsc("%" + nameKeyword + "%", "%" + addressKeyword + "%", pageable);
-	}
-	
-	//指定されたキーワードを住所に含む民宿を作成日時が新しい順に並べ替え、ページングされた状態で取得する
-	public Page<House> findHousesByAddressLikeOrderByCreatedAtDesc(String area, Pageable pageable) {
-		return houseRepository.findByAddressLikeOrderByCreatedAtDesc("%" + area + "%", pageable);
-	}
-	
-	//指定されたキーワードを住所に含む民宿を宿泊料金が安い順に並べ替え、ページングされた状態で取得する
-	public Page<House> findHousesByAddressLikeOrderByPriceAsc(String area, Pageable pageable) {
-		return houseRepository.findByAddressLikeOrderByPriceAsc("%" + area + "%", pageable);
+	//キーワード・エリア・料金・定員・並べ替え順を組み合わせて民宿を検索し、一覧表示用のプロジェクションをカーソルの位置から指定された件数だけ取得する
+	public CursorPage<HouseListItem> searchHouses(HouseSearchCriteria criteria, String cursor, int size) {
+		//キーワードはメモリ上の索引で民宿IDに変換し、テーブル全件のLIKE検索を避ける（索引の構築前はLIKE検索のまま）
+		//該当する民宿が多すぎる場合はIN句のパラメーター数の上限を超えるためLIKE検索にする
+		//（多くの民宿が該当するキーワードなら、並べ替え順のインデックスを読み進めるうちにすぐ1ページ分見つかる）
+		if(criteria.hasKeyword() && houseKeywordIndex.isReady()) {
+			List<Integer> houseIds = houseKeywordIndex.search(criteria.getKeyword());
+			if(houseIds.size() <= maxIdParameters) {
+				criteria.setHouseIds(houseIds);
+			}
+		}
+		
+		//宿泊期間に予約が入っている民宿は、メモリ上の予約状況から求めて除外する
+		//予約が入っている民宿が多すぎる場合は、除外する民宿IDを渡さず予約テーブルのサブクエリで除外する
+		if(criteria.hasStayPeriod()) {
+			Set<Integer> occupiedHouseIds = houseAvailabilityService.findOccupiedHouseIds(criteria.getCheckinDate(), criteria.getCheckoutDate());
+			if(criteria.getHouseIds() != null) {
+				criteria.setHouseIds(criteria.getHouseIds().stream().filter(id -> !occupiedHouseIds.contains(id)).toList());
+			} else if(occupiedHouseIds.size() <= maxIdParameters) {
+				criteria.setExcludedHouseIds(occupiedHouseIds);
+			}
+		}
+		
+		//並べ替え順が変わった場合は、以前のカーソルを使わず先頭から取得する
+		KeysetScrollPosition position = CursorPage.decode(cursor, cursorKeysOf(criteria));
+		return CursorPage.of(houseRepository.scroll(criteria, position, size), position.isInitial());
 	}
 	
-	//指定された宿泊料金以下の民宿を作成日時が新しい順に並べ替え、ページングされた状態で取得する
-	public Page<House> findHousesByPriceLessThanEqualOrderByCreatedAtDesc(Integer price, Pageable pageable) {
-		return houseRepository.findByPriceLessThanEqualOrderByCreatedAtDesc(price, pageable);
+	//並べ替え順ごとにカーソルに含めるキー
+	private Map<String, Class<?>> cursorKeysOf(HouseSearchCriteria criteria) {
+		if(criteria.isOrderByPriceAsc()) {
+			return CursorPage.PRICE_ASC_KEYS;
+		}
+		if(criteria.isOrderByRatingDesc()) {
+			return CursorPage.RATING_DESC_KEYS;
+		}
+		return CursorPage.CREATED_AT_DESC_KEYS;
 	}
 	
-	//指定された宿泊料金以下の民宿を宿泊料金が安い順に並べ替え、ページングされた状態で取得する
-	public Page<House> findHousesByPriceLessThanEqualOrderByPriceAsc(Integer price, Pageable pageable) {
-		return houseRepository.findByPriceLessThanEqualOrderByPriceAsc(price, pageable);
+	//作成日時が新しい順に指定された件数の民宿を取得する
+	public List<HouseListItem> findNewHouses(int limit) {
+		return houseRepository.findListItemsByOrderByCreatedAtDesc(PageRequest.of(0, limit));
 	}
 	
-	//指定された宿泊料金以下の民宿を作成日時が新しい順に並べ替え、ページングされた状態で取得する
-	public Page<House> findAllHousesByOrderByCreatedAtDesc(Pageable pageable) {
-		return houseRepository.findAllByOrderByCreatedAtDesc(pageable);
-	}
+	//予約数が多い順に指定された件数の民宿を取得する（予約テーブルは集計せず、メモリ上のランキングを使う）
+	public List<HouseListItem> findPopularHouses(int limit) {
+		List<Integer> houseIds = housePopularityService.findTopHouseIds(limit);
+		if(houseIds.isEmpty()) {
+			return List.of();
+		}
 		
-	//指定された宿泊料金以下の民宿を宿泊料金が安い順に並べ替え、ページングされた状態で取得する
-	public Page<House> findAllHousesByOrderByPriceAsc(Pageable pageable) {
-		return houseRepository.findAllByOrderByPriceAsc(pageable);
-	}
-	
-	//作成日時が新しい順に8件の民宿を取得する
-	public List<House> findTop8HouseByOrderByCreatedAtDesc() {
-		return houseRepository.findTop8ByOrderByCreatedAtDesc();
-	}
-	
-	//予約数が多い順に3件の民宿を取得する
-	public List<House> findTop3HouseByOrderByReservationCountDesc() {
-		return houseRepository.findAllByOrderByReservationCountDesc(PageRequest.of(0, 3));
+		List<HouseListItem> houses = new ArrayList<>(houseRepository.findListItemsByIdIn(houseIds));
+		houses.sort(Comparator.comparingInt(house -> houseIds.indexOf(house.getId())));
+		
+		return houses;
 	}
 	
 	@Transactional  //民宿新規登録メソッド
@@ -110,11 +159,8 @@ public class HouseService {
 		MultipartFile imageFile = houseRegisterForm.getImageFile(); // フォームから画像ファイルを取得
 		
 		if(!imageFile.isEmpty()) { // 画像ファイルが空でない場合
-			String imageName = imageFile.getOriginalFilename(); // 画像の元のファイル名を取得
-			String hashedImageName = generateNewFileName(imageName); // 新しいファイル名を生成
-			Path filePath = Paths.get("src/main/resources/static/storage/" + hashedImageName); // ファイルの保存先パスを設定
-			copyImageFile(imageFile, filePath); // 画像ファイルを指定したパスにコピー
-			house.setImageName(hashedImageName); // Houseオブジェクトに画像名を設定
+			String imageName = imageStorage.store(imageFile); // 画像を保存し、内容から生成した画像名を取得
+			house.setImageName(imageName); // Houseオブジェクトに画像名を設定
 		}
 		
 		house.setName(houseRegisterForm.getName());
@@ -126,6 +172,9 @@ public class HouseService {
 		house.setPhoneNumber(houseRegisterForm.getPhoneNumber());
 		
 		houseRepository.save(house);
+		//評価の高い順の一覧に含まれるよう、レビュー0件の集計を作成しておく
+		houseReviewStatsRepository.insertIfAbsent(house.getId());
+		houseChangedEventPublisher.publishHouseSavedEvent(house);
 	}
 	
 	@Transactional  //民宿更新メソッド
@@ -133,11 +182,8 @@ public class HouseService {
 		MultipartFile imageFile = houseEditForm.getImageFile();
 		
 		if(!imageFile.isEmpty()) {
-			String imageName = imageFile.getOriginalFilename();
-			String hashedImageName = generateNewFileName(imageName);
-			Path filePath = Paths.get("src/main/resources/static/storage/" + hashedImageName);
-			copyImageFile(imageFile, filePath);
-			house.setImageName(hashedImageName);
+			String imageName = imageStorage.store(imageFile);
+			house.setImageName(imageName);
 		}
 		
 		house.setName(houseEditForm.getName());
@@ -149,32 +195,19 @@ public class HouseService {
 		house.setPhoneNumber(houseEditForm.getPhoneNumber());
 		
 		houseRepository.save(house);
+		houseChangedEventPublisher.publishHouseSavedEvent(house);
 	}
 	
 	@Transactional
 	public void deleteHouse(House house) {
+		//関連する予約・レビュー・お気に入り・予約数・レビューの集計を一括削除してから民宿を削除する（コレクションを読み込まない）
+		reservationRepository.deleteByHouse(house);
+		reviewRepository.deleteByHouse(house);
+		houseReviewStatsRepository.deleteByHouseId(house.getId());
+		favoriteRepository.deleteByHouse(house);
+		housePopularityRepository.deleteByHouseId(house.getId());
+		houseAvailabilityService.deleteByHouseId(house.getId());
 		houseRepository.delete(house);
+		houseChangedEventPublisher.publishHouseDeletedEvent(house);
 	}
-		
-	// UUIDを使って生成したファイル名を返す
-	public String generateNewFileName(String fileName) {
-		String[] fileNames = fileName.split("\\."); // ファイル名をドットで分割し、拡張子を含む配列を作成
-		
-		for(int i = 0; i < fileNames.length - 1; i++) {
-			fileNames[i] = UUID.randomUUID().toString(); // 拡張子以外の各部分にUUIDを設定
-		}
-		
-		String hashedFileName = String.join(".", fileNames); // 分割した部分をドットで再結合し、新しいファイル名を生成
-		
-		return hashedFileName; // 生成した新しいファイル名を返す
-	}
-	
-	//画像ファイルを指定したファイルにコピーする
-	public void copyImageFile(MultipartFile imageFile, Path filePath) {
-		try {
-			Files.copy(imageFile.getInputStream(), filePath); // 画像ファイルの入力ストリームを指定したパスにコピー
-		} catch (IOException e) {
-			e.printStackTrace(); // 入出力例外が発生した場合、スタックトレースを出力
-		}
-	}
-}
\ No newline at end of file
+}
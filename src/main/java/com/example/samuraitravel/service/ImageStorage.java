@@ -0,0 +1,69 @@
+package com.example.samuraitravel.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+//民宿画像の保存先（ローカルのファイルシステムまたはS3互換のストレージ）
+//画像は内容のSHA-256ハッシュ値を名前にして保存するため、同じ名前の画像の内容は変わらない
+public interface ImageStorage {
+	//保存先で使う画像名の形式（ハッシュ値.拡張子）
+	Pattern IMAGE_NAME_PATTERN = Pattern.compile("[0-9A-Za-z_-]{1,128}\\.[0-9a-z]{1,10}");
+	
+	//アップロードされた画像を保存し、保存した画像名を返す（同じ内容の画像がすでにあれば書き込まない）
+	String store(MultipartFile imageFile);
+	
+	//生成した画像を指定した名前で保存する（縮小画像など、名前が内容から決まっている画像に使う）
+	void put(String imageName, Path file, String contentType);
+	
+	//指定した名前の画像が保存されているかどうか
+	boolean exists(String imageName);
+	
+	//保存されている画像を返す（存在しない場合は空）
+	Optional<Resource> load(String imageName);
+	
+	//画像名が保存先で使う形式かどうか（パスの操作に使える文字を含まない）
+	static boolean isValidImageName(String imageName) {
+		return imageName != null && IMAGE_NAME_PATTERN.matcher(imageName).matches();
+	}
+	
+	//入力ストリームをファイルに書き出しながらSHA-256ハッシュ値を計算し、16進数の文字列で返す
+	static String copyAndHash(InputStream inputStream, Path target) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		try(InputStream digestInputStream = new DigestInputStream(inputStream, messageDigest);
+			OutputStream outputStream = Files.newOutputStream(target)) {
+			digestInputStream.transferTo(outputStream);
+		}
+		
+		return HexFormat.of().formatHex(messageDigest.digest());
+	}
+	
+	//ハッシュ値と元のファイル名の拡張子から画像名を生成する
+	static String toImageName(String hash, String originalFilename) {
+		String extension = StringUtils.getFilenameExtension(originalFilename);
+		if(extension == null || !extension.matches("[0-9A-Za-z]{1,10}")) {
+			extension = "bin";
+		}
+		
+		return hash + "." + extension.toLowerCase(Locale.ROOT);
+	}
+}
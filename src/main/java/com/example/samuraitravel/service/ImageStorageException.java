@@ -0,0 +1,8 @@
+package com.example.samuraitravel.service;
+
+//画像の保存・読み込みに失敗した場合の例外
+public class ImageStorageException extends RuntimeException {
+	public ImageStorageException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.samuraitravel.service;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.util.StringUtils;
+
+//一覧や詳細ページの表示幅に合わせて縮小した民宿画像の種類
+public enum ImageVariant {
+	THUMBNAIL(320),
+	CARD(640),
+	HERO(1280);
+	
+	//縮小画像の名前の形式（元の画像名の拡張子以外_元の拡張子_幅w.jpg）
+	private static final Pattern NAME_PATTERN = Pattern.compile("([0-9A-Za-z-]{1,128})_([0-9a-z]{1,10})_([0-9]{1,5})w\\.jpg");
+	
+	private final int width;
+	
+	ImageVariant(int width) {
+		this.width = width;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	//元の画像名から縮小画像の名前を生成する（元の画像名から一意に決まる）
+	public String nameFor(String imageName) {
+		return StringUtils.stripFilenameExtension(imageName) + "_" + StringUtils.getFilenameExtension(imageName) + "_" + width + "w.jpg";
+	}
+	
+	//縮小画像の名前であれば、元の画像名を返す
+	public static Optional<String> findOriginalName(String name) {
+		Matcher matcher = NAME_PATTERN.matcher(name);
+		if(!matcher.matches()) {
+			return Optional.empty();
+		}
+		
+		for(ImageVariant variant : values()) {
+			if(Integer.toString(variant.width).equals(matcher.group(3))) {
+				return Optional.of(matcher.group(1) + "." + matcher.group(2));
+			}
+		}
+		
+		return Optional.empty();
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.samuraitravel.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+//民宿画像をローカルのファイルシステムに保存する（既定の保存先）
+@Component
+@ConditionalOnProperty(name = "samuraitravel.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalImageStorage implements ImageStorage {
+	private final Path root;
+	
+	public LocalImageStorage(@Value("${samuraitravel.storage.local.root:storage}") String root) throws IOException {
+		this.root = Paths.get(root).toAbsolutePath().normalize();
+		Files.createDirectories(this.root);
+	}
+	
+	@Override
+	public String store(MultipartFile imageFile) {
+		Path tempFile = null;
+		try {
+			//保存先と同じディレクトリの一時ファイルに書き出し、完成してから名前を変更する（書き込み途中の画像を配信しない）
+			tempFile = Files.createTempFile(root, "upload-", ".tmp");
+			
+			String hash;
+			try(InputStream inputStream = imageFile.getInputStream()) {
+				hash = ImageStorage.copyAndHash(inputStream, tempFile);
+			}
+			
+			String imageName = ImageStorage.toImageName(hash, imageFile.getOriginalFilename());
+			Path target = root.resolve(imageName);
+			
+			if(Files.exists(target)) {
+				//同じ内容の画像がすでに保存されている
+				Files.delete(tempFile);
+			} else {
+				Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+			}
+			
+			return imageName;
+		} catch(IOException e) {
+			deleteQuietly(tempFile);
+			throw new ImageStorageException("画像の保存に失敗しました。", e);
+		}
+	}
+	
+	@Override
+	public void put(String imageName, Path file, String contentType) {
+		if(!ImageStorage.isValidImageName(imageName)) {
+			throw new IllegalArgumentException("Invalid image name: " + imageName);
+		}
+		
+		Path tempFile = null;
+		try {
+			tempFile = Files.createTempFile(root, "upload-", ".tmp");
+			Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempFile, root.resolve(imageName), StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			deleteQuietly(tempFile);
+			throw new ImageStorageException("画像の保存に失敗しました。", e);
+		}
+	}
+	
+	@Override
+	public boolean exists(String imageName) {
+		return ImageStorage.isValidImageName(imageName) && Files.isRegularFile(root.resolve(imageName));
+	}
+	
+	@Override
+	public Optional<Resource> load(String imageName) {
+		if(!ImageStorage.isValidImageName(imageName)) {
+			return Optional.empty();
+		}
+		
+		Path path = root.resolve(imageName);
+		if(!Files.isRegularFile(path)) {
+			return Optional.empty();
+		}
+		
+		return Optional.of(new FileSystemResource(path));
+	}
+	
+	private void deleteQuietly(Path path) {
+		if(path == null) {
+			return;
+		}
+		
+		try {
+			Files.deleteIfExists(path);
+		} catch(IOException e) {
+			System.out.println("一時ファイルを削除できませんでした: " + path);
+		}
+	}
+}
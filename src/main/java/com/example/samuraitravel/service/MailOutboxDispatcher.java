@@ -0,0 +1,124 @@
+package com.example.samuraitravel.service;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.samuraitravel.entity.OutboxMail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//送信待ちのメールを定期的に取り出し、まとめて送信する
+//1回の送信で複数のメールを同じSMTP接続に流すため、メールごとに接続し直さない
+//送信しないサーバーでは無効にでき、送信待ちのメールは有効なサーバーが送信する
+@Component
+@ConditionalOnProperty(name = "samuraitravel.mail.outbox.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class MailOutboxDispatcher {
+	private final MailOutboxService mailOutboxService;
+	private final JavaMailSender javaMailSender;
+	private final int batchSize;
+	
+	private final Timer sendTimer;
+	private final Counter sentCounter;
+	private final Counter failedCounter;
+	private final AtomicLong pendingCount = new AtomicLong();
+	
+	public MailOutboxDispatcher(MailOutboxService mailOutboxService, JavaMailSender javaMailSender, MeterRegistry meterRegistry,
+								@Value("${samuraitravel.mail.outbox.batch-size:50}") int batchSize) {
+		this.mailOutboxService = mailOutboxService;
+		this.javaMailSender = javaMailSender;
+		this.batchSize = batchSize;
+		
+		this.sendTimer = Timer.builder("mail.outbox.send")
+				.description("送信待ちのメールをまとめて送信するのにかかった時間")
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+		this.sentCounter = Counter.builder("mail.outbox.sent")
+				.description("送信できたメールの数")
+				.register(meterRegistry);
+		this.failedCounter = Counter.builder("mail.outbox.failed")
+				.description("送信に失敗したメールの数（再送分を含む）")
+				.register(meterRegistry);
+		Gauge.builder("mail.outbox.pending", pendingCount, AtomicLong::get)
+				.description("送信待ちのメールの数")
+				.register(meterRegistry);
+	}
+	
+	@Scheduled(fixedDelayString = "${samuraitravel.mail.outbox.poll-interval:PT1S}")
+	public void dispatch() {
+		List<OutboxMail> outboxMails;
+		do {
+			outboxMails = mailOutboxService.claimDueMails(batchSize);
+			if(!outboxMails.isEmpty()) {
+				send(outboxMails);
+			}
+		} while(outboxMails.size() == batchSize);
+		
+		pendingCount.set(mailOutboxService.countPendingMails());
+	}
+	
+	private void send(List<OutboxMail> outboxMails) {
+		//同じ内容のメールを区別するため、メッセージのインスタンスごとにIDを対応させる
+		Map<SimpleMailMessage, Long> ids = new IdentityHashMap<>();
+		for(OutboxMail outboxMail : outboxMails) {
+			SimpleMailMessage mailMessage = new SimpleMailMessage();
+			mailMessage.setFrom(outboxMail.getMailFrom());
+			mailMessage.setTo(outboxMail.getMailTo());
+			mailMessage.setSubject(outboxMail.getSubject());
+			mailMessage.setText(outboxMail.getBody());
+			ids.put(mailMessage, outboxMail.getId());
+		}
+		
+		List<Long> failedIds = new ArrayList<>();
+		MailException failure = null;
+		
+		Timer.Sample sample = Timer.start();
+		try {
+			javaMailSender.send(ids.keySet().toArray(new SimpleMailMessage[0]));
+		} catch(MailSendException e) {
+			failure = e;
+			//一部のメールだけが失敗した場合は、失敗したものだけを再送する
+			for(Object failedMessage : e.getFailedMessages().keySet()) {
+				Long id = ids.get(failedMessage);
+				if(id != null) {
+					failedIds.add(id);
+				}
+			}
+			if(failedIds.isEmpty()) {
+				failedIds.addAll(ids.values());
+			}
+		} catch(MailException e) {
+			//SMTPサーバーに接続できない場合などは、すべてのメールを再送する
+			failure = e;
+			failedIds.addAll(ids.values());
+		} finally {
+			sample.stop(sendTimer);
+		}
+		
+		List<Long> sentIds = new ArrayList<>(ids.values());
+		sentIds.removeAll(failedIds);
+		
+		if(!sentIds.isEmpty()) {
+			mailOutboxService.markSent(sentIds);
+			sentCounter.increment(sentIds.size());
+		}
+		if(failure != null) {
+			mailOutboxService.recordFailure(failedIds, failure);
+			failedCounter.increment(failedIds.size());
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.example.samuraitravel.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.samuraitravel.entity.OutboxMail;
+import com.example.samuraitravel.repository.OutboxMailRepository;
+
+//送信待ちのメールの保存・取り出し・送信結果の記録
+@Service
+public class MailOutboxService {
+	//送信中のまま止まっているとみなすまでの時間
+	private static final Duration SENDING_TIMEOUT = Duration.ofMinutes(10);
+	
+	//再送の間隔の上限
+	private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+	
+	private final OutboxMailRepository outboxMailRepository;
+	private final int maxAttempts;
+	private final Duration retryBackoff;
+	
+	public MailOutboxService(OutboxMailRepository outboxMailRepository,
+							 @Value("${samuraitravel.mail.outbox.max-attempts:10}") int maxAttempts,
+							 @Value("${samuraitravel.mail.outbox.retry-backoff:PT30S}") Duration retryBackoff) {
+		this.outboxMailRepository = outboxMailRepository;
+		this.maxAttempts = maxAttempts;
+		this.retryBackoff = retryBackoff;
+	}
+	
+	//メールを送信待ちとして保存する（呼び出し元のトランザクションがコミットされた場合だけ送信される）
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void enqueue(String from, String to, String subject, String body) {
+		OutboxMail outboxMail = new OutboxMail();
+		outboxMail.setMailFrom(from);
+		outboxMail.setMailTo(to);
+		outboxMail.setSubject(subject);
+		outboxMail.setBody(body);
+		
+		outboxMailRepository.save(outboxMail);
+	}
+	
+	//送信すべきメールを送信中にして返す（他のサーバーが送信中にしたものは含まない）
+	@Transactional
+	public List<OutboxMail> claimDueMails(int limit) {
+		Instant now = Instant.now();
+		Timestamp nowTimestamp = Timestamp.from(now);
+		Timestamp staleBefore = Timestamp.from(now.minus(SENDING_TIMEOUT));
+		
+		//送信中のまま止まっているメールを先に取り出す
+		List<Long> dueIds = new ArrayList<>(outboxMailRepository.findStaleIds(staleBefore, PageRequest.of(0, limit)));
+		if(dueIds.size() < limit) {
+			dueIds.addAll(outboxMailRepository.findDueIds(nowTimestamp, PageRequest.of(0, limit - dueIds.size())));
+		}
+		
+		List<Long> claimedIds = new ArrayList<>();
+		for(Long id : dueIds) {
+			if(outboxMailRepository.claim(id, nowTimestamp, staleBefore) == 1) {
+				claimedIds.add(id);
+			}
+		}
+		
+		return outboxMailRepository.findAllById(claimedIds);
+	}
+	
+	//送信できたメールを送信済みにする
+	@Transactional
+	public void markSent(Collection<Long> ids) {
+		Timestamp now = Timestamp.from(Instant.now());
+		
+		for(OutboxMail outboxMail : outboxMailRepository.findAllById(ids)) {
+			outboxMail.setStatus(OutboxMail.STATUS_SENT);
+			outboxMail.setSentAt(now);
+			outboxMail.setLockedAt(null);
+			outboxMail.setLastError(null);
+		}
+	}
+	
+	//送信に失敗したことを記録する（上限回数までは間隔を倍々に空けて送信待ちに戻す）
+	@Transactional
+	public void recordFailure(Collection<Long> ids, Exception exception) {
+		String message = exception.getClass().getSimpleName() + ": " + exception.getMessage();
+		if(message.length() > 1000) {
+			message = message.substring(0, 1000);
+		}
+		
+		for(OutboxMail outboxMail : outboxMailRepository.findAllById(ids)) {
+			outboxMail.setLastError(message);
+			outboxMail.setLockedAt(null);
+			
+			if(outboxMail.getAttempts() < maxAttempts) {
+				Duration backoff = retryBackoff.multipliedBy(1L << Math.min(outboxMail.getAttempts() - 1, 20));
+				if(backoff.compareTo(MAX_BACKOFF) > 0) {
+					backoff = MAX_BACKOFF;
+				}
+				outboxMail.setStatus(OutboxMail.STATUS_PENDING);
+				outboxMail.setNextAttemptAt(Timestamp.from(Instant.now().plus(backoff)));
+			} else {
+				outboxMail.setStatus(OutboxMail.STATUS_FAILED);
+				System.out.println("メールの送信を中止しました。ID: " + outboxMail.getId() + ", 原因: " + message);
+			}
+		}
+	}
+	
+	public long countPendingMails() {
+		return outboxMailRepository.countByStatus(OutboxMail.STATUS_PENDING);
+	}
+}
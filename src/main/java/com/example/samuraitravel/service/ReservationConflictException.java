@@ -0,0 +1,8 @@
+package com.example.samuraitravel.service;
+
+//予約しようとした期間に、すでに別の予約が入っている場合の例外
+public class ReservationConflictException extends RuntimeException {
+	public ReservationConflictException(String message) {
+		super(message);
+	}
+}
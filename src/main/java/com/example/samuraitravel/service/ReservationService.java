@@ -8,15 +8,17 @@ import java.util.Optional;
 
 import jakarta.persistence.EntityNotFoundException;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
 
+import com.example.samuraitravel.dto.CursorPage;
 import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.Reservation;
 import com.example.samuraitravel.entity.User;
+import com.example.samuraitravel.event.ReservationCreatedEventPublisher;
 import com.example.samuraitravel.repository.HouseRepository;
 import com.example.samuraitravel.repository.ReservationRepository;
 import com.example.samuraitravel.repository.UserRepository;
@@ -26,16 +28,25 @@ public class ReservationService {
 	private final ReservationRepository reservationRepository;
 	private final HouseRepository houseRepository;
 	private final UserRepository userRepository;
+	private final HousePopularityService housePopularityService;
+	private final HouseAvailabilityService houseAvailabilityService;
+	private final ReservationCreatedEventPublisher reservationCreatedEventPublisher;
 	
-	public ReservationService(ReservationRepository reservationRepository, HouseRepository houseRepository, UserRepository userRepository) {
+	public ReservationService(ReservationRepository reservationRepository, HouseRepository houseRepository, UserRepository userRepository,
+							  HousePopularityService housePopularityService, HouseAvailabilityService houseAvailabilityService,
+							  ReservationCreatedEventPublisher reservationCreatedEventPublisher) {
 		this.reservationRepository = reservationRepository;
 		this.houseRepository = houseRepository;
 		this.userRepository = userRepository;
+		this.housePopularityService = housePopularityService;
+		this.houseAvailabilityService = houseAvailabilityService;
+		this.reservationCreatedEventPublisher = reservationCreatedEventPublisher;
 	}
 	
-	//指定されたユーザーに紐ずく予約を作成日時が新しい順に並べ替え、ページングされた状態で取得する
-	public Page<Reservation> findHousesByUserOrderByCreatedAtDesc(User user, Pageable pageable) {
-		return reservationRepository.findByUserOrderByCreatedAtDesc(user, pageable);
+	//指定されたユーザーに紐ずく予約を作成日時が新しい順に並べ替え、カーソルの位置から指定された件数だけ取得する
+	public CursorPage<Reservation> findHousesByUserOrderByCreatedAtDesc(User user, String cursor, int size) {
+		KeysetScrollPosition position = CursorPage.decode(cursor, CursorPage.CREATED_AT_DESC_KEYS);
+		return CursorPage.of(reservationRepository.findByUserOrderByCreatedAtDescIdDesc(user, position, Limit.of(size)), position.isInitial());
 	}
 	
 	//チェックイン日がチェックアウト日よりも前の日かどうかをチェックする
@@ -43,6 +54,11 @@ public class ReservationService {
 		return checkinDate.isBefore(checkoutDate);
 	}
 	
+	//指定された期間に民宿の予約が入っていないかどうかをチェックする
+	public boolean isHouseAvailable(Integer houseId, LocalDate checkinDate, LocalDate checkoutDate) {
+		return houseAvailabilityService.isAvailable(houseId, checkinDate, checkoutDate);
+	}
+	
 	//宿泊人数が定員以下かどうかをチェックする
 	public boolean isWithinCapacity(Integer numberOfPeople, Integer capacity) {
 		return numberOfPeople <= capacity;
@@ -96,6 +112,9 @@ public class ReservationService {
 		Integer numberOfPeople = Integer.valueOf(sessionMetadata.get("numberOfPeople"));
 		Integer amount = Integer.valueOf(sessionMetadata.get("amount"));
 		
+		//予約状況の行をロックして期間の重複を確認する（重複している場合は例外が発生し、予約は登録されない）
+		houseAvailabilityService.occupy(houseId, checkinDate, checkoutDate);
+		
 		reservation.setHouse(house);
 		reservation.setUser(user);
 		reservation.setCheckinDate(checkinDate);
@@ -104,5 +123,9 @@ public class ReservationService {
 		reservation.setAmount(amount);
 		
 		reservationRepository.save(reservation);
+		
+		//人気ランキング用の予約数を同じトランザクション内で加算し、コミット後にランキングへ反映する
+		housePopularityService.incrementReservationCount(houseId);
+		reservationCreatedEventPublisher.publishReservationCreatedEvent(reservation);
 	}
 }
\ No newline at end of file
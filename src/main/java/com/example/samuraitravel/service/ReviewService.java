@@ -1,13 +1,21 @@
 package com.example.samuraitravel.service;
 
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseReviewSummary;
+import com.example.samuraitravel.dto.ReviewListItem;
 import com.example.samuraitravel.entity.House;
 import com.example.samuraitravel.entity.Review;
 import com.example.samuraitravel.entity.User;
@@ -17,22 +25,55 @@ import com.example.samuraitravel.repository.ReviewRepository;
 
 @Service
 public class ReviewService {
+	//民宿詳細ページに最初から表示するレビュー数（続きはJSONで読み込む）
+	private static final int LATEST_REVIEW_COUNT = 6;
+	
 	private final ReviewRepository reviewRepository;
 	private final HouseService houseService;
+	private final HouseReviewStatsService houseReviewStatsService;
 	
-	public ReviewService(ReviewRepository reviewRepository, HouseService houseService) {
+	public ReviewService(ReviewRepository reviewRepository, HouseService houseService, HouseReviewStatsService houseReviewStatsService) {
 		this.reviewRepository = reviewRepository;
 		this.houseService = houseService;
+		this.houseReviewStatsService = houseReviewStatsService;
 	}
 	
-	//すべてのレビューを作成日時が新しい順に民宿詳細に表示するメソッド
-	public List<Review> findReviewByHouseIdOrderByCreatedAtDesc(Integer houseId) {
-		return reviewRepository.findByHouseIdOrderByCreatedAtDesc(houseId);
+	//民宿のレビューの平均評価・件数・評価ごとの件数を、レビューを読み込まずに集計から取得する
+	public HouseReviewSummary findReviewSummary(Integer houseId) {
+		return houseReviewStatsService.findSummary(houseId);
 	}
-
-	//すべてのレビューをページングされた状態で取得するメソッド
-	public Page<Review> findlReviewByHouseId(Integer houseId, Pageable pageable) {
-		return reviewRepository.findByHouseId(houseId,pageable);
+	
+	//民宿詳細ページに表示する最新のレビューを取得する（viewerIdは未ログインの場合null）
+	public CursorPage<ReviewListItem> findLatestReviews(Integer houseId, Integer viewerId) {
+		return findlReviewByHouseId(houseId, null, LATEST_REVIEW_COUNT, viewerId);
+	}
+	
+	//レビューを作成日時が新しい順に、カーソルの位置から指定された件数だけ取得するメソッド
+	//（民宿詳細の最新レビュー、レビュー一覧、続きを読み込むJSONで共通に使う）
+	//閲覧中のユーザー（viewerId、未ログインの場合null）が投稿したレビューには編集できることを設定する
+	public CursorPage<ReviewListItem> findlReviewByHouseId(Integer houseId, String cursor, int size, Integer viewerId) {
+		KeysetScrollPosition position = CursorPage.decode(cursor, CursorPage.CREATED_AT_DESC_KEYS);
+		House house = houseService.getHouseReference(houseId);
+		
+		//次のページの有無を判定するため1件多く取得する
+		List<ReviewListItem> reviews = position.isInitial()
+				? reviewRepository.findLatestListItems(house, Limit.of(size + 1))
+				: reviewRepository.findListItemsAfter(house, (Timestamp)position.getKeys().get("createdAt"), (Integer)position.getKeys().get("id"), Limit.of(size + 1));
+		
+		boolean hasNext = reviews.size() > size;
+		List<ReviewListItem> content = hasNext ? reviews.subList(0, size) : reviews;
+		content.forEach(review -> review.setEditable(viewerId != null && viewerId.equals(review.getUserId())));
+		
+		return CursorPage.of(Window.from(content, index -> positionOf(content.get(index)), hasNext), position.isInitial());
+	}
+	
+	//レビューの位置を、並べ替えに使っている作成日時とidで表す
+	private KeysetScrollPosition positionOf(ReviewListItem review) {
+		Map<String, Object> keys = new LinkedHashMap<>();
+		keys.put("createdAt", review.getCreatedAt());
+		keys.put("id", review.getId());
+		
+		return ScrollPosition.forward(keys);
 	}
 	
 	//指定したidを持つレビューを取得する
@@ -63,11 +104,14 @@ public class ReviewService {
 		review.setUser(user);
 		
 		reviewRepository.save(review);
+		houseReviewStatsService.addScore(review.getHouse().getId(), review.getScore());
 	}
 	
 	//レビューを編集するメソッド
 	@Transactional
 	public void updateReview(ReviewEditForm reviewEditForm, Review review) {
+		houseReviewStatsService.changeScore(review.getHouse().getId(), review.getScore(), reviewEditForm.getScore());
+		
 		review.setScore(reviewEditForm.getScore());
 		review.setComment(reviewEditForm.getComment());
 		
@@ -77,6 +121,10 @@ public class ReviewService {
 	//レビューを削除するメソッド
 	@Transactional
 	public void deleteReview(Review review) {
-		reviewRepository.delete(review);
+		//集計から除く評価と民宿は、画面から受け取った値ではなく保存されているレビューから取得する
+		reviewRepository.findById(review.getId()).ifPresent(storedReview -> {
+			houseReviewStatsService.removeScore(storedReview.getHouse().getId(), storedReview.getScore());
+			reviewRepository.delete(storedReview);
+		});
 	}
 }
\ No newline at end of file
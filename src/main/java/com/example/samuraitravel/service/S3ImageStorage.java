@@ -0,0 +1,157 @@
+package com.example.samuraitravel.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+//民宿画像をS3互換のストレージに保存する（複数台のサーバーで画像を共有する場合に使用する）
+@Component
+@ConditionalOnProperty(name = "samuraitravel.storage.type", havingValue = "s3")
+public class S3ImageStorage implements ImageStorage {
+	private final S3Client s3Client;
+	private final String bucket;
+	private final String prefix;
+	
+	public S3ImageStorage(@Value("${samuraitravel.storage.s3.bucket}") String bucket,
+						  @Value("${samuraitravel.storage.s3.prefix:houses/}") String prefix,
+						  @Value("${samuraitravel.storage.s3.region:ap-northeast-1}") String region,
+						  @Value("${samuraitravel.storage.s3.endpoint:}") String endpoint,
+						  @Value("${samuraitravel.storage.s3.access-key:}") String accessKey,
+						  @Value("${samuraitravel.storage.s3.secret-key:}") String secretKey) {
+		this.bucket = bucket;
+		this.prefix = prefix;
+		
+		S3ClientBuilder builder = S3Client.builder()
+				.httpClientBuilder(UrlConnectionHttpClient.builder())
+				.region(Region.of(region));
+		
+		//S3以外の互換ストレージを使う場合は接続先を指定し、バケット名をパスに含める形式でアクセスする
+		if(!endpoint.isEmpty()) {
+			builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+		}
+		
+		if(!accessKey.isEmpty()) {
+			builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+		} else {
+			builder.credentialsProvider(DefaultCredentialsProvider.create());
+		}
+		
+		this.s3Client = builder.build();
+	}
+	
+	@Override
+	public String store(MultipartFile imageFile) {
+		Path tempFile = null;
+		try {
+			//ハッシュ値を計算するため一時ファイルに書き出す（画像全体をメモリに読み込まない）
+			tempFile = Files.createTempFile("upload-", ".tmp");
+			
+			String hash;
+			try(InputStream inputStream = imageFile.getInputStream()) {
+				hash = ImageStorage.copyAndHash(inputStream, tempFile);
+			}
+			
+			String imageName = ImageStorage.toImageName(hash, imageFile.getOriginalFilename());
+			
+			//同じ内容の画像がすでに保存されていればアップロードしない
+			if(!exists(imageName)) {
+				put(imageName, tempFile, imageFile.getContentType());
+			}
+			
+			return imageName;
+		} catch(IOException | SdkException e) {
+			throw new ImageStorageException("画像の保存に失敗しました。", e);
+		} finally {
+			deleteQuietly(tempFile);
+		}
+	}
+	
+	@Override
+	public void put(String imageName, Path file, String contentType) {
+		try {
+			s3Client.putObject(request -> request
+					.bucket(bucket)
+					.key(prefix + imageName)
+					.contentType(contentType)
+					.cacheControl("public, max-age=31536000, immutable"),
+					RequestBody.fromFile(file));
+		} catch(SdkException e) {
+			throw new ImageStorageException("画像の保存に失敗しました。", e);
+		}
+	}
+	
+	@Override
+	public boolean exists(String imageName) {
+		try {
+			s3Client.headObject(request -> request.bucket(bucket).key(prefix + imageName));
+			return true;
+		} catch(NoSuchKeyException e) {
+			return false;
+		} catch(S3Exception e) {
+			if(e.statusCode() == 404) {
+				return false;
+			}
+			throw new ImageStorageException("画像の確認に失敗しました。", e);
+		}
+	}
+	
+	@Override
+	public Optional<Resource> load(String imageName) {
+		if(!ImageStorage.isValidImageName(imageName)) {
+			return Optional.empty();
+		}
+		
+		try {
+			ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(request -> request.bucket(bucket).key(prefix + imageName));
+			
+			return Optional.of(new InputStreamResource(inputStream, imageName));
+		} catch(NoSuchKeyException e) {
+			return Optional.empty();
+		} catch(SdkException e) {
+			throw new ImageStorageException("画像の読み込みに失敗しました。", e);
+		}
+	}
+	
+	@PreDestroy
+	public void close() {
+		s3Client.close();
+	}
+	
+	private void deleteQuietly(Path path) {
+		if(path == null) {
+			return;
+		}
+		
+		try {
+			Files.deleteIfExists(path);
+		} catch(IOException e) {
+			System.out.println("一時ファイルを削除できませんでした: " + path);
+		}
+	}
+}
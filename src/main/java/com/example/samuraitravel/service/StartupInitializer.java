@@ -0,0 +1,31 @@
+package com.example.samuraitravel.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+//起動完了後にメモリ上の索引を順に構築し、初期化処理ごとの所要時間を出力する
+@Component
+public class StartupInitializer {
+	private final StartupReport startupReport;
+	private final HouseAvailabilityService houseAvailabilityService;
+	private final HousePopularityService housePopularityService;
+	private final HouseKeywordIndex houseKeywordIndex;
+
+	public StartupInitializer(StartupReport startupReport, HouseAvailabilityService houseAvailabilityService,
+							  HousePopularityService housePopularityService, HouseKeywordIndex houseKeywordIndex) {
+		this.startupReport = startupReport;
+		this.houseAvailabilityService = houseAvailabilityService;
+		this.housePopularityService = housePopularityService;
+		this.houseKeywordIndex = houseKeywordIndex;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void initialize(ApplicationReadyEvent applicationReadyEvent) {
+		startupReport.measure("予約状況の索引の読み込み", houseAvailabilityService::load);
+		startupReport.measure("人気ランキングの集計", housePopularityService::reconcile);
+		startupReport.measure("キーワード索引の構築", houseKeywordIndex::rebuild);
+
+		System.out.println(startupReport.format(applicationReadyEvent.getTimeTaken()));
+	}
+}
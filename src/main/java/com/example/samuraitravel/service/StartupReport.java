@@ -0,0 +1,41 @@
+package com.example.samuraitravel.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+//起動時の初期化処理ごとの所要時間を記録し、起動完了時にまとめて出力できるようにする
+@Component
+public class StartupReport {
+	//初期化処理の名前 → 所要時間（実行した順）
+	private final Map<String, Duration> phases = new LinkedHashMap<>();
+
+	//初期化処理を実行し、所要時間を記録する
+	public void measure(String phase, Runnable task) {
+		long start = System.nanoTime();
+		try {
+			task.run();
+		} finally {
+			record(phase, Duration.ofNanos(System.nanoTime() - start));
+		}
+	}
+
+	public synchronized void record(String phase, Duration duration) {
+		phases.put(phase, duration);
+	}
+
+	public synchronized Map<String, Duration> getPhases() {
+		return new LinkedHashMap<>(phases);
+	}
+
+	//記録した所要時間を1行ずつ並べた文字列にする
+	public synchronized String format(Duration timeTaken) {
+		StringBuilder builder = new StringBuilder("起動時の初期化処理の所要時間");
+		phases.forEach((phase, duration) -> builder.append(System.lineSeparator())
+				.append("  ").append(phase).append(": ").append(duration.toMillis()).append("ms"));
+		builder.append(System.lineSeparator()).append("  リクエストの受付開始まで: ").append(timeTaken.toMillis()).append("ms");
+		return builder.toString();
+	}
+}
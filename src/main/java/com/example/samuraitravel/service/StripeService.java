@@ -1,6 +1,10 @@
 package com.example.samuraitravel.service;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -8,12 +12,17 @@ import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.samuraitravel.dto.ReservationDTO;
 import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.entity.PendingReservation;
 import com.example.samuraitravel.entity.User;
 import com.example.samuraitravel.repository.HouseRepository;
+import com.example.samuraitravel.repository.PendingReservationRepository;
+import com.example.samuraitravel.repository.UserRepository;
 import com.stripe.Stripe;
 import com.stripe.exception.ApiConnectionException;
 import com.stripe.exception.ApiException;
@@ -23,13 +32,19 @@ import com.stripe.exception.PermissionException;
 import com.stripe.exception.RateLimitException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
+import com.stripe.model.Refund;
 import com.stripe.model.StripeObject;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import com.stripe.param.checkout.SessionCreateParams.Mode;
 import com.stripe.param.checkout.SessionCreateParams.PaymentMethodType;
 import com.stripe.param.checkout.SessionRetrieveParams;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 
 @Service
 public class StripeService {
@@ -39,11 +54,16 @@ public class StripeService {
 	private static final long QUANTITY = 1L; //数量
 	private static final Mode MODE = SessionCreateParams.Mode.PAYMENT; //支払いモード
 	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd"); //日付のフォーマット
+	private static final Duration PENDING_RESERVATION_RETENTION = Duration.ofDays(2); //決済されなかった予約内容の保持期間
 
 	//Stripeのシークレットキー
 	@Value("${stripe.api-key}")
 	private String stripeApiKey;
 	
+	//StripeのAPIの接続先（テストでローカルのスタブに向ける場合のみ指定する）
+	@Value("${stripe.api-base:}")
+	private String stripeApiBase;
+	
 	//決済成功時のれダイレクト先URL
 	@Value("${stripe.success-url}")
 	private String stripeSuccessUrl;
@@ -53,11 +73,20 @@ public class StripeService {
 	private String stripeCancelUrl;
 	
 	private final HouseRepository houseRepository;
+	private final UserRepository userRepository;
+	private final PendingReservationRepository pendingReservationRepository;
 	private final ReservationService reservationService;
+	private final MailOutboxService mailOutboxService;
+	private final MeterRegistry meterRegistry;
 	
-	public StripeService(HouseRepository houseRepository, ReservationService reservationService) {
+	public StripeService(HouseRepository houseRepository, UserRepository userRepository, PendingReservationRepository pendingReservationRepository,
+						 ReservationService reservationService, MailOutboxService mailOutboxService, MeterRegistry meterRegistry) {
 		this.houseRepository = houseRepository;
+		this.userRepository = userRepository;
+		this.pendingReservationRepository = pendingReservationRepository;
 		this.reservationService = reservationService;
+		this.mailOutboxService = mailOutboxService;
+		this.meterRegistry = meterRegistry;
 	}
 	
 	//依存性の注入後に一度だけ実行するメソッド
@@ -65,9 +94,13 @@ public class StripeService {
 	private void init() {
 		//Stripeのシークレットキーを設定する
 		Stripe.apiKey = stripeApiKey;
+		
+		if(!stripeApiBase.isEmpty()) {
+			Stripe.overrideApiBase(stripeApiBase);
+		}
 	}
 	
-	public String createStripeSession(ReservationDTO reservationDTO, User user) {
+	public String createStripeSession(ReservationDTO reservationDTO, Integer userId) {
 		Optional<House> optionalHouse = houseRepository.findById(reservationDTO.getHouseId());
 		House house = optionalHouse.orElseThrow(() -> new EntityNotFoundException("指定されたIDの民宿が存在しません。"));
 		
@@ -79,7 +112,6 @@ public class StripeService {
 		
 		//メタデータ（付随情報）
 		String houseId = reservationDTO.getHouseId().toString();
-		String userId = user.getId().toString();
 		String checkinDate = reservationDTO.getCheckinDate().format(DATE_TIME_FORMATTER);
 		String checkoutDate = reservationDTO.getCheckoutDate().format(DATE_TIME_FORMATTER);
 		String numberOfPeople = reservationDTO.getNumberOfPeople().toString();
@@ -108,7 +140,7 @@ public class StripeService {
             .setPaymentIntentData(
                 SessionCreateParams.PaymentIntentData.builder()
                     .putMetadata("houseId", houseId)
-                    .putMetadata("userId", userId)
+                    .putMetadata("userId", userId.toString())
                     .putMetadata("checkinDate", checkinDate)
                     .putMetadata("checkoutDate", checkoutDate)
                     .putMetadata("numberOfPeople", numberOfPeople)
@@ -118,7 +150,10 @@ public class StripeService {
 		
 		try {
 			//Stripeに送信する支払い情報をセッションとして作成する
-			Session session = Session.create(sessionCreateParams);
+			Session session = callStripe("checkout.session.create", () -> Session.create(sessionCreateParams));
+			
+			//決済完了のWebhookでStripeに問い合わせずに済むよう、予約内容をセッションIDと紐づけて保存する
+			savePendingReservation(session.getId(), reservationDTO, userId);
 			
 			//作成したセッションのIDを返す
 			return session.getId();
@@ -146,54 +181,166 @@ public class StripeService {
 		}
 	}
 	
-	//セッションから予約情報を取得し、ReservationServiceクラスを介してデータベースに登録する
-	public void processSessionCompleted(Event event) {
-		//EventオブジェクトからStripeObjectを取得する
-		Optional<StripeObject> optionalStripeObject = event.getDataObjectDeserializer().getObject();
+	//セッション作成時に保存した予約内容がない場合のみ、Stripeからメタデータ（予約情報）を取得する（保存されている場合はnullを返す）
+	//通信中にデータベースのコネクションを占有しないよう、トランザクションの外で呼び出す
+	public Map<String, String> retrieveMetadataIfNotPending(Event event) throws StripeException {
+		Session session = toSession(event);
+		if(pendingReservationRepository.existsById(session.getId())) {
+			return null;
+		}
+		return retrieveMetadata(session.getId());
+	}
+	
+	//セッションに対応する予約情報を取得し、ReservationServiceクラスを介してデータベースに登録する
+	//失敗した場合は例外をそのまま投げ、Webhookのワーカーに再試行するかどうかを判断させる
+	public void processSessionCompleted(Event event, Map<String, String> retrievedMetadata) {
+		Session session = toSession(event);
 		
-		optionalStripeObject.ifPresentOrElse(stripeObject -> {
-			//StripeObjectオブジェクトをSessionオブジェクトに型変換する
-			Session session = (Session)stripeObject;
-			
-			// "payment_intent"情報を展開する（詳細情報を含める）ように指定したSessionRetrieveParamsオブジェクトを生成する
-			SessionRetrieveParams sessionRetrieveParams = SessionRetrieveParams.builder().addExpand("payment_intent").build();
-			
-			try {
-				//支払い情報を含む詳細なセッション情報を取得する
-				session = Session.retrieve(session.getId(), sessionRetrieveParams, null);
-				
-				//詳細なセッション情報からメタデータ（予約情報）を取り出す
-				Map<String, String> sessionMetadata = session.getPaymentIntentObject().getMetadata();
-				
-				//予約情報をデータベースに登録する
-				reservationService.createReservation(sessionMetadata);
-				
-				System.out.println("予約情報の登録処理が成功しました。");
-				
-			} catch (RateLimitException e) {
-				System.out.println("短時間のうちに過剰な回数のAPIコールが行われました。");
-			} catch (InvalidRequestException e) {
-				System.out.println("APIコールのパラメーターが誤っているか、状態が誤っているか、方法が無効でした。");
-			} catch (PermissionException e) {
-				System.out.println("このリクエストに使用されたAPIキーには必要な権限がありません。");
-			} catch (AuthenticationException e) {
-				System.out.println("Stripeは、提供された情報では認証できません。");
-			} catch (ApiConnectionException e) {
-				System.out.println("お客様のサーバーとStripeの間でネットワークの問題が発生しました。");
-			} catch (ApiException e) {
-				System.out.println("Stripe側で問題が発生しました（稀な状況です）。");
-			} catch (StripeException e) {
-				System.out.println("Stripeとの通信中に予期せぬエラーが発生しました。");
-			} catch (Exception e) {
-				System.out.println("予約情報の登録処理中に予期せぬエラーが発生しました。");
-			}
-		},
-		() -> {
-			System.out.println("予約情報の登録処理が失敗しました。");
-		});
-		
-		//StripeのAPIとstripe-javaライブラリのバージョンをコンソールに出力する
-		System.out.println("Stripe API Version: " + event.getApiVersion());
-		System.out.println("stripe-java Version: " + Stripe.VERSION + ", stripe-java API Version: " + Stripe.API_VERSION);
+		//セッション作成時に保存した予約内容を取得する（保存されていない場合はStripeから取得しておいたメタデータを使う）
+		Optional<PendingReservation> optionalPendingReservation = pendingReservationRepository.findById(session.getId());
+		Map<String, String> sessionMetadata;
+		if(optionalPendingReservation.isPresent()) {
+			sessionMetadata = toMetadata(optionalPendingReservation.get());
+		} else if(retrievedMetadata != null) {
+			sessionMetadata = retrievedMetadata;
+		} else {
+			//メタデータを取得した後に予約内容が削除された場合は、再試行してStripeから取得し直す
+			throw new IllegalStateException("セッションに対応する予約内容が見つかりません。セッションID: " + session.getId());
+		}
+		
+		//予約情報をデータベースに登録する
+		reservationService.createReservation(sessionMetadata);
+		
+		//予約を登録したトランザクション内で削除し、同じセッションから二重に登録されないようにする
+		optionalPendingReservation.ifPresent(pendingReservationRepository::delete);
+		
+		System.out.println("予約情報の登録処理が成功しました。");
+	}
+	
+	//決済済みのセッションの予約が他の予約と重複して登録できなかった場合に、支払いを全額返金する
+	//セッションIDを冪等キーにするため、再試行しても返金は一度だけ行われる（トランザクションの外で呼び出す）
+	public void refundSessionCompleted(Event event) throws StripeException {
+		Session session = toSession(event);
+		
+		//イベントに支払いのIDが含まれていない場合はStripeから取得する
+		String paymentIntentId = session.getPaymentIntent() != null
+				? session.getPaymentIntent()
+				: callStripe("checkout.session.retrieve", () -> Session.retrieve(session.getId())).getPaymentIntent();
+		
+		RefundCreateParams refundCreateParams = RefundCreateParams.builder().setPaymentIntent(paymentIntentId).build();
+		RequestOptions requestOptions = RequestOptions.builder().setIdempotencyKey("refund-" + session.getId()).build();
+		
+		callStripe("refund.create", () -> Refund.create(refundCreateParams, requestOptions));
+	}
+	
+	//予約を登録できず返金したことを会員にメールで知らせ、セッション作成時に保存した予約内容を削除する
+	//メールは呼び出し元のトランザクション内で送信待ちにする
+	public void notifyReservationConflict(Event event, Map<String, String> retrievedMetadata) {
+		Session session = toSession(event);
+		
+		Optional<PendingReservation> optionalPendingReservation = pendingReservationRepository.findById(session.getId());
+		Map<String, String> sessionMetadata = optionalPendingReservation.map(this::toMetadata).orElse(retrievedMetadata);
+		if(sessionMetadata == null) {
+			throw new IllegalStateException("セッションに対応する予約内容が見つかりません。セッションID: " + session.getId());
+		}
+		
+		Optional<House> optionalHouse = houseRepository.findById(Integer.valueOf(sessionMetadata.get("houseId")));
+		House house = optionalHouse.orElseThrow(() -> new EntityNotFoundException("指定されたIDの民宿が存在しません。"));
+		
+		Optional<User> optionalUser = userRepository.findById(Integer.valueOf(sessionMetadata.get("userId")));
+		User user = optionalUser.orElseThrow(() -> new EntityNotFoundException("指定されたIDのユーザーが存在しません。"));
+		
+		String senderAddress = "springboot.samuraitravel@example.com";
+		String subject = "ご予約をお受けできませんでした";
+		String message = "お支払いの手続き中に同じ期間の予約が入ったため、以下のご予約をお受けできませんでした。\n"
+				+ "お支払いいただいた料金は全額返金いたします。\n\n"
+				+ "民宿名: " + house.getName() + "\n"
+				+ "宿泊期間: " + sessionMetadata.get("checkinDate") + " から " + sessionMetadata.get("checkoutDate") + "\n"
+				+ "宿泊料金: " + sessionMetadata.get("amount") + "円";
+		
+		mailOutboxService.enqueue(senderAddress, user.getEmail(), subject, message);
+		
+		optionalPendingReservation.ifPresent(pendingReservationRepository::delete);
+	}
+	
+	//決済されないまま残った予約内容を1日1回削除する（Checkoutセッションの有効期限は最長24時間）
+	@Scheduled(cron = "${samuraitravel.stripe.pending-reservation.purge-cron:0 30 3 * * *}")
+	@Transactional
+	public void purgeExpiredPendingReservations() {
+		Timestamp createdBefore = Timestamp.from(Instant.now().minus(PENDING_RESERVATION_RETENTION));
+		int deleted = pendingReservationRepository.deleteByCreatedAtBefore(createdBefore);
+		
+		System.out.println("期限切れの予約内容を" + deleted + "件削除しました。");
+	}
+	
+	//Checkoutセッションを作成した時点の予約内容を保存する
+	private void savePendingReservation(String sessionId, ReservationDTO reservationDTO, Integer userId) {
+		PendingReservation pendingReservation = new PendingReservation();
+		pendingReservation.setSessionId(sessionId);
+		pendingReservation.setHouseId(reservationDTO.getHouseId());
+		pendingReservation.setUserId(userId);
+		pendingReservation.setCheckinDate(reservationDTO.getCheckinDate());
+		pendingReservation.setCheckoutDate(reservationDTO.getCheckoutDate());
+		pendingReservation.setNumberOfPeople(reservationDTO.getNumberOfPeople());
+		pendingReservation.setAmount(reservationDTO.getAmount());
+		
+		pendingReservationRepository.save(pendingReservation);
+	}
+	
+	//保存しておいた予約内容を、Stripeのメタデータと同じ形式に変換する
+	private Map<String, String> toMetadata(PendingReservation pendingReservation) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("houseId", pendingReservation.getHouseId().toString());
+		metadata.put("userId", pendingReservation.getUserId().toString());
+		metadata.put("checkinDate", pendingReservation.getCheckinDate().format(DATE_TIME_FORMATTER));
+		metadata.put("checkoutDate", pendingReservation.getCheckoutDate().format(DATE_TIME_FORMATTER));
+		metadata.put("numberOfPeople", pendingReservation.getNumberOfPeople().toString());
+		metadata.put("amount", pendingReservation.getAmount().toString());
+		
+		return metadata;
+	}
+	
+	//EventオブジェクトからSessionオブジェクトを取り出す
+	private Session toSession(Event event) {
+		StripeObject stripeObject = event.getDataObjectDeserializer().getObject()
+				.orElseThrow(() -> new IllegalStateException("イベントからセッションを取得できませんでした。API Version: " + event.getApiVersion()
+						+ ", stripe-java API Version: " + Stripe.API_VERSION));
+		
+		return (Session)stripeObject;
+	}
+	
+	//支払い情報を含む詳細なセッション情報をStripeから取得し、メタデータ（予約情報）を取り出す
+	private Map<String, String> retrieveMetadata(String sessionId) throws StripeException {
+		// "payment_intent"情報を展開する（詳細情報を含める）ように指定したSessionRetrieveParamsオブジェクトを生成する
+		SessionRetrieveParams sessionRetrieveParams = SessionRetrieveParams.builder().addExpand("payment_intent").build();
+		
+		Session session = callStripe("checkout.session.retrieve", () -> Session.retrieve(sessionId, sessionRetrieveParams, null));
+		
+		return session.getPaymentIntentObject().getMetadata();
+	}
+	
+	//StripeのAPIの呼び出しにかかった時間を、操作と結果（失敗した場合は例外のクラス）ごとに記録する
+	private <T> T callStripe(String operation, StripeCall<T> call) throws StripeException {
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String exception = "none";
+		try {
+			return call.call();
+		} catch(StripeException | RuntimeException e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			sample.stop(Timer.builder("stripe.api.calls")
+					.description("StripeのAPIの呼び出しにかかった時間")
+					.tag("operation", operation)
+					.tag("outcome", exception.equals("none") ? "success" : "error")
+					.tag("exception", exception)
+					.publishPercentileHistogram()
+					.register(meterRegistry));
+		}
+	}
+	
+	@FunctionalInterface
+	private interface StripeCall<T> {
+		T call() throws StripeException;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.example.samuraitravel.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.samuraitravel.entity.StripeWebhookEvent;
+import com.example.samuraitravel.repository.StripeWebhookEventRepository;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.net.ApiResource;
+
+//Webhookで受信したイベントの受信箱（保存・取り出し・処理結果の記録）
+@Service
+public class StripeWebhookService {
+	//処理中のまま止まっているとみなすまでの時間
+	private static final Duration PROCESSING_TIMEOUT = Duration.ofMinutes(10);
+	
+	//再試行の間隔の上限
+	private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+	
+	private final StripeWebhookEventRepository stripeWebhookEventRepository;
+	private final StripeService stripeService;
+	private final int maxAttempts;
+	private final Duration retryBackoff;
+	
+	public StripeWebhookService(StripeWebhookEventRepository stripeWebhookEventRepository, StripeService stripeService,
+								@Value("${samuraitravel.stripe.webhook.max-attempts:8}") int maxAttempts,
+								@Value("${samuraitravel.stripe.webhook.retry-backoff:PT10S}") Duration retryBackoff) {
+		this.stripeWebhookEventRepository = stripeWebhookEventRepository;
+		this.stripeService = stripeService;
+		this.maxAttempts = maxAttempts;
+		this.retryBackoff = retryBackoff;
+	}
+	
+	//署名を検証済みのイベントを受信箱に保存する（同じイベントを受信済みの場合はfalseを返す）
+	@Transactional
+	public boolean receive(Event event, String payload) {
+		return stripeWebhookEventRepository.insertIfAbsent(event.getId(), event.getType(), payload) == 1;
+	}
+	
+	//処理すべきイベントのIDを取得する（処理中のまま止まっているイベントを先に返す）
+	public List<String> findDueEventIds(int limit) {
+		Instant now = Instant.now();
+		List<String> eventIds = new ArrayList<>(stripeWebhookEventRepository.findStaleEventIds(Timestamp.from(now.minus(PROCESSING_TIMEOUT)), PageRequest.of(0, limit)));
+		if(eventIds.size() < limit) {
+			eventIds.addAll(stripeWebhookEventRepository.findDueEventIds(Timestamp.from(now), PageRequest.of(0, limit - eventIds.size())));
+		}
+		return eventIds;
+	}
+	
+	//イベントを処理中にする（他のワーカーが処理中の場合はfalseを返す）
+	@Transactional
+	public boolean claim(String eventId) {
+		Instant now = Instant.now();
+		return stripeWebhookEventRepository.claim(eventId, Timestamp.from(now), Timestamp.from(now.minus(PROCESSING_TIMEOUT))) == 1;
+	}
+	
+	//イベントの処理に必要で、データベースに保存されていない情報をStripeから取得する（不要な場合はnullを返す）
+	//Stripeとの通信中にコネクションを占有しないよう、トランザクションを開始する前に呼び出す
+	public Map<String, String> retrieveMetadata(String eventId) throws StripeException {
+		Event event = findEvent(eventId);
+		
+		if("checkout.session.completed".equals(event.getType())) {
+			return stripeService.retrieveMetadataIfNotPending(event);
+		}
+		return null;
+	}
+	
+	//イベントを処理し、予約の登録と同じトランザクション内で処理済みにする（例外が発生した場合は予約も処理済みの記録も残らない）
+	@Transactional
+	public void process(String eventId, Map<String, String> retrievedMetadata) {
+		StripeWebhookEvent stripeWebhookEvent = stripeWebhookEventRepository.findById(eventId).orElseThrow();
+		Event event = deserialize(stripeWebhookEvent);
+		
+		if("checkout.session.completed".equals(event.getType())) {
+			stripeService.processSessionCompleted(event, retrievedMetadata);
+		}
+		
+		stripeWebhookEvent.setStatus(StripeWebhookEvent.STATUS_DONE);
+		stripeWebhookEvent.setLockedAt(null);
+		stripeWebhookEvent.setLastError(null);
+	}
+	
+	//予約を登録できなかった決済を返金する（Stripeとの通信中にコネクションを占有しないよう、トランザクションの外で呼び出す）
+	public void refund(String eventId) throws StripeException {
+		Event event = findEvent(eventId);
+		
+		if("checkout.session.completed".equals(event.getType())) {
+			stripeService.refundSessionCompleted(event);
+		}
+	}
+	
+	//返金済みのイベントを、予約が重複したものとして運用者が確認できる状態にし、会員にメールで知らせる
+	@Transactional
+	public void recordConflict(String eventId, Map<String, String> retrievedMetadata, ReservationConflictException exception) {
+		StripeWebhookEvent stripeWebhookEvent = stripeWebhookEventRepository.findById(eventId).orElseThrow();
+		Event event = deserialize(stripeWebhookEvent);
+		
+		if("checkout.session.completed".equals(event.getType())) {
+			stripeService.notifyReservationConflict(event, retrievedMetadata);
+		}
+		
+		stripeWebhookEvent.setStatus(StripeWebhookEvent.STATUS_CONFLICT);
+		stripeWebhookEvent.setLockedAt(null);
+		stripeWebhookEvent.setLastError(toErrorMessage(exception));
+		System.out.println("予約が重複したため決済を返金しました。イベントID: " + eventId);
+	}
+	
+	//処理に失敗したことを記録する（再試行できる場合は間隔を倍々に空けて未処理に戻す）
+	@Transactional
+	public void recordFailure(String eventId, Exception exception, boolean retryable) {
+		StripeWebhookEvent stripeWebhookEvent = stripeWebhookEventRepository.findById(eventId).orElseThrow();
+		
+		String message = toErrorMessage(exception);
+		stripeWebhookEvent.setLastError(message);
+		stripeWebhookEvent.setLockedAt(null);
+		
+		if(retryable && stripeWebhookEvent.getAttempts() < maxAttempts) {
+			Duration backoff = retryBackoff.multipliedBy(1L << Math.min(stripeWebhookEvent.getAttempts() - 1, 20));
+			if(backoff.compareTo(MAX_BACKOFF) > 0) {
+				backoff = MAX_BACKOFF;
+			}
+			stripeWebhookEvent.setStatus(StripeWebhookEvent.STATUS_PENDING);
+			stripeWebhookEvent.setNextAttemptAt(Timestamp.from(Instant.now().plus(backoff)));
+		} else {
+			stripeWebhookEvent.setStatus(StripeWebhookEvent.STATUS_FAILED);
+			System.out.println("Webhookイベントの処理を中止しました。イベントID: " + eventId + ", 原因: " + message);
+		}
+	}
+	
+	private String toErrorMessage(Exception exception) {
+		String message = exception.getClass().getSimpleName() + ": " + exception.getMessage();
+		return message.length() > 1000 ? message.substring(0, 1000) : message;
+	}
+	
+	private Event findEvent(String eventId) {
+		return deserialize(stripeWebhookEventRepository.findById(eventId).orElseThrow());
+	}
+	
+	private Event deserialize(StripeWebhookEvent stripeWebhookEvent) {
+		return StripeObject.deserializeStripeObject(stripeWebhookEvent.getPayload(), Event.class, ApiResource.getGlobalResponseGetter());
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.samuraitravel.service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+//受信箱のイベントを上限付きのスレッドプールで処理するワーカー
+//Webhookの応答とは切り離して処理するため、Stripeからの再送が集中しても応答時間は変わらない
+//処理しないサーバーでは無効にでき、受信箱のイベントは有効なサーバーが処理する
+@Component
+@ConditionalOnProperty(name = "samuraitravel.stripe.webhook.worker.enabled", havingValue = "true", matchIfMissing = true)
+public class StripeWebhookWorker {
+	private final StripeWebhookService stripeWebhookService;
+	private final ThreadPoolExecutor executor;
+	private final int queueCapacity;
+	
+	public StripeWebhookWorker(StripeWebhookService stripeWebhookService,
+							   @Value("${samuraitravel.stripe.webhook.workers:4}") int workers,
+							   @Value("${samuraitravel.stripe.webhook.queue-capacity:100}") int queueCapacity) {
+		this.stripeWebhookService = stripeWebhookService;
+		this.queueCapacity = queueCapacity;
+		//キューが一杯の場合は受け付けず、受信箱に残して次の巡回で処理する
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("stripe-webhook-"), new ThreadPoolExecutor.AbortPolicy());
+	}
+	
+	//受信したイベントの処理をすぐに開始する
+	public void submit(String eventId) {
+		try {
+			executor.execute(() -> handle(eventId));
+		} catch(RejectedExecutionException e) {
+			//受信箱に残っているため、次の巡回で処理される
+		}
+	}
+	
+	//処理予定時刻を過ぎたイベント（再試行待ち・取りこぼし）を定期的に処理する
+	@Scheduled(fixedDelayString = "${samuraitravel.stripe.webhook.poll-interval:PT5S}")
+	public void drain() {
+		int capacity = executor.getQueue().remainingCapacity();
+		if(capacity == 0) {
+			return;
+		}
+		
+		for(String eventId : stripeWebhookService.findDueEventIds(Math.min(capacity, queueCapacity))) {
+			submit(eventId);
+		}
+	}
+	
+	private void handle(String eventId) {
+		//他のスレッドがすでに処理している場合は何もしない
+		if(!stripeWebhookService.claim(eventId)) {
+			return;
+		}
+		
+		try {
+			//Stripeから取得する情報はトランザクションの外で取得しておく
+			Map<String, String> retrievedMetadata = stripeWebhookService.retrieveMetadata(eventId);
+			try {
+				stripeWebhookService.process(eventId, retrievedMetadata);
+			} catch(ReservationConflictException e) {
+				//期間が重複している予約は再試行しても登録できないが、支払いは済んでいるため返金して会員に知らせる
+				//（返金に失敗した場合は外側で再試行する）
+				stripeWebhookService.refund(eventId);
+				stripeWebhookService.recordConflict(eventId, retrievedMetadata, e);
+			}
+		} catch(Exception e) {
+			stripeWebhookService.recordFailure(eventId, e, true);
+		}
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
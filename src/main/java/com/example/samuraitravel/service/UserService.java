@@ -10,6 +10,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.example.samuraitravel.entity.Role;
 import com.example.samuraitravel.entity.User;
+import com.example.samuraitravel.event.SignupEventPublisher;
+import com.example.samuraitravel.event.UserChangedEventPublisher;
 import com.example.samuraitravel.form.SignupForm;
 import com.example.samuraitravel.form.UserEditForm;
 import com.example.samuraitravel.repository.RoleRepository;
@@ -20,15 +22,21 @@ public class UserService {
 	private final UserRepository userRepository;
 	private final RoleRepository roleRepository;
 	private final PasswordEncoder passwordEncoder;
+	private final SignupEventPublisher signupEventPublisher;
+	private final UserChangedEventPublisher userChangedEventPublisher;
 	
-	public UserService(UserRepository userRepository,RoleRepository roleRepository,PasswordEncoder passwordEncoder) {
+	public UserService(UserRepository userRepository,RoleRepository roleRepository,PasswordEncoder passwordEncoder,
+					   SignupEventPublisher signupEventPublisher, UserChangedEventPublisher userChangedEventPublisher) {
 		this.userRepository = userRepository;
 		this.roleRepository = roleRepository;
 		this.passwordEncoder = passwordEncoder;
+		this.signupEventPublisher = signupEventPublisher;
+		this.userChangedEventPublisher = userChangedEventPublisher;
 	}
 
+	//会員を登録し、同じトランザクション内でメール認証用のトークンと認証メールを保存する
 	@Transactional
-	public User createUser(SignupForm signupform) {
+	public User createUser(SignupForm signupform, String requestUrl) {
 		User user = new User();
 		Role role = roleRepository.findByName("ROLE_GENERAL");
 		
@@ -42,11 +50,17 @@ public class UserService {
 		user.setRole(role);
 		user.setEnabled(false);
 		
-		return userRepository.save(user);
+		userRepository.save(user);
+		signupEventPublisher.publishSignupEvent(user, requestUrl);
+		
+		return user;
 	}
 	
+	//会員情報を更新する（userは同じリクエスト内で読み込み直したエンティティを渡す）
 	@Transactional
 	public void updateUser(UserEditForm userEditForm, User user) {
+		String previousEmail = user.getEmail();
+		
 		user.setName(userEditForm.getName());
 		user.setFurigana(userEditForm.getFurigana());
 		user.setPostalCode(userEditForm.getPostalCode());
@@ -55,6 +69,7 @@ public class UserService {
 		user.setEmail(userEditForm.getEmail());
 		
 		userRepository.save(user);
+		userChangedEventPublisher.publishUserChangedEvent(previousEmail, user.getEmail());
 	}
 	
 	//メールアドレスが登録済みかどうかをチェックする
@@ -69,9 +84,11 @@ public class UserService {
 	}
 	
 	//ユーザーを有効にする
+	@Transactional
 	public void enableUser(User user) {
 		user.setEnabled(true);
 		userRepository.save(user);
+		userChangedEventPublisher.publishUserChangedEvent(user.getEmail());
 	}
 	//メールアドレスが変更されたかどうかチェックする
 	public boolean isEmailChanged(UserEditForm userEditForm, User user) {
@@ -97,4 +114,9 @@ public class UserService {
 	public Optional<User> findUserById(Integer id) {
 		return userRepository.findById(id);
 	}
+	
+	//関連付けにだけ使うため、ユーザーを読み込まずに参照を取得する
+	public User getUserReference(Integer id) {
+		return userRepository.getReferenceById(id);
+	}
 }
\ No newline at end of file
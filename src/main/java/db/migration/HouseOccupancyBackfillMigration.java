@@ -0,0 +1,45 @@
+package db.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.example.samuraitravel.service.HouseAvailabilityIndex;
+
+//予約テーブルから民宿ごと・年ごとの予約状況を作成するマイグレーション（スキーマとサンプルデータの両方で使う）
+//Flywayのロックの中で1回だけ実行されるため、複数のサーバーが同時に起動しても重複して作成しない
+//すでに予約状況がある民宿・年は、予約の登録時に更新されたものとしてINSERT IGNOREでそのままにする
+public abstract class HouseOccupancyBackfillMigration extends BaseJavaMigration {
+	@Override
+	public void migrate(Context context) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+		
+		//民宿ID → 年 → 予約が入っている泊
+		Map<Integer, Map<Integer, BitSet>> occupancies = new TreeMap<>();
+		jdbcTemplate.query("SELECT house_id, checkin_date, checkout_date FROM reservations", (RowCallbackHandler)resultSet -> {
+			Map<Integer, BitSet> years = occupancies.computeIfAbsent(resultSet.getInt("house_id"), houseId -> new TreeMap<>());
+			HouseAvailabilityIndex.toNightsByYear(toLocalDate(resultSet, "checkin_date"), toLocalDate(resultSet, "checkout_date"))
+					.forEach((year, nights) -> years.computeIfAbsent(year, key -> new BitSet()).or(nights));
+		});
+		
+		List<Object[]> rows = new ArrayList<>();
+		occupancies.forEach((houseId, years) -> years.forEach((year, occupiedDays) ->
+				rows.add(new Object[] { houseId, year, occupiedDays.toByteArray() })));
+		jdbcTemplate.batchUpdate("INSERT IGNORE INTO house_occupancies (house_id, stay_year, occupied_days) VALUES (?, ?, ?)", rows);
+	}
+	
+	private static LocalDate toLocalDate(ResultSet resultSet, String column) throws SQLException {
+		return resultSet.getDate(column).toLocalDate();
+	}
+}
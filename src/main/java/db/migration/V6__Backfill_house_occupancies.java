@@ -0,0 +1,5 @@
+package db.migration;
+
+//既存の予約から予約状況を作成する（以前は起動時に予約状況のテーブルが空の場合に作成していた）
+public class V6__Backfill_house_occupancies extends HouseOccupancyBackfillMigration {
+}
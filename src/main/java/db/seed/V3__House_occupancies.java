@@ -0,0 +1,7 @@
+package db.seed;
+
+import db.migration.HouseOccupancyBackfillMigration;
+
+//サンプルの予約から予約状況を作成する
+public class V3__House_occupancies extends HouseOccupancyBackfillMigration {
+}
@@ -76,4 +76,65 @@ CREATE TABLE IF NOT EXISTS favorites (
 	updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 	FOREIGN KEY (user_id) REFERENCES users (id),
 	FOREIGN KEY (house_id) REFERENCES houses (id)
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS house_popularities (
+	house_id INT NOT NULL PRIMARY KEY,
+	reservation_count INT NOT NULL DEFAULT 0,
+	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	FOREIGN KEY (house_id) REFERENCES houses (id)
+);
+
+CREATE TABLE IF NOT EXISTS house_occupancies (
+	house_id INT NOT NULL,
+	stay_year INT NOT NULL,
+	occupied_days VARBINARY(46) NOT NULL,
+	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	PRIMARY KEY (house_id, stay_year),
+	FOREIGN KEY (house_id) REFERENCES houses (id)
+);
+
+CREATE TABLE IF NOT EXISTS stripe_webhook_events (
+	event_id VARCHAR(255) NOT NULL PRIMARY KEY,
+	event_type VARCHAR(100) NOT NULL,
+	payload MEDIUMTEXT NOT NULL,
+	status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+	attempts INT NOT NULL DEFAULT 0,
+	next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	locked_at DATETIME,
+	last_error VARCHAR(1000),
+	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	INDEX idx_stripe_webhook_events_status_next_attempt_at (status, next_attempt_at)
+);
+
+CREATE TABLE IF NOT EXISTS pending_reservations (
+	session_id VARCHAR(255) NOT NULL PRIMARY KEY,
+	house_id INT NOT NULL,
+	user_id INT NOT NULL,
+	checkin_date DATE NOT NULL,
+	checkout_date DATE NOT NULL,
+	number_of_people INT NOT NULL,
+	amount INT NOT NULL,
+	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	INDEX idx_pending_reservations_created_at (created_at)
+);
+
+CREATE TABLE IF NOT EXISTS mail_outbox (
+	id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+	mail_from VARCHAR(255) NOT NULL,
+	mail_to VARCHAR(255) NOT NULL,
+	subject VARCHAR(255) NOT NULL,
+	body TEXT NOT NULL,
+	status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+	attempts INT NOT NULL DEFAULT 0,
+	next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	locked_at DATETIME,
+	last_error VARCHAR(1000),
+	sent_at DATETIME,
+	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	INDEX idx_mail_outbox_status_next_attempt_at (status, next_attempt_at)
+);
@@ -0,0 +1,34 @@
+/* リポジトリの検索条件・並べ替えに合わせたインデックスを追加する */
+
+/* verification_tokensテーブル（VerificationTokenRepository.findByToken） */
+CREATE UNIQUE INDEX uk_verification_tokens_token ON verification_tokens (token);
+
+/* rolesテーブル（RoleRepository.findByName） */
+CREATE UNIQUE INDEX uk_roles_name ON roles (name);
+
+/* housesテーブル（作成日時の新しい順・料金の安い順の一覧と、都道府県での前方一致検索） */
+CREATE INDEX idx_houses_created_at_id ON houses (created_at, id);
+CREATE INDEX idx_houses_price_id ON houses (price, id);
+CREATE INDEX idx_houses_address ON houses (address);
+
+/* reservationsテーブル（ユーザーごとの予約一覧） */
+CREATE INDEX idx_reservations_user_id_created_at_id ON reservations (user_id, created_at, id);
+
+/* reviewsテーブル（民宿ごとのレビュー一覧と、1人1民宿1件の制約） */
+/* 制約を追加する前に、同じユーザーが同じ民宿に投稿した重複レビューを最初の1件だけ残して削除する */
+DELETE FROM reviews WHERE id NOT IN (
+	SELECT id FROM (SELECT MIN(id) AS id FROM reviews GROUP BY house_id, user_id) AS kept_reviews
+);
+CREATE UNIQUE INDEX uk_reviews_house_id_user_id ON reviews (house_id, user_id);
+CREATE INDEX idx_reviews_house_id_created_at_id ON reviews (house_id, created_at, id);
+
+/* favoritesテーブル（ユーザーごとのお気に入り一覧と、1人1民宿1件の制約） */
+DELETE FROM favorites WHERE id NOT IN (
+	SELECT id FROM (SELECT MIN(id) AS id FROM favorites GROUP BY user_id, house_id) AS kept_favorites
+);
+CREATE UNIQUE INDEX uk_favorites_user_id_house_id ON favorites (user_id, house_id);
+CREATE INDEX idx_favorites_user_id_created_at_id ON favorites (user_id, created_at, id);
+
+/* stripe_webhook_events・mail_outboxテーブル（処理中のまま止まっている行の検索） */
+CREATE INDEX idx_stripe_webhook_events_status_locked_at ON stripe_webhook_events (status, locked_at);
+CREATE INDEX idx_mail_outbox_status_locked_at ON mail_outbox (status, locked_at);
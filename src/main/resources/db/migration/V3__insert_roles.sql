@@ -0,0 +1,3 @@
+/* rolesテーブル（会員登録に必要なため、サンプルデータとは別に必ず登録する） */
+INSERT IGNORE INTO roles (id, name) VALUES (1, 'ROLE_GENERAL');
+INSERT IGNORE INTO roles (id, name) VALUES (2, 'ROLE_ADMIN');
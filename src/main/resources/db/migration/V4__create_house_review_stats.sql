@@ -0,0 +1,26 @@
+/* 民宿ごとのレビューの集計（件数・評価の合計・評価ごとの件数・平均評価） */
+/* レビューの投稿・編集・削除と同じトランザクションで更新し、評価の表示と並べ替えにレビューを読み込まないようにする */
+CREATE TABLE IF NOT EXISTS house_review_stats (
+	house_id INT NOT NULL PRIMARY KEY,
+	review_count INT NOT NULL DEFAULT 0,
+	score_sum INT NOT NULL DEFAULT 0,
+	score1_count INT NOT NULL DEFAULT 0,
+	score2_count INT NOT NULL DEFAULT 0,
+	score3_count INT NOT NULL DEFAULT 0,
+	score4_count INT NOT NULL DEFAULT 0,
+	score5_count INT NOT NULL DEFAULT 0,
+	average_score DECIMAL(3, 2) NOT NULL DEFAULT 0,
+	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	FOREIGN KEY (house_id) REFERENCES houses (id),
+	INDEX idx_house_review_stats_average_score_house_id (average_score, house_id)
+);
+
+/* 既存のレビューから集計する（レビューのない民宿も0件として登録する） */
+INSERT INTO house_review_stats (house_id, review_count, score_sum, score1_count, score2_count, score3_count, score4_count, score5_count, average_score)
+SELECT h.id, COUNT(r.id), COALESCE(SUM(r.score), 0),
+	COUNT(CASE WHEN r.score = 1 THEN 1 END), COUNT(CASE WHEN r.score = 2 THEN 1 END), COUNT(CASE WHEN r.score = 3 THEN 1 END),
+	COUNT(CASE WHEN r.score = 4 THEN 1 END), COUNT(CASE WHEN r.score = 5 THEN 1 END),
+	COALESCE(ROUND(AVG(r.score), 2), 0)
+FROM houses h LEFT JOIN reviews r ON r.house_id = h.id
+GROUP BY h.id;
@@ -0,0 +1,2 @@
+/* reservationsテーブル（民宿一覧で、宿泊期間に予約が入っている民宿をNOT EXISTSで除外する場合の期間の重複確認） */
+CREATE INDEX idx_reservations_house_id_checkin_date ON reservations (house_id, checkin_date, checkout_date);
@@ -0,0 +1,2 @@
+/* housesテーブル（キーワード索引の差分更新で、最終更新日時とそれ以降に更新された民宿を取得する） */
+CREATE INDEX idx_houses_updated_at ON houses (updated_at);
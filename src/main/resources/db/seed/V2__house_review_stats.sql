@@ -0,0 +1,10 @@
+/* house_review_statsテーブル（サンプルの民宿とレビューから集計し直す） */
+DELETE FROM house_review_stats;
+
+INSERT INTO house_review_stats (house_id, review_count, score_sum, score1_count, score2_count, score3_count, score4_count, score5_count, average_score)
+SELECT h.id, COUNT(r.id), COALESCE(SUM(r.score), 0),
+	COUNT(CASE WHEN r.score = 1 THEN 1 END), COUNT(CASE WHEN r.score = 2 THEN 1 END), COUNT(CASE WHEN r.score = 3 THEN 1 END),
+	COUNT(CASE WHEN r.score = 4 THEN 1 END), COUNT(CASE WHEN r.score = 5 THEN 1 END),
+	COALESCE(ROUND(AVG(r.score), 2), 0)
+FROM houses h LEFT JOIN reviews r ON r.house_id = h.id
+GROUP BY h.id;
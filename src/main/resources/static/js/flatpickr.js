@@ -12,14 +12,16 @@ flatpickr('#fromCheckinDateToCheckoutDate', {
   onClose: function(selectedDates, dateStr, instance) {
     // 選択された日付を " から " で分割
     const dates = dateStr.split(" から ");
+    // 日付範囲の入力欄と同じフォーム内の入力フィールドに設定する
+    const form = instance.input.form;
     if (dates.length === 2) {
       // チェックインとチェックアウトの日付をそれぞれの入力フィールドに設定
-      document.querySelector("input[name='checkinDate']").value = dates[0];
-      document.querySelector("input[name='checkoutDate']").value = dates[1];
+      form.querySelector("input[name='checkinDate']").value = dates[0];
+      form.querySelector("input[name='checkoutDate']").value = dates[1];
     } else {
       // 日付が選択されていない場合、入力フィールドを空にする
-      document.querySelector("input[name='checkinDate']").value = '';
-      document.querySelector("input[name='checkoutDate']").value = '';
+      form.querySelector("input[name='checkinDate']").value = '';
+      form.querySelector("input[name='checkoutDate']").value = '';
     }
   }
 });
\ No newline at end of file
@@ -0,0 +1,75 @@
+// 「もっと見る」でレビューの続きをJSONで読み込み、一覧の末尾にカードを追加する
+// （JavaScriptが動かない場合は、リンク先のレビュー一覧ページで続きを表示する）
+document.addEventListener('DOMContentLoaded', () => {
+  const reviewGrid = document.querySelector('#reviewGrid');
+  const moreReviewsLink = document.querySelector('#moreReviewsLink');
+  const reviewCardTemplate = document.querySelector('#reviewCardTemplate');
+  if (!reviewGrid || !moreReviewsLink || !reviewCardTemplate) {
+    return;
+  }
+
+  moreReviewsLink.addEventListener('click', event => {
+    event.preventDefault();
+    if (moreReviewsLink.classList.contains('disabled')) {
+      return;
+    }
+    moreReviewsLink.classList.add('disabled');
+
+    const url = new URL(reviewGrid.dataset.reviewsUrl, window.location.origin);
+    url.searchParams.set('cursor', moreReviewsLink.dataset.cursor);
+
+    fetch(url, { headers: { 'Accept': 'application/json' } })
+      .then(response => {
+        if (!response.ok) {
+          throw new Error(response.statusText);
+        }
+        return response.json();
+      })
+      .then(reviewPage => {
+        reviewPage.content.forEach(review => reviewGrid.appendChild(createReviewCard(review)));
+
+        if (reviewPage.nextCursor) {
+          const nextUrl = new URL(moreReviewsLink.href);
+          nextUrl.searchParams.set('cursor', reviewPage.nextCursor);
+          moreReviewsLink.href = nextUrl;
+          moreReviewsLink.dataset.cursor = reviewPage.nextCursor;
+          moreReviewsLink.classList.remove('disabled');
+        } else {
+          moreReviewsLink.parentElement.remove();
+        }
+      })
+      .catch(() => {
+        window.location.href = moreReviewsLink.href;
+      });
+  });
+
+  function createReviewCard(review) {
+    const card = reviewCardTemplate.content.firstElementChild.cloneNode(true);
+    const createdAt = new Date(review.createdAt);
+
+    card.querySelector('.review-user-name').textContent = review.userName;
+    card.querySelector('.review-stars').textContent = '★'.repeat(review.score) + '☆'.repeat(5 - review.score);
+    card.querySelector('.review-date').textContent = `${createdAt.getFullYear()}年${String(createdAt.getMonth() + 1).padStart(2, '0')}月${String(createdAt.getDate()).padStart(2, '0')}日`;
+    card.querySelector('.review-comment').textContent = review.comment ?? '';
+
+    // 自分のレビューにだけ編集・削除を表示する（サーバーで判定した結果を使う）
+    const ownerActions = card.querySelector('.review-owner-actions');
+    if (!review.editable) {
+      ownerActions.remove();
+      return card;
+    }
+
+    const reviewUrl = `${reviewGrid.dataset.reviewsUrl}/${review.id}`;
+    ownerActions.querySelector('.review-edit-link').href = `${reviewUrl}/edit`;
+
+    const deleteForm = ownerActions.querySelector('.review-delete-form');
+    deleteForm.action = `${reviewUrl}/delete`;
+    deleteForm.addEventListener('submit', submitEvent => {
+      if (!window.confirm(`${reviewGrid.dataset.houseName}のレビューを削除してもよろしいですか？`)) {
+        submitEvent.preventDefault();
+      }
+    });
+
+    return card;
+  }
+});
@@ -1,8 +1,27 @@
 const stripe = Stripe('pk_test_51Lcdg9H3mwyalYUk46aziPeYiD1r5WzCPaNoo9R13g0s145ose5W8t3OGhxQc78e2K7fJDJ6jcY6LiToqO6dlpwn00wnPuGSnz');
 const paymentButton = document.querySelector('#paymentButton');
+const paymentError = document.querySelector('#paymentError');
+let sessionId = null;
+
+// ページの表示後にサーバー側で作成中のセッションIDを取得する
+fetch(paymentButton.dataset.sessionUrl, { headers: { 'Accept': 'application/json' } })
+  .then(response => response.json().then(body => ({ ok: response.ok, body: body })))
+  .then(result => {
+    if (!result.ok) {
+      throw new Error(result.body.errorMessage);
+    }
+    sessionId = result.body.sessionId;
+    paymentButton.disabled = false;
+    paymentButton.textContent = '決済する';
+  })
+  .catch(error => {
+    paymentError.textContent = error.message || '決済の準備に失敗しました。時間をおいて再度お試しください。';
+    paymentError.classList.remove('d-none');
+    paymentButton.textContent = '決済する';
+  });
 
 paymentButton.addEventListener('click', () => {
   stripe.redirectToCheckout({
     sessionId: sessionId
   })
-});
\ No newline at end of file
+});
@@ -0,0 +1,111 @@
+package com.example.samuraitravel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//テスト用にSMTPサーバーの代わりにメールを受け取るローカルのサーバー
+public class SmtpServerStub {
+	private final ServerSocket serverSocket;
+	private final List<ReceivedMail> receivedMails = new CopyOnWriteArrayList<>();
+	private final Set<String> rejectedRecipients = ConcurrentHashMap.newKeySet();
+	
+	public SmtpServerStub() {
+		try {
+			serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		Thread thread = new Thread(this::acceptLoop, "smtp-server-stub");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	public List<ReceivedMail> getReceivedMails() {
+		return receivedMails;
+	}
+	
+	//指定した宛先への送信を拒否する（RCPTに550を返す）
+	public void reject(String recipient) {
+		rejectedRecipients.add(recipient);
+	}
+	
+	private void acceptLoop() {
+		while(!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				Thread thread = new Thread(() -> handle(socket), "smtp-server-stub-session");
+				thread.setDaemon(true);
+				thread.start();
+			} catch(IOException e) {
+				return;
+			}
+		}
+	}
+	
+	private void handle(Socket socket) {
+		try(socket;
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			OutputStream outputStream = socket.getOutputStream();
+			reply(outputStream, "220 localhost SMTP stub");
+			
+			List<String> recipients = new ArrayList<>();
+			String line;
+			while((line = reader.readLine()) != null) {
+				String command = line.toUpperCase();
+				if(command.startsWith("EHLO") || command.startsWith("HELO")) {
+					reply(outputStream, "250 localhost");
+				} else if(command.startsWith("MAIL FROM")) {
+					recipients.clear();
+					reply(outputStream, "250 OK");
+				} else if(command.startsWith("RCPT TO")) {
+					String recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+					if(rejectedRecipients.contains(recipient)) {
+						reply(outputStream, "550 Mailbox unavailable");
+					} else {
+						recipients.add(recipient);
+						reply(outputStream, "250 OK");
+					}
+				} else if(command.equals("DATA")) {
+					reply(outputStream, "354 End data with <CR><LF>.<CR><LF>");
+					StringBuilder data = new StringBuilder();
+					while(!(line = reader.readLine()).equals(".")) {
+						data.append(line).append("\n");
+					}
+					receivedMails.add(new ReceivedMail(List.copyOf(recipients), data.toString()));
+					reply(outputStream, "250 OK");
+				} else if(command.equals("QUIT")) {
+					reply(outputStream, "221 Bye");
+					return;
+				} else {
+					reply(outputStream, "250 OK");
+				}
+			}
+		} catch(IOException e) {
+			//テスト中に接続が切れた場合は何もしない
+		}
+	}
+	
+	private void reply(OutputStream outputStream, String line) throws IOException {
+		outputStream.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+		outputStream.flush();
+	}
+	
+	public record ReceivedMail(List<String> recipients, String data) {
+	}
+}
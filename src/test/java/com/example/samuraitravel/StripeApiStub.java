@@ -0,0 +1,63 @@
+package com.example.samuraitravel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+//テスト用にStripeのAPIの代わりに応答するローカルのHTTPサーバー
+public class StripeApiStub {
+	private final HttpServer server;
+	private final Map<String, String> responses = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+	
+	public StripeApiStub() {
+		try {
+			server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		server.createContext("/", this::handle);
+		server.start();
+	}
+	
+	//StripeのAPIの接続先として指定するURL
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+	
+	//「メソッド パス」（例：GET /v1/checkout/sessions/cs_test）への応答を登録する
+	public void stub(String methodAndPath, String json) {
+		responses.put(methodAndPath, json);
+	}
+	
+	public int countRequests(String methodAndPath) {
+		return requestCounts.getOrDefault(methodAndPath, new AtomicInteger()).get();
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		String key = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+		requestCounts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+		exchange.getRequestBody().readAllBytes();
+		
+		String json = responses.get(key);
+		int status = 200;
+		if(json == null) {
+			status = 404;
+			json = "{\"error\": {\"type\": \"invalid_request_error\", \"message\": \"No stub for " + key + "\"}}";
+		}
+		
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try(OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.samuraitravel.SmtpServerStub;
+import com.example.samuraitravel.entity.OutboxMail;
+import com.example.samuraitravel.repository.OutboxMailRepository;
+
+@SpringBootTest(properties = { "samuraitravel.mail.outbox.dispatcher.enabled=true", "samuraitravel.mail.outbox.poll-interval=PT0.2S" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AuthControllerTest {
+	private static final SmtpServerStub smtpServerStub = new SmtpServerStub();
+	
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private OutboxMailRepository outboxMailRepository;
+	
+	@DynamicPropertySource
+	static void mailProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.mail.host", () -> "localhost");
+		registry.add("spring.mail.port", smtpServerStub::getPort);
+	}
+	
+	@Test
+	public void 会員登録すると認証メールが送信待ちとして保存されバックグラウンドで送信される() throws Exception {
+		signup("outbox.sent@example.com");
+		
+		OutboxMail outboxMail = awaitMail("outbox.sent@example.com", mail -> OutboxMail.STATUS_SENT.equals(mail.getStatus()));
+		
+		assertThat(outboxMail.getStatus()).isEqualTo(OutboxMail.STATUS_SENT);
+		assertThat(outboxMail.getAttempts()).isEqualTo(1);
+		assertThat(outboxMail.getBody()).contains("http://localhost/signup/verify?token=");
+		assertThat(smtpServerStub.getReceivedMails())
+				.anySatisfy(receivedMail -> assertThat(receivedMail.recipients()).containsExactly("outbox.sent@example.com"));
+	}
+	
+	@Test
+	public void 認証メールの送信に失敗した場合は間隔を空けて再送する() throws Exception {
+		smtpServerStub.reject("outbox.rejected@example.com");
+		
+		signup("outbox.rejected@example.com");
+		
+		OutboxMail outboxMail = awaitMail("outbox.rejected@example.com", mail -> mail.getLastError() != null);
+		
+		assertThat(outboxMail.getStatus()).isEqualTo(OutboxMail.STATUS_PENDING);
+		assertThat(outboxMail.getAttempts()).isEqualTo(1);
+		assertThat(outboxMail.getNextAttemptAt()).isAfter(outboxMail.getUpdatedAt());
+	}
+	
+	private void signup(String email) throws Exception {
+		mockMvc.perform(post("/signup").with(csrf())
+				.param("name", "侍 太郎")
+				.param("furigana", "サムライ タロウ")
+				.param("postalCode", "101-0022")
+				.param("address", "東京都千代田区神田練塀町300番地")
+				.param("phoneNumber", "090-1234-5678")
+				.param("email", email)
+				.param("password", "password")
+				.param("passwordConfirmation", "password"))
+		.andExpect(status().is3xxRedirection())
+		.andExpect(redirectedUrl("/"));
+	}
+	
+	private OutboxMail awaitMail(String email, Predicate<OutboxMail> condition) throws InterruptedException {
+		OutboxMail outboxMail = null;
+		for(int i = 0; i < 100; i++) {
+			outboxMail = outboxMailRepository.findAll().stream()
+					.filter(mail -> mail.getMailTo().equals(email))
+					.findFirst().orElseThrow();
+			if(condition.test(outboxMail)) {
+				return outboxMail;
+			}
+			Thread.sleep(100);
+		}
+		return outboxMail;
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Map;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.service.ReservationService;
+import com.example.samuraitravel.service.StripeWebhookService;
+import com.stripe.model.Event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+//各画面で発行されるSQLの数と読み込まれるエンティティの数を検証する
+//民宿のコレクション（予約・レビュー・お気に入り）が読み込まれていないことも確認する
+//（受信箱・送信箱の定期的な取り出しのSQLが計測に混ざらないよう、取り出しは無効のままにしておく）
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class FetchPlanTest {
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Autowired
+	private ReservationService reservationService;
+	
+	@Autowired
+	private StripeWebhookService stripeWebhookService;
+	
+	private Statistics statistics;
+	
+	@BeforeEach
+	public void setUp() {
+		//2次キャッシュが空の状態から計測する
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+	
+	//SQLの発行数・エンティティの読み込み数を検証し、次の計測のためにリセットする
+	private void assertFetchPlan(long expectedStatements, long expectedEntities) {
+		assertThat(statistics.getPrepareStatementCount()).as("SQLの発行数").isEqualTo(expectedStatements);
+		assertThat(statistics.getEntityLoadCount()).as("エンティティの読み込み数").isEqualTo(expectedEntities);
+		assertThat(statistics.getCollectionFetchCount()).as("コレクションの読み込み数").isZero();
+		statistics.clear();
+	}
+	
+	@Test
+	public void トップページは2回目以降のリクエストでデータベースにアクセスしない() throws Exception {
+		mockMvc.perform(get("/")).andExpect(status().isOk());
+		statistics.clear();
+		
+		mockMvc.perform(get("/")).andExpect(status().isOk());
+		assertFetchPlan(0, 0);
+	}
+	
+	@Test
+	public void 民宿一覧ページはプロジェクションを1回のクエリで取得する() throws Exception {
+		mockMvc.perform(get("/houses")).andExpect(status().isOk());
+		assertFetchPlan(1, 0);
+	}
+	
+	@Test
+	public void 民宿一覧ページと民宿詳細ページは2回目のリクエストで民宿を2次キャッシュから取得する() throws Exception {
+		mockMvc.perform(get("/houses")).andExpect(status().isOk());
+		mockMvc.perform(get("/houses/1")).andExpect(status().isOk());
+		statistics.clear();
+		
+		mockMvc.perform(get("/houses")).andExpect(status().isOk());
+		assertFetchPlan(0, 0);
+		
+		//最新のレビューと集計は毎回データベースから取得する
+		mockMvc.perform(get("/houses/1")).andExpect(status().isOk());
+		assertThat(statistics.getCacheRegionStatistics(House.class.getName()).getHitCount()).isEqualTo(1);
+		assertThat(meterRegistry.get("entity.cache.requests").tag("region", House.class.getName()).tag("result", "hit").functionCounter().count()).isEqualTo(1);
+		assertFetchPlan(2, 0);
+	}
+	
+	@Test
+	public void 未ログインの場合は民宿詳細ページを民宿と最新レビューとレビューの集計の3回のクエリで取得する() throws Exception {
+		mockMvc.perform(get("/houses/1")).andExpect(status().isOk());
+		assertFetchPlan(3, 1);
+	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void ログイン済みの場合も民宿詳細ページはレビューとお気に入りの投稿有無を集計と同じクエリで確認する() throws Exception {
+		mockMvc.perform(get("/houses/1")).andExpect(status().isOk());
+		assertFetchPlan(3, 1);
+	}
+	
+	@Test
+	@WithUserDetails("hanako.samurai@example.com")
+	public void 管理者用の民宿一覧ページは民宿だけを取得し民宿詳細ページは一覧で読み込んだ民宿を2次キャッシュから取得する() throws Exception {
+		mockMvc.perform(get("/admin/houses")).andExpect(status().isOk());
+		assertFetchPlan(2, 10);
+		
+		mockMvc.perform(get("/admin/houses/1")).andExpect(status().isOk());
+		assertFetchPlan(0, 0);
+	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void 予約一覧とお気に入り一覧は関連エンティティを同じクエリで取得しレビュー一覧はプロジェクションで取得する() throws Exception {
+		mockMvc.perform(get("/reservations")).andExpect(status().isOk());
+		assertFetchPlan(1, 22);
+		
+		mockMvc.perform(get("/favorites")).andExpect(status().isOk());
+		assertFetchPlan(1, 2);
+		
+		//民宿は予約一覧で読み込んだものを2次キャッシュから取得する
+		mockMvc.perform(get("/houses/1/reviews/index")).andExpect(status().isOk());
+		assertFetchPlan(1, 0);
+		
+		mockMvc.perform(get("/houses/1/reviews")).andExpect(status().isOk());
+		assertFetchPlan(1, 0);
+	}
+	
+	@Test
+	public void 予約の登録とWebhookの受信では民宿の2次キャッシュと民宿一覧のクエリキャッシュが消えない() throws Exception {
+		mockMvc.perform(get("/houses")).andExpect(status().isOk());
+		mockMvc.perform(get("/houses/1")).andExpect(status().isOk());
+		
+		//予約数・予約状況の行の作成と、受信箱への保存はネイティブクエリで行う
+		reservationService.createReservation(Map.of("houseId", "2", "userId", "3", "checkinDate", "2033-03-01", "checkoutDate", "2033-03-02",
+				"numberOfPeople", "1", "amount", "7000"));
+		Event event = new Event();
+		event.setId("evt_fetch_plan");
+		event.setType("customer.created");
+		stripeWebhookService.receive(event, "{}");
+		
+		assertThat(entityManagerFactory.getCache().contains(House.class, 1)).isTrue();
+		statistics.clear();
+		mockMvc.perform(get("/houses")).andExpect(status().isOk());
+		assertFetchPlan(0, 0);
+	}
+}
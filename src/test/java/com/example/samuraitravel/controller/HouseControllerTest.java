@@ -1,8 +1,13 @@
 package com.example.samuraitravel.controller;
 
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.Comparator;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -10,6 +15,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseListItem;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -33,6 +42,75 @@ public class HouseControllerTest {
 		.andExpect(view().name("houses/index"));
 	}
 	
+	@Test
+	public void 複数の検索条件を組み合わせて民宿を検索できる() throws Exception {
+		mockMvc.perform(get("/houses")
+				.param("keyword", "SAMURAI")
+				.param("area", "東京都")
+				.param("price", "8000")
+				.param("capacity", "2")
+				.param("order", "priceAsc"))
+		.andExpect(status().isOk())
+		.andExpect(view().name("houses/index"))
+		.andExpect(model().attributeExists("housePage"));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void カーソルを使って次のページの民宿を重複なく取得できる() throws Exception {
+		MvcResult firstResult = mockMvc.perform(get("/houses").param("order", "priceAsc"))
+				.andExpect(status().isOk())
+				.andReturn();
+		CursorPage<HouseListItem> firstPage = (CursorPage<HouseListItem>)firstResult.getModelAndView().getModel().get("housePage");
+		
+		assertThat(firstPage.isFirst()).isTrue();
+		assertThat(firstPage.hasNext()).isTrue();
+		
+		MvcResult nextResult = mockMvc.perform(get("/houses").param("order", "priceAsc").param("cursor", firstPage.getNextCursor()))
+				.andExpect(status().isOk())
+				.andReturn();
+		CursorPage<HouseListItem> nextPage = (CursorPage<HouseListItem>)nextResult.getModelAndView().getModel().get("housePage");
+		
+		HouseListItem lastOfFirstPage = firstPage.getContent().get(firstPage.getContent().size() - 1);
+		HouseListItem firstOfNextPage = nextPage.getContent().get(0);
+		
+		assertThat(nextPage.isFirst()).isFalse();
+		assertThat(firstOfNextPage.getPrice()).isGreaterThanOrEqualTo(lastOfFirstPage.getPrice());
+		assertThat(nextPage.getContent()).extracting(HouseListItem::getId)
+				.doesNotContainAnyElementsOf(firstPage.getContent().stream().map(HouseListItem::getId).toList());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void 評価が高い順に並べ替えると平均評価の降順で表示される() throws Exception {
+		MvcResult result = mockMvc.perform(get("/houses").param("order", "ratingDesc"))
+				.andExpect(status().isOk())
+				.andReturn();
+		CursorPage<HouseListItem> housePage = (CursorPage<HouseListItem>)result.getModelAndView().getModel().get("housePage");
+		
+		//サンプルデータでレビューがあるのは民宿1だけ
+		assertThat(housePage.getContent().get(0).getId()).isEqualTo(1);
+		assertThat(housePage.getContent()).extracting(HouseListItem::getAverageScore).isSortedAccordingTo(Comparator.reverseOrder());
+	}
+	
+	@Test
+	public void 並べ替え順が異なるカーソルは無視して先頭のページを表示する() throws Exception {
+		mockMvc.perform(get("/houses").param("order", "createdAtDesc").param("cursor", "cHJpY2U9NjAwMCZpZD0x"))
+		.andExpect(status().isOk())
+		.andExpect(model().attribute("housePage", hasProperty("first", is(true))));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void 宿泊期間に予約が入っている民宿は検索結果から除外される() throws Exception {
+		MvcResult result = mockMvc.perform(get("/houses").param("checkinDate", "2023-04-01").param("checkoutDate", "2023-04-02"))
+				.andExpect(status().isOk())
+				.andReturn();
+		CursorPage<HouseListItem> housePage = (CursorPage<HouseListItem>)result.getModelAndView().getModel().get("housePage");
+		
+		assertThat(housePage.getContent()).extracting(HouseListItem::getId).doesNotContain(1, 2);
+	}
+	
 	@Test
 	public void 未ログインの場合は会員用の民宿詳細ページが正しく表示される() throws Exception {
 		mockMvc.perform(get("/houses/1"))
@@ -47,4 +125,28 @@ public class HouseControllerTest {
 		.andExpect(status().isOk())
 		.andExpect(view().name("houses/show"));
 	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void 民宿詳細ページにはログイン中のユーザーがレビューとお気に入りを投稿済みかが渡される() throws Exception {
+		//サンプルデータでは侍太郎は民宿1にだけレビューとお気に入りを投稿している
+		mockMvc.perform(get("/houses/1"))
+		.andExpect(status().isOk())
+		.andExpect(model().attribute("hasPostedReview", true))
+		.andExpect(model().attribute("hasPostedFavorite", true))
+		.andExpect(model().attribute("reviewSummary", hasProperty("reviewCount", is(11))));
+		
+		mockMvc.perform(get("/houses/2"))
+		.andExpect(status().isOk())
+		.andExpect(model().attribute("hasPostedReview", false))
+		.andExpect(model().attribute("hasPostedFavorite", false))
+		.andExpect(model().attribute("reviewSummary", hasProperty("reviewCount", is(0))));
+	}
+	
+	@Test
+	public void 存在しない民宿の詳細ページは民宿一覧にリダイレクトする() throws Exception {
+		mockMvc.perform(get("/houses/9999"))
+		.andExpect(status().is3xxRedirection())
+		.andExpect(redirectedUrl("/houses"));
+	}
 }
@@ -0,0 +1,70 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import com.example.samuraitravel.dto.CursorPage;
+import com.example.samuraitravel.dto.HouseListItem;
+import com.example.samuraitravel.service.HouseKeywordIndex;
+
+//民宿IDのパラメーター数の上限を小さくして、上限を超えた場合の検索方法に切り替わることを確認する
+@SpringBootTest(properties = "samuraitravel.house-search.max-id-parameters=1")
+@AutoConfigureMockMvc
+@ActiveProfiles
+public class HouseSearchParameterLimitTest {
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private HouseKeywordIndex houseKeywordIndex;
+
+	@Test
+	public void キーワードに該当する民宿が上限を超える場合はLIKE検索で同じ条件の民宿を取得する() throws Exception {
+		CursorPage<HouseListItem> housePage = search(get("/houses").param("keyword", "SAMURAI"));
+
+		assertThat(housePage.getContent()).hasSizeGreaterThan(1);
+		assertThat(housePage.getContent()).allSatisfy(house ->
+				assertThat(house.getName() + house.getAddress() + house.getDescription()).contains("SAMURAI"));
+	}
+
+	@Test
+	public void LIKE検索でもキーワード索引と同じく正規化した語をすべて含む民宿を取得する() throws Exception {
+		//全角英字・全角空白で区切られた複数の語
+		String keyword = "ｓａｍｕｒａｉ\u3000ハイ";
+		List<Integer> indexedHouseIds = houseKeywordIndex.search(keyword);
+		assertThat(indexedHouseIds).hasSizeBetween(2, 10);
+		
+		CursorPage<HouseListItem> housePage = search(get("/houses").param("keyword", keyword));
+		
+		assertThat(housePage.getContent()).extracting(HouseListItem::getId).containsExactlyInAnyOrderElementsOf(indexedHouseIds);
+	}
+	
+	@Test
+	public void 宿泊期間に予約が入っている民宿が上限を超える場合は予約テーブルを参照して除外する() throws Exception {
+		//サンプルデータでは民宿1と民宿2にこの期間の予約が入っている
+		CursorPage<HouseListItem> housePage = search(get("/houses").param("checkinDate", "2023-04-01").param("checkoutDate", "2023-04-02"));
+
+		assertThat(housePage.getContent()).isNotEmpty();
+		assertThat(housePage.getContent()).extracting(HouseListItem::getId).doesNotContain(1, 2);
+	}
+
+	@SuppressWarnings("unchecked")
+	private CursorPage<HouseListItem> search(RequestBuilder request) throws Exception {
+		MvcResult result = mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andReturn();
+		return (CursorPage<HouseListItem>)result.getModelAndView().getModel().get("housePage");
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.samuraitravel.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ImageControllerTest {
+	@Autowired
+	private MockMvc mockMvc;
+	
+	//縮小画像が生成されていない状態から始めるため、空の保存先を使う
+	@DynamicPropertySource
+	static void storageProperties(DynamicPropertyRegistry registry) throws IOException {
+		Path root = Files.createTempDirectory("image-controller-test");
+		registry.add("samuraitravel.storage.local.root", root::toString);
+	}
+	
+	@Test
+	public void 民宿画像は長期間キャッシュできるヘッダーとETagを付けて配信される() throws Exception {
+		mockMvc.perform(get("/storage/house01.jpg"))
+		.andExpect(status().isOk())
+		.andExpect(content().contentType("image/jpeg"))
+		.andExpect(header().string("ETag", "\"house01\""))
+		.andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+	}
+	
+	@Test
+	public void ETagが一致する場合は画像を送らずに304を返す() throws Exception {
+		mockMvc.perform(get("/storage/house01.jpg").header("If-None-Match", "\"house01\""))
+		.andExpect(status().isNotModified())
+		.andExpect(content().bytes(new byte[0]));
+	}
+	
+	@Test
+	public void 縮小画像が生成されていない場合は元の画像を短時間だけキャッシュさせる() throws Exception {
+		mockMvc.perform(get("/storage/house01_jpg_640w.jpg"))
+		.andExpect(status().isOk())
+		.andExpect(content().contentType("image/jpeg"))
+		.andExpect(header().string("Cache-Control", "max-age=60, public"))
+		.andExpect(header().doesNotExist("ETag"));
+	}
+	
+	@Test
+	public void 存在しない画像は404を返す() throws Exception {
+		mockMvc.perform(get("/storage/missing.jpg"))
+		.andExpect(status().isNotFound());
+	}
+}
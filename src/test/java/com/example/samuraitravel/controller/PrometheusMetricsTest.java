@@ -0,0 +1,50 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=health,metrics,prometheus")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+public class PrometheusMetricsTest {
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	public void 民宿一覧の応答時間はコントローラーのメソッドと検索の種類ごとにヒストグラムで公開される() throws Exception {
+		mockMvc.perform(get("/houses").param("keyword", "海").param("area", "東京都")).andExpect(status().isOk());
+		mockMvc.perform(get("/houses/1")).andExpect(status().isOk());
+
+		String metrics = scrape();
+
+		assertThat(metrics).containsPattern("http_server_requests_seconds_bucket\\{[^}]*handler=\"HouseController\\.index\"[^}]*search_mode=\"keyword\\+area\"");
+		assertThat(metrics).containsPattern("http_server_requests_seconds_count\\{[^}]*handler=\"HouseController\\.show\"[^}]*search_mode=\"none\"");
+		assertThat(metrics).containsPattern("spring_data_repository_invocations_seconds_bucket\\{[^}]*repository=\"HouseRepository\"");
+		assertThat(metrics).containsPattern("spring_data_repository_rows_count\\{[^}]*method=\"scroll\"[^}]*repository=\"HouseRepository\"");
+		assertThat(metrics).contains("hikaricp_connections_acquire_seconds_bucket");
+		assertThat(metrics).contains("home_page_cache_requests_total", "entity_cache_requests_total", "cache_gets_total{cache=\"user-details\"");
+	}
+
+	@Test
+	public void メトリクスの収集には管理者のBasic認証が必要() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("taro.samurai@example.com", "password"))).andExpect(status().isForbidden());
+	}
+
+	private String scrape() throws Exception {
+		return mockMvc.perform(get("/actuator/prometheus").with(httpBasic("hanako.samurai@example.com", "password")))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+	}
+}
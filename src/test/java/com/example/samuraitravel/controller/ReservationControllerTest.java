@@ -1,33 +1,55 @@
 package com.example.samuraitravel.controller;
 
-//import static org.assertj.core.api.Assertions.*;
+import static org.assertj.core.api.Assertions.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.time.LocalDate;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 //import org.springframework.transaction.annotation.Transactional;
 
+import com.example.samuraitravel.StripeApiStub;
 import com.example.samuraitravel.dto.ReservationDTO;
+import com.example.samuraitravel.service.HouseAvailabilityIndex;
 //import com.example.samuraitravel.entity.Reservation;
 //import com.example.samuraitravel.service.ReservationService;
+import com.jayway.jsonpath.JsonPath;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
 public class ReservationControllerTest {
+	private static final StripeApiStub stripeApiStub = new StripeApiStub();
+	
 	@Autowired
 	private MockMvc mockMvc;
 	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@DynamicPropertySource
+	static void stripeProperties(DynamicPropertyRegistry registry) {
+		registry.add("stripe.api-base", stripeApiStub::getUrl);
+	}
+	
 	/*
 	@Autowired
 	private ReservationService reservationService;
@@ -58,6 +80,34 @@ public class ReservationControllerTest {
 		.andExpect(redirectedUrl("http://localhost/login"));
 	}
 	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void 予約済みの期間と重複する場合は予約内容の確認ページに進まない() throws Exception {
+		mockMvc.perform(post("/houses/1/reservations/input").with(csrf())
+				.param("checkinDate", "2023-04-01")
+				.param("checkoutDate", "2023-04-03")
+				.param("numberOfPeople", "1"))
+		.andExpect(status().isOk())
+		.andExpect(view().name("houses/show"))
+		.andExpect(model().attributeHasFieldErrors("reservationInputForm", "checkinDate"));
+	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void 他のサーバーで予約された期間と重複する場合も予約内容の確認ページに進まない() throws Exception {
+		//このサーバーのメモリ上の索引を通さずに、予約状況のテーブルだけを更新する
+		jdbcTemplate.update("INSERT INTO house_occupancies (house_id, stay_year, occupied_days) VALUES (?, ?, ?)", 3, 2032,
+				HouseAvailabilityIndex.toNightsByYear(LocalDate.of(2032, 5, 1), LocalDate.of(2032, 5, 3)).get(2032).toByteArray());
+		
+		mockMvc.perform(post("/houses/3/reservations/input").with(csrf())
+				.param("checkinDate", "2032-05-02")
+				.param("checkoutDate", "2032-05-04")
+				.param("numberOfPeople", "1"))
+		.andExpect(status().isOk())
+		.andExpect(view().name("houses/show"))
+		.andExpect(model().attributeHasFieldErrors("reservationInputForm", "checkinDate"));
+	}
+	
 	@Test
 	@WithUserDetails("taro.samurai@example.com")
 	public void ログイン済みの場合は予約フォームの送信後に予約内容の確認ページにリダイレクトする() throws Exception {
@@ -96,6 +146,81 @@ public class ReservationControllerTest {
 		.andExpect(view().name("reservations/confirm"));
 	}
 	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void 予約内容の確認ページを再読み込みしてもStripeのセッションは1回だけ作成される() throws Exception {
+		stripeApiStub.stub("POST /v1/checkout/sessions", """
+				{"id": "cs_test_confirm", "object": "checkout.session"}
+				""");
+		
+		int countBefore = stripeApiStub.countRequests("POST /v1/checkout/sessions");
+		
+		MockHttpSession mockHttpSession = new MockHttpSession();
+		ReservationDTO reservationDTO = new ReservationDTO(2, LocalDate.parse("2031-06-01"), LocalDate.parse("2031-06-03"), 1, 14000);
+		mockHttpSession.setAttribute("reservationDTO", reservationDTO);
+		
+		for(int i = 0; i < 2; i++) {
+			mockMvc.perform(get("/reservations/confirm").session(mockHttpSession))
+			.andExpect(status().isOk())
+			.andExpect(model().attributeDoesNotExist("sessionId"));
+		}
+		
+		//セッションIDは非同期で取得する
+		MvcResult mvcResult = mockMvc.perform(get("/reservations/confirm/session").session(mockHttpSession))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		
+		mockMvc.perform(asyncDispatch(mvcResult))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.sessionId").value("cs_test_confirm"));
+		
+		assertThat(stripeApiStub.countRequests("POST /v1/checkout/sessions")).isEqualTo(countBefore + 1);
+	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void HTTPセッションを直列化して復元しても作成済みのStripeのセッションを使い回す() throws Exception {
+		stripeApiStub.stub("POST /v1/checkout/sessions", """
+				{"id": "cs_test_persist", "object": "checkout.session"}
+				""");
+		int countBefore = stripeApiStub.countRequests("POST /v1/checkout/sessions");
+		
+		MockHttpSession mockHttpSession = new MockHttpSession();
+		ReservationDTO reservationDTO = new ReservationDTO(3, LocalDate.parse("2031-08-01"), LocalDate.parse("2031-08-02"), 1, 8000);
+		mockHttpSession.setAttribute("reservationDTO", reservationDTO);
+		
+		assertThat(fetchCheckoutSessionId(mockHttpSession)).isEqualTo("cs_test_persist");
+		
+		//作成したセッションIDがHTTPセッションに反映されるまで待つ
+		for(int i = 0; i < 50 && !String.valueOf(mockHttpSession.getAttribute("checkoutSession")).contains("cs_test_persist"); i++) {
+			Thread.sleep(100);
+		}
+		
+		//サーバーの再起動を想定して、HTTPセッションの属性をすべて直列化してから別のセッションに復元する
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes)) {
+			objectOutputStream.writeObject(mockHttpSession.serializeState());
+		}
+		MockHttpSession restoredHttpSession = new MockHttpSession();
+		try(ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			restoredHttpSession.deserializeState((Serializable)objectInputStream.readObject());
+		}
+		
+		assertThat(restoredHttpSession.getAttribute("checkoutSession")).isNotNull();
+		assertThat(fetchCheckoutSessionId(restoredHttpSession)).isEqualTo("cs_test_persist");
+		assertThat(stripeApiStub.countRequests("POST /v1/checkout/sessions")).isEqualTo(countBefore + 1);
+	}
+	
+	private String fetchCheckoutSessionId(MockHttpSession mockHttpSession) throws Exception {
+		MvcResult mvcResult = mockMvc.perform(get("/reservations/confirm/session").session(mockHttpSession))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		
+		return JsonPath.read(mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), "$.sessionId");
+	}
+	
 	/*
 	@Test
 	@Transactional
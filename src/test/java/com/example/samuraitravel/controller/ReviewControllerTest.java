@@ -0,0 +1,78 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.jayway.jsonpath.JsonPath;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ReviewControllerTest {
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Test
+	public void 民宿詳細ページには最新のレビューだけを表示し続きのカーソルを渡す() throws Exception {
+		//サンプルデータでは民宿1に11件のレビューがある
+		mockMvc.perform(get("/houses/1"))
+		.andExpect(status().isOk())
+		.andExpect(model().attribute("reviewPage", hasProperty("content", hasSize(6))))
+		.andExpect(model().attribute("reviewPage", hasProperty("nextCursor", notNullValue())));
+	}
+	
+	@Test
+	public void 未ログインでもレビューの続きをJSONで取得できる() throws Exception {
+		MvcResult firstResult = mockMvc.perform(get("/houses/1/reviews"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/json"))
+				.andExpect(jsonPath("$.content", hasSize(10)))
+				.andExpect(jsonPath("$.content[0].userName").isString())
+				.andExpect(jsonPath("$.content[0].user").doesNotExist())
+				.andExpect(jsonPath("$.content[*].userId").isEmpty())
+				.andExpect(jsonPath("$.content[*].editable", everyItem(is(false))))
+				.andExpect(jsonPath("$.nextCursor").isString())
+				.andReturn();
+		String nextCursor = JsonPath.read(firstResult.getResponse().getContentAsString(), "$.nextCursor");
+		
+		mockMvc.perform(get("/houses/1/reviews").param("cursor", nextCursor))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.content", hasSize(1)))
+		.andExpect(jsonPath("$.nextCursor").doesNotExist())
+		.andExpect(jsonPath("$.first").value(false));
+	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	public void ログイン中のユーザーが投稿したレビューだけが編集できるものとして返される() throws Exception {
+		//サンプルデータでは侍太郎は民宿1にだけレビューを投稿している
+		MvcResult firstResult = mockMvc.perform(get("/houses/1/reviews"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[*].userId").isEmpty())
+				.andReturn();
+		String nextCursor = JsonPath.read(firstResult.getResponse().getContentAsString(), "$.nextCursor");
+		MvcResult nextResult = mockMvc.perform(get("/houses/1/reviews").param("cursor", nextCursor))
+				.andExpect(status().isOk())
+				.andReturn();
+		
+		List<Boolean> editable = new ArrayList<>();
+		editable.addAll(JsonPath.read(firstResult.getResponse().getContentAsString(), "$.content[*].editable"));
+		editable.addAll(JsonPath.read(nextResult.getResponse().getContentAsString(), "$.content[*].editable"));
+		
+		assertThat(editable).hasSize(11).containsOnlyOnce(true);
+	}
+}
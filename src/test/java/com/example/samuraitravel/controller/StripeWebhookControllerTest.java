@@ -0,0 +1,207 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.samuraitravel.StripeApiStub;
+import com.example.samuraitravel.entity.PendingReservation;
+import com.example.samuraitravel.entity.StripeWebhookEvent;
+import com.example.samuraitravel.repository.OutboxMailRepository;
+import com.example.samuraitravel.repository.PendingReservationRepository;
+import com.example.samuraitravel.repository.StripeWebhookEventRepository;
+import com.example.samuraitravel.repository.UserRepository;
+import com.example.samuraitravel.service.ReservationService;
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+
+@SpringBootTest(properties = { "samuraitravel.stripe.webhook.worker.enabled=true", "samuraitravel.stripe.webhook.poll-interval=PT0.2S" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class StripeWebhookControllerTest {
+	private static final StripeApiStub stripeApiStub = new StripeApiStub();
+	
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private ReservationService reservationService;
+	
+	@Autowired
+	private StripeWebhookEventRepository stripeWebhookEventRepository;
+	
+	@Autowired
+	private PendingReservationRepository pendingReservationRepository;
+	
+	@Autowired
+	private OutboxMailRepository outboxMailRepository;
+	
+	@Autowired
+	private UserRepository userRepository;
+	
+	@Value("${stripe.webhook-secret}")
+	private String webhookSecret;
+	
+	@DynamicPropertySource
+	static void stripeProperties(DynamicPropertyRegistry registry) {
+		registry.add("stripe.api-base", stripeApiStub::getUrl);
+	}
+	
+	@Test
+	public void 保存した予約内容がない場合はStripeから取得し再送されても予約は1件だけ登録される() throws Exception {
+		stripeApiStub.stub("GET /v1/checkout/sessions/cs_test_webhook", """
+				{"id": "cs_test_webhook", "object": "checkout.session",
+				 "payment_intent": {"id": "pi_test_webhook", "object": "payment_intent",
+				  "metadata": {"houseId": "5", "userId": "12", "checkinDate": "2031-05-01", "checkoutDate": "2031-05-03",
+				               "numberOfPeople": "2", "amount": "12000"}}}
+				""");
+		String payload = """
+				{"id": "evt_test_webhook", "object": "event", "api_version": "%s", "type": "checkout.session.completed",
+				 "data": {"object": {"id": "cs_test_webhook", "object": "checkout.session"}}}
+				""".formatted(Stripe.API_VERSION);
+		
+		long countBefore = reservationService.countReservations();
+		
+		//Stripeからの再送を想定して同じイベントを2回送信する
+		for(int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/stripe/webhook")
+					.contentType(MediaType.APPLICATION_JSON)
+					.header("Stripe-Signature", sign(payload))
+					.content(payload))
+			.andExpect(status().isOk());
+		}
+		
+		StripeWebhookEvent stripeWebhookEvent = awaitProcessed("evt_test_webhook");
+		
+		assertThat(stripeWebhookEvent.getStatus()).isEqualTo(StripeWebhookEvent.STATUS_DONE);
+		assertThat(stripeWebhookEvent.getAttempts()).isEqualTo(1);
+		assertThat(reservationService.countReservations()).isEqualTo(countBefore + 1);
+		assertThat(reservationService.findFirstReservationByOrderByIdDesc().getCheckinDate()).isEqualTo("2031-05-01");
+		assertThat(stripeApiStub.countRequests("GET /v1/checkout/sessions/cs_test_webhook")).isEqualTo(1);
+	}
+	
+	@Test
+	public void セッション作成時に保存した予約内容がある場合はStripeに問い合わせずに予約を登録する() throws Exception {
+		PendingReservation pendingReservation = new PendingReservation();
+		pendingReservation.setSessionId("cs_test_pending");
+		pendingReservation.setHouseId(6);
+		pendingReservation.setUserId(12);
+		pendingReservation.setCheckinDate(LocalDate.parse("2031-07-01"));
+		pendingReservation.setCheckoutDate(LocalDate.parse("2031-07-02"));
+		pendingReservation.setNumberOfPeople(1);
+		pendingReservation.setAmount(7000);
+		pendingReservationRepository.save(pendingReservation);
+		
+		String payload = """
+				{"id": "evt_test_pending", "object": "event", "api_version": "%s", "type": "checkout.session.completed",
+				 "data": {"object": {"id": "cs_test_pending", "object": "checkout.session"}}}
+				""".formatted(Stripe.API_VERSION);
+		
+		long countBefore = reservationService.countReservations();
+		
+		mockMvc.perform(post("/stripe/webhook")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Stripe-Signature", sign(payload))
+				.content(payload))
+		.andExpect(status().isOk());
+		
+		StripeWebhookEvent stripeWebhookEvent = awaitProcessed("evt_test_pending");
+		
+		assertThat(stripeWebhookEvent.getStatus()).isEqualTo(StripeWebhookEvent.STATUS_DONE);
+		assertThat(reservationService.countReservations()).isEqualTo(countBefore + 1);
+		assertThat(pendingReservationRepository.existsById("cs_test_pending")).isFalse();
+		assertThat(stripeApiStub.countRequests("GET /v1/checkout/sessions/cs_test_pending")).isZero();
+	}
+	
+	@Test
+	public void 決済済みの予約が他の予約と重複した場合は返金して会員にメールで知らせる() throws Exception {
+		stripeApiStub.stub("POST /v1/refunds", """
+				{"id": "re_test_conflict", "object": "refund", "payment_intent": "pi_test_conflict", "status": "succeeded"}
+				""");
+		
+		//決済の手続き中に、同じ民宿・期間の予約が先に登録されたものとする
+		reservationService.createReservation(Map.of("houseId", "7", "userId", "12", "checkinDate", "2031-09-01", "checkoutDate", "2031-09-03",
+				"numberOfPeople", "1", "amount", "14000"));
+		
+		PendingReservation pendingReservation = new PendingReservation();
+		pendingReservation.setSessionId("cs_test_conflict");
+		pendingReservation.setHouseId(7);
+		pendingReservation.setUserId(12);
+		pendingReservation.setCheckinDate(LocalDate.parse("2031-09-02"));
+		pendingReservation.setCheckoutDate(LocalDate.parse("2031-09-04"));
+		pendingReservation.setNumberOfPeople(1);
+		pendingReservation.setAmount(14000);
+		pendingReservationRepository.save(pendingReservation);
+		
+		String payload = """
+				{"id": "evt_test_conflict", "object": "event", "api_version": "%s", "type": "checkout.session.completed",
+				 "data": {"object": {"id": "cs_test_conflict", "object": "checkout.session", "payment_intent": "pi_test_conflict"}}}
+				""".formatted(Stripe.API_VERSION);
+		
+		long countBefore = reservationService.countReservations();
+		
+		mockMvc.perform(post("/stripe/webhook")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Stripe-Signature", sign(payload))
+				.content(payload))
+		.andExpect(status().isOk());
+		
+		StripeWebhookEvent stripeWebhookEvent = awaitProcessed("evt_test_conflict");
+		
+		assertThat(stripeWebhookEvent.getStatus()).isEqualTo(StripeWebhookEvent.STATUS_CONFLICT);
+		assertThat(stripeWebhookEvent.getLastError()).contains("ReservationConflictException");
+		assertThat(reservationService.countReservations()).isEqualTo(countBefore);
+		assertThat(stripeApiStub.countRequests("POST /v1/refunds")).isEqualTo(1);
+		assertThat(pendingReservationRepository.existsById("cs_test_conflict")).isFalse();
+		
+		String email = userRepository.findById(12).orElseThrow().getEmail();
+		assertThat(outboxMailRepository.findAll())
+				.anySatisfy(outboxMail -> {
+					assertThat(outboxMail.getMailTo()).isEqualTo(email);
+					assertThat(outboxMail.getSubject()).isEqualTo("ご予約をお受けできませんでした");
+					assertThat(outboxMail.getBody()).contains("2031-09-02 から 2031-09-04");
+				});
+	}
+	
+	@Test
+	public void 署名が正しくない場合は受信箱に保存しない() throws Exception {
+		mockMvc.perform(post("/stripe/webhook")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Stripe-Signature", "t=1,v1=invalid")
+				.content("{\"id\": \"evt_test_invalid\"}"))
+		.andExpect(status().isBadRequest());
+		
+		assertThat(stripeWebhookEventRepository.existsById("evt_test_invalid")).isFalse();
+	}
+	
+	private String sign(String payload) throws Exception {
+		long timestamp = Webhook.Util.getTimeNow();
+		return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(webhookSecret, timestamp + "." + payload);
+	}
+	
+	private StripeWebhookEvent awaitProcessed(String eventId) throws InterruptedException {
+		for(int i = 0; i < 100; i++) {
+			StripeWebhookEvent stripeWebhookEvent = stripeWebhookEventRepository.findById(eventId).orElseThrow();
+			if(!StripeWebhookEvent.STATUS_PENDING.equals(stripeWebhookEvent.getStatus())
+					&& !StripeWebhookEvent.STATUS_PROCESSING.equals(stripeWebhookEvent.getStatus())) {
+				return stripeWebhookEvent;
+			}
+			Thread.sleep(100);
+		}
+		return stripeWebhookEventRepository.findById(eventId).orElseThrow();
+	}
+}
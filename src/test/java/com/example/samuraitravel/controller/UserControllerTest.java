@@ -9,12 +9,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.samuraitravel.entity.User;
+import com.example.samuraitravel.security.UserDetailsImpl;
 import com.example.samuraitravel.service.UserService;
 
 @SpringBootTest
@@ -96,4 +100,29 @@ public class UserControllerTest {
 		assertThat(user.getPhoneNumber()).isEqualTo("000-000-000");
 		assertThat(user.getEmail()).isEqualTo("test@example.com");
 	}
+	
+	@Test
+	@WithUserDetails("taro.samurai@example.com")
+	@Transactional
+	public void 会員更新後はセッションのログイン情報が変更後の氏名とメールアドレスになる() throws Exception {
+		MvcResult result = mockMvc.perform(post("/user/update")
+				.with(csrf())
+				.param("name", "テスト氏名")
+				.param("furigana", "テストフリガナ")
+				.param("postalCode", "000-0000")
+				.param("address", "テスト住所")
+				.param("phoneNumber", "000-000-000")
+				.param("email", "test@example.com"))
+		.andExpect(status().is3xxRedirection())
+		.andReturn();
+		
+		SecurityContext securityContext = (SecurityContext)result.getRequest().getSession()
+				.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+		UserDetailsImpl userDetailsImpl = (UserDetailsImpl)securityContext.getAuthentication().getPrincipal();
+		
+		assertThat(userDetailsImpl.getId()).isEqualTo(1);
+		assertThat(userDetailsImpl.getName()).isEqualTo("テスト氏名");
+		assertThat(userDetailsImpl.getUsername()).isEqualTo("test@example.com");
+		assertThat(userDetailsImpl.getPassword()).isNull();
+	}
 }
@@ -0,0 +1,175 @@
+package com.example.samuraitravel.controller;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.samuraitravel.SamuraitravelApplication;
+import com.example.samuraitravel.StripeApiStub;
+import com.example.samuraitravel.repository.DatabaseConcurrencyLimiter;
+
+//実際のHTTPサーバーを、従来のスレッドプールの場合と仮想スレッドの場合で起動し、
+//民宿一覧ページと予約内容の確認ページに同時にリクエストを送って、スループットと99パーセンタイルの応答時間を比較する
+//時間がかかるため通常のテストでは実行せず、負荷試験のプロファイル（-Pload-test）で実行する
+@Tag("load")
+public class VirtualThreadLoadTest {
+	//本番環境と同じコネクションプールの大きさ
+	private static final int POOL_SIZE = 5;
+
+	//同時にリクエストを送る数と、ページごとのリクエスト数
+	private static final int CONCURRENCY = 50;
+	private static final int REQUESTS = 400;
+	
+	//計測前にJITコンパイルやキャッシュを温めるためのリクエスト数
+	private static final int WARMUP_REQUESTS = 100;
+
+	private static final Pattern CSRF_PATTERN = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+	private static final StripeApiStub stripeApiStub = new StripeApiStub();
+
+	@Test
+	public void 従来のスレッドと仮想スレッドで民宿一覧と予約内容の確認ページの性能を比較する() throws Exception {
+		stripeApiStub.stub("POST /v1/checkout/sessions", """
+				{"id": "cs_test_load", "object": "checkout.session"}
+				""");
+
+		Map<String, LoadResult> platformResults = run(false);
+		Map<String, LoadResult> virtualResults = run(true);
+
+		for(String path : platformResults.keySet()) {
+			System.out.printf("%-22s 従来のスレッド: %s / 仮想スレッド: %s%n", path, platformResults.get(path), virtualResults.get(path));
+		}
+	}
+
+	private Map<String, LoadResult> run(boolean virtualThreads) throws Exception {
+		try(ConfigurableApplicationContext context = new SpringApplicationBuilder(SamuraitravelApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+						"stripe.api-base=" + stripeApiStub.getUrl())
+				.run()) {
+			String baseUrl = "http://localhost:" + ((WebServerApplicationContext)context).getWebServer().getPort();
+
+			//予約内容の確認ページは、ログインして予約フォームを送信したセッションで表示する
+			HttpClient memberClient = newClient();
+			login(memberClient, baseUrl);
+			HttpResponse<String> input = postForm(memberClient, baseUrl + "/houses/1/reservations/input", Map.of(
+					"_csrf", csrfToken(memberClient, baseUrl + "/houses/1"),
+					"checkinDate", "2024-04-01",
+					"checkoutDate", "2024-04-02",
+					"numberOfPeople", "1"));
+			assertThat(input.headers().firstValue("Location")).hasValueSatisfying(location -> assertThat(location).endsWith("/reservations/confirm"));
+
+			HttpClient guestClient = newClient();
+			load(guestClient, baseUrl + "/houses", WARMUP_REQUESTS);
+			load(memberClient, baseUrl + "/reservations/confirm", WARMUP_REQUESTS);
+			
+			Map<String, LoadResult> results = new LinkedHashMap<>();
+			results.put("/houses", load(guestClient, baseUrl + "/houses", REQUESTS));
+			results.put("/reservations/confirm", load(memberClient, baseUrl + "/reservations/confirm", REQUESTS));
+
+			//仮想スレッドの場合は同時アクセス数の制限が有効になり、コネクションプールの大きさを超えてデータベースにアクセスしない
+			DataSource dataSource = context.getBean(DataSource.class);
+			if(virtualThreads) {
+				DatabaseConcurrencyLimiter limiter = (DatabaseConcurrencyLimiter)dataSource;
+				assertThat(limiter.getPeakActive()).isLessThanOrEqualTo(POOL_SIZE);
+				assertThat(limiter.getTimeouts()).isZero();
+			} else {
+				assertThat(dataSource).isNotInstanceOf(DatabaseConcurrencyLimiter.class);
+			}
+
+			return results;
+		}
+	}
+
+	//同時にCONCURRENCY件ずつ、合計requests件のGETリクエストを送り、全て成功することを確認する
+	private LoadResult load(HttpClient client, String url, int requests) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+		long[] latencies = new long[requests];
+
+		long startedAt = System.nanoTime();
+		try(ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY)) {
+			List<Future<Integer>> statuses = new ArrayList<>();
+			for(int i = 0; i < requests; i++) {
+				int index = i;
+				statuses.add(executor.submit(() -> {
+					long requestedAt = System.nanoTime();
+					int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+					latencies[index] = System.nanoTime() - requestedAt;
+					return status;
+				}));
+			}
+			for(Future<Integer> status : statuses) {
+				assertThat(status.get()).isEqualTo(200);
+			}
+		}
+		long elapsed = System.nanoTime() - startedAt;
+
+		Arrays.sort(latencies);
+		return new LoadResult(requests * 1_000_000_000.0 / elapsed, latencies[(int)Math.ceil(requests * 0.99) - 1] / 1_000_000.0);
+	}
+
+	private HttpClient newClient() {
+		return HttpClient.newBuilder().cookieHandler(new CookieManager()).version(HttpClient.Version.HTTP_1_1).build();
+	}
+
+	private void login(HttpClient client, String baseUrl) throws Exception {
+		HttpResponse<String> response = postForm(client, baseUrl + "/login", Map.of(
+				"_csrf", csrfToken(client, baseUrl + "/login"),
+				"username", "taro.samurai@example.com",
+				"password", "password"));
+		assertThat(response.headers().firstValue("Location")).hasValueSatisfying(location -> assertThat(location).doesNotContain("error"));
+	}
+
+	//ページのフォームに埋め込まれたCSRFトークンを取得する（ログインするとトークンが変わるため、送信の直前に取得する）
+	private String csrfToken(HttpClient client, String url) throws Exception {
+		String body = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+		Matcher matcher = CSRF_PATTERN.matcher(body);
+		assertThat(matcher.find()).isTrue();
+		return matcher.group(1);
+	}
+
+	private HttpResponse<String> postForm(HttpClient client, String url, Map<String, String> params) throws Exception {
+		String form = params.entrySet().stream()
+				.map(param -> param.getKey() + "=" + URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8))
+				.collect(Collectors.joining("&"));
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private record LoadResult(double throughput, double p99Millis) {
+		@Override
+		public String toString() {
+			return String.format("%.0f件/秒, p99 %.1fms", throughput, p99Millis);
+		}
+	}
+}
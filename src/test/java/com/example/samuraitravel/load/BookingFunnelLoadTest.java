@@ -0,0 +1,210 @@
+package com.example.samuraitravel.load;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.samuraitravel.SamuraitravelApplication;
+import com.example.samuraitravel.SmtpServerStub;
+
+//組み込みデータベースと、Stripe・SMTPの代わりのローカルのサーバーでアプリケーションを起動し、
+//民宿一覧→民宿詳細→予約内容の入力→予約内容の確認→決済完了のWebhookまでの予約の流れを同時に実行して、
+//ステップごとのスループット・応答時間のパーセンタイル・SQLの数を出力する
+//規模は -Dload.houses=10000 -Dload.users=500 -Dload.journeys=2000 -Dload.concurrency=50 のようにシステムプロパティで変更できる
+//時間がかかるため通常のテストでは実行せず、負荷試験のプロファイル（-Pload-test）で実行する
+@Tag("load")
+public class BookingFunnelLoadTest {
+	private static final LoadTestDataGenerator.Scale SCALE = LoadTestDataGenerator.Scale.fromSystemProperties(new LoadTestDataGenerator.Scale(200, 20, 2000, 600, 100));
+	private static final int HOUSES = SCALE.houses();
+	private static final int USERS = SCALE.users();
+	private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 10);
+	private static final int WARMUP_JOURNEYS = Integer.getInteger("load.warmup-journeys", 20);
+	private static final int JOURNEYS = Integer.getInteger("load.journeys", 100);
+	private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("load.virtual-threads");
+
+	//本番環境と同じコネクションプールの大きさ
+	private static final int POOL_SIZE = 5;
+
+	private static final String WEBHOOK_SECRET = "whsec_load";
+
+	//生成した予約とも重ならないよう、民宿を一巡するごとに宿泊日をずらす
+	private static final LocalDate FIRST_CHECKIN_DATE = LocalDate.of(2030, 1, 1);
+
+	//Webhookを受信してから予約が登録されるまで待つ時間
+	private static final Duration RESERVATION_TIMEOUT = Duration.ofMinutes(2);
+
+	private static final Pattern SESSION_ID_PATTERN = Pattern.compile("\"sessionId\":\"([^\"]+)\"");
+
+	//民宿一覧の「次」のリンクのカーソル
+	private static final Pattern NEXT_CURSOR_PATTERN = Pattern.compile("href=\"/houses\\?cursor=([^&\"]+)");
+
+	//利用者ごとの、民宿一覧で次に読むページのカーソル
+	private final Map<LoadTestClient, String> houseListCursors = new ConcurrentHashMap<>();
+	private final AtomicInteger followedCursors = new AtomicInteger();
+
+	@Test
+	public void 予約の流れを同時に実行してステップごとの性能を出力する() throws Exception {
+		//アプリケーションの起動前にスキーマを作成してデータを投入し、起動時に作られるインデックスやキャッシュに含める
+		String databaseUrl = "jdbc:h2:mem:load-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(databaseUrl, "sa", "");
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+		new LoadTestDataGenerator(dataSource, Long.getLong("load.seed", 1L)).generate(SCALE);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+		SmtpServerStub smtpServerStub = new SmtpServerStub();
+
+		//コマンドライン引数はシステムプロパティより優先されるため、テストの実行環境の接続先に関係なく組み込みデータベースを使う
+		try(StripeStandIn stripeStandIn = new StripeStandIn(WEBHOOK_SECRET);
+			ConfigurableApplicationContext context = new SpringApplicationBuilder(SamuraitravelApplication.class, LoadTestConfiguration.class)
+					.profiles("test")
+					.run("--server.port=0",
+							"--spring.datasource.url=" + databaseUrl,
+							"--spring.datasource.username=sa",
+							"--spring.datasource.password=",
+							"--spring.datasource.driver-class-name=org.h2.Driver",
+							"--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+							"--spring.sql.init.mode=never",
+							"--spring.jpa.hibernate.ddl-auto=none",
+							"--samuraitravel.database.seed-mode=never",
+							"--samuraitravel.stripe.webhook.worker.enabled=true",
+							"--samuraitravel.mail.outbox.dispatcher.enabled=true",
+							"--spring.threads.virtual.enabled=" + VIRTUAL_THREADS,
+							"--spring.mail.host=localhost",
+							"--spring.mail.port=" + smtpServerStub.getPort(),
+							"--stripe.api-key=sk_test_load",
+							"--stripe.api-base=" + stripeStandIn.getUrl(),
+							"--stripe.success-url=http://localhost/reservations?reserved",
+							"--stripe.cancel-url=http://localhost/houses",
+							"--stripe.webhook-secret=" + WEBHOOK_SECRET)) {
+			String baseUrl = "http://localhost:" + ((WebServerApplicationContext)context).getWebServer().getPort();
+			SqlStatementCounter sqlStatementCounter = context.getBean(SqlStatementCounter.class);
+			LoadReport loadReport = new LoadReport();
+
+			//同時に操作する利用者ごとにログインし、Webhookは利用者のセッションを持たないクライアントから送る
+			List<LoadTestClient> members = new ArrayList<>();
+			for(int i = 0; i < CONCURRENCY; i++) {
+				LoadTestClient member = new LoadTestClient(baseUrl, loadReport);
+				member.login(LoadTestDataGenerator.email(i % USERS + 1), LoadTestDataGenerator.PASSWORD);
+				members.add(member);
+			}
+			LoadTestClient stripe = new LoadTestClient(baseUrl, loadReport);
+
+			//JITコンパイルやキャッシュを温めてから、計測を始める
+			int generatedReservations = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations", Integer.class);
+			runJourneys(members, stripe, stripeStandIn, 0, WARMUP_JOURNEYS);
+			awaitReservations(jdbcTemplate, generatedReservations + WARMUP_JOURNEYS);
+			loadReport.reset();
+			sqlStatementCounter.reset();
+
+			long startedAt = System.nanoTime();
+			runJourneys(members, stripe, stripeStandIn, WARMUP_JOURNEYS, JOURNEYS);
+			Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+			//Webhookを受信したワーカーが、全ての予約を登録し終えるまで待つ
+			awaitReservations(jdbcTemplate, generatedReservations + WARMUP_JOURNEYS + JOURNEYS);
+			Duration drained = Duration.ofNanos(System.nanoTime() - startedAt);
+
+			System.out.print(loadReport.format(JOURNEYS, CONCURRENCY, elapsed, sqlStatementCounter.snapshot()));
+			System.out.printf("全ての予約の登録まで %.1f秒（Stripeのセッション作成 %d件 / 取得 %d件、仮想スレッド %s）%n",
+					drained.toNanos() / 1_000_000_000.0, stripeStandIn.getCreatedSessions(), stripeStandIn.getRetrievedSessions(), VIRTUAL_THREADS);
+
+			//セッション作成時に保存した予約内容から登録され、Stripeへの問い合わせは発生しない
+			assertThat(stripeStandIn.getCreatedSessions()).isEqualTo(WARMUP_JOURNEYS + JOURNEYS);
+			assertThat(stripeStandIn.getRetrievedSessions()).isZero();
+			//民宿一覧は先頭のページだけでなく、カーソルでたどった続きのページも読んでいる
+			assertThat(followedCursors.get()).isPositive();
+		}
+	}
+
+	//journeys件の予約の流れを、CONCURRENCY人の利用者で分担して実行する
+	private void runJourneys(List<LoadTestClient> members, LoadTestClient stripe, StripeStandIn stripeStandIn, int firstJourney, int journeys) throws Exception {
+		AtomicInteger nextJourney = new AtomicInteger(firstJourney);
+		try(ExecutorService executor = Executors.newFixedThreadPool(members.size())) {
+			List<Future<?>> results = new ArrayList<>();
+			for(LoadTestClient member : members) {
+				results.add(executor.submit(() -> {
+					for(int journey = nextJourney.getAndIncrement(); journey < firstJourney + journeys; journey = nextJourney.getAndIncrement()) {
+						runJourney(member, stripe, stripeStandIn, journey);
+					}
+					return null;
+				}));
+			}
+			for(Future<?> result : results) {
+				result.get();
+			}
+		}
+	}
+
+	private void runJourney(LoadTestClient member, LoadTestClient stripe, StripeStandIn stripeStandIn, int journey) throws Exception {
+		int houseId = journey % HOUSES + 1;
+		LocalDate checkinDate = FIRST_CHECKIN_DATE.plusDays(journey / HOUSES * 2L);
+
+		//民宿一覧は利用者ごとに前回のページの続きをカーソルでたどり、最後のページを読んだら先頭に戻る
+		String cursor = houseListCursors.remove(member);
+		HttpResponse<String> houses = member.get("GET /houses", cursor == null ? "/houses" : "/houses?cursor=" + cursor);
+		assertThat(houses.statusCode()).isEqualTo(200);
+		if(cursor != null) {
+			followedCursors.incrementAndGet();
+		}
+		Matcher nextCursor = NEXT_CURSOR_PATTERN.matcher(houses.body());
+		if(nextCursor.find()) {
+			houseListCursors.put(member, nextCursor.group(1));
+		}
+
+		HttpResponse<String> house = member.get("GET /houses/{id}", "/houses/" + houseId);
+		assertThat(house.statusCode()).isEqualTo(200);
+
+		HttpResponse<String> input = member.postForm("POST /houses/{id}/reservations/input", "/houses/" + houseId + "/reservations/input", Map.of(
+				"_csrf", LoadTestClient.csrfToken(house.body()),
+				"checkinDate", checkinDate.toString(),
+				"checkoutDate", checkinDate.plusDays(1).toString(),
+				"numberOfPeople", "1"));
+		assertThat(input.headers().firstValue("Location")).hasValueSatisfying(location -> assertThat(location).endsWith("/reservations/confirm"));
+
+		assertThat(member.get("GET /reservations/confirm", "/reservations/confirm").statusCode()).isEqualTo(200);
+
+		HttpResponse<String> session = member.get("GET /reservations/confirm/session", "/reservations/confirm/session");
+		assertThat(session.statusCode()).isEqualTo(200);
+		Matcher sessionId = SESSION_ID_PATTERN.matcher(session.body());
+		assertThat(sessionId.find()).isTrue();
+
+		StripeStandIn.SignedEvent event = stripeStandIn.checkoutSessionCompleted(sessionId.group(1));
+		HttpResponse<String> webhook = stripe.postJson("POST /stripe/webhook", "/stripe/webhook", event.payload(), Map.of("Stripe-Signature", event.signature()));
+		assertThat(webhook.statusCode()).isEqualTo(200);
+	}
+
+	private void awaitReservations(JdbcTemplate jdbcTemplate, int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + RESERVATION_TIMEOUT.toNanos();
+		int reservations = 0;
+		while(System.nanoTime() < deadline) {
+			reservations = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations", Integer.class);
+			if(reservations >= expected) {
+				break;
+			}
+			Thread.sleep(50);
+		}
+		assertThat(reservations).isEqualTo(expected);
+	}
+}
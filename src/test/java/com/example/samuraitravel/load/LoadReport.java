@@ -0,0 +1,52 @@
+package com.example.samuraitravel.load;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+//負荷試験のステップごとの応答時間を記録し、スループット・応答時間のパーセンタイル・SQLの数を表にする
+public class LoadReport {
+	//ステップを最初に記録された順（利用者の操作の順）に並べる
+	private final Map<String, Queue<Long>> latencies = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	public void record(String step, long nanos) {
+		latencies.computeIfAbsent(step, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+	}
+
+	public void reset() {
+		latencies.clear();
+	}
+
+	//elapsedの間にjourneys件の予約の流れを実行したときの結果を表にする
+	public String format(int journeys, int concurrency, Duration elapsed, Map<String, Long> sqlCounts) {
+		double seconds = elapsed.toNanos() / 1_000_000_000.0;
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("予約の流れ %d件 / %.1f秒 = %.1f件/秒（同時実行数 %d）%n", journeys, seconds, journeys / seconds, concurrency));
+		report.append(String.format("%-40s %6s %8s %8s %8s %8s %8s %8s%n", "ステップ", "件数", "件/秒", "p50(ms)", "p95(ms)", "p99(ms)", "最大(ms)", "SQL/件"));
+
+		synchronized(latencies) {
+			latencies.forEach((step, values) -> {
+				long[] sorted = values.stream().mapToLong(Long::longValue).sorted().toArray();
+				long sql = sqlCounts.getOrDefault(step, 0L);
+				report.append(String.format("%-40s %6d %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", step, sorted.length, sorted.length / seconds,
+						percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), percentile(sorted, 1.0), (double)sql / sorted.length));
+			});
+		}
+
+		report.append(String.format("%-40s %6s %8s %8s %8s %8s %8s %8d（合計）%n", SqlStatementCounter.BACKGROUND, "-", "-", "-", "-", "-", "-",
+				sqlCounts.getOrDefault(SqlStatementCounter.BACKGROUND, 0L)));
+		return report.toString();
+	}
+
+	//最近傍順位法でパーセンタイルを求める（ミリ秒）
+	private double percentile(long[] sorted, double percentile) {
+		if(sorted.length == 0) {
+			return 0;
+		}
+		int index = Math.max((int)Math.ceil(sorted.length * percentile) - 1, 0);
+		return sorted[index] / 1_000_000.0;
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.samuraitravel.load;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+//負荷試験で1人の利用者として振る舞うHTTPクライアント（セッションのCookieを保持する）
+//リクエストごとにステップ名をヘッダーで送り、応答時間をレポートに記録する
+public class LoadTestClient {
+	private static final Pattern CSRF_PATTERN = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+	private final HttpClient httpClient = HttpClient.newBuilder().cookieHandler(new CookieManager()).version(HttpClient.Version.HTTP_1_1).build();
+	private final String baseUrl;
+	private final LoadReport loadReport;
+
+	public LoadTestClient(String baseUrl, LoadReport loadReport) {
+		this.baseUrl = baseUrl;
+		this.loadReport = loadReport;
+	}
+
+	//ページのフォームに埋め込まれたCSRFトークンを取得する
+	public static String csrfToken(String html) {
+		Matcher matcher = CSRF_PATTERN.matcher(html);
+		assertThat(matcher.find()).as("CSRFトークン").isTrue();
+		return matcher.group(1);
+	}
+
+	public void login(String email, String password) throws Exception {
+		HttpResponse<String> loginPage = get("GET /login", "/login");
+		HttpResponse<String> response = postForm("POST /login", "/login", Map.of(
+				"_csrf", csrfToken(loginPage.body()),
+				"username", email,
+				"password", password));
+		assertThat(response.headers().firstValue("Location")).hasValueSatisfying(location -> assertThat(location).doesNotContain("error"));
+	}
+
+	public HttpResponse<String> get(String step, String path) throws Exception {
+		return send(step, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+	}
+
+	public HttpResponse<String> postForm(String step, String path, Map<String, String> params) throws Exception {
+		String form = params.entrySet().stream()
+				.map(param -> param.getKey() + "=" + URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8))
+				.collect(Collectors.joining("&"));
+		return send(step, HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)));
+	}
+
+	public HttpResponse<String> postJson(String step, String path, String json, Map<String, String> headers) throws Exception {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json));
+		headers.forEach(builder::header);
+		return send(step, builder);
+	}
+
+	private HttpResponse<String> send(String step, HttpRequest.Builder builder) throws Exception {
+		HttpRequest request = builder.header(SqlStatementCounter.STEP_HEADER, step).build();
+
+		long startedAt = System.nanoTime();
+		HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		loadReport.record(step, System.nanoTime() - startedAt);
+
+		return response;
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.samuraitravel.load;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+//負荷試験でアプリケーションを起動するときに追加するBean
+//他のテストのコンポーネントスキャンに含まれないよう@Configurationは付けず、起動時のソースとして明示的に渡す
+public class LoadTestConfiguration {
+	@Bean
+	public static SqlStatementCounter sqlStatementCounter() {
+		return new SqlStatementCounter();
+	}
+
+	//ログインの処理で送るSQLも数えるため、Spring Securityのフィルターより先に実行する
+	@Bean
+	public FilterRegistrationBean<OncePerRequestFilter> loadStepFilter(SqlStatementCounter sqlStatementCounter) {
+		FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(sqlStatementCounter.stepFilter());
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
+}
@@ -0,0 +1,329 @@
+package com.example.samuraitravel.load;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+//負荷試験・性能計測用に、指定された規模の会員・民宿・予約・レビュー・お気に入りを生成してデータベースに一括で登録する
+//・民宿の人気（予約・レビュー・お気に入りの集まり方）と所在地の都道府県はZipf分布で偏らせる
+//・同じシードからは常に同じデータを生成するため、計測結果を実行ごとに比較できる
+//・JPAを介さず、JDBCのバッチでまとめて登録する（MySQLでは接続URLにrewriteBatchedStatements=trueを付けると複数行のINSERTになる）
+//マイグレーション済みで会員も民宿も登録されていないデータベースを対象にする
+//
+//開発用のデータベースに登録する場合は、次のように実行する（規模は-Dload.houses=100000 -Dload.reservations=10000000 のように指定する）
+//./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.samuraitravel.load.LoadTestDataGenerator \
+//    -Dload.url="jdbc:mysql://localhost:3306/samuraitravel_perf?rewriteBatchedStatements=true" -Dload.username=root -Dload.password=
+//（アプリケーションはsamuraitravel.database.seed-mode=if-emptyで起動し、サンプルデータを重ねて投入しないようにする）
+public class LoadTestDataGenerator {
+	public static final String PASSWORD = "password";
+
+	//PASSWORDをBCryptでハッシュ化した値（サンプルデータと同じ）
+	//ハッシュ化のたびにソルトが変わるため、固定の値を使って同じシードから同じ行が登録されるようにする
+	static final String PASSWORD_HASH = "$2a$10$2JNjTwZBwo7fprL2X4sv.OEKqxnVtsVQvuXDkI8xVGix.U3W5B7CO";
+
+	private static final int GENERAL_ROLE_ID = 1;
+	private static final int BATCH_SIZE = 5000;
+
+	//予約の期間が埋まった民宿を続けてこの回数選んだら、予約の生成を打ち切る
+	private static final int MAX_CONSECUTIVE_MISSES = 10_000;
+
+	//生成する日時の基準（実行日に依存させない）
+	private static final LocalDate FIRST_RESERVATION_DATE = LocalDate.of(2024, 1, 1);
+	private static final int RESERVATION_CALENDAR_DAYS = 3 * 365;
+	private static final LocalDateTime FIRST_CREATED_AT = LocalDateTime.of(2020, 1, 1, 0, 0);
+	private static final int CREATED_AT_RANGE_MINUTES = 4 * 365 * 24 * 60;
+
+	//予約・レビュー・お気に入りが集まる民宿の偏り、民宿の所在地の偏り、予約する会員の偏り
+	private static final double HOUSE_POPULARITY_EXPONENT = 1.0;
+	private static final double PREFECTURE_EXPONENT = 0.8;
+	private static final double USER_ACTIVITY_EXPONENT = 0.5;
+
+	//評価は高めに偏らせる（1〜5の重み）
+	private static final int[] SCORE_WEIGHTS = {5, 8, 17, 35, 35};
+
+	//都道府県と代表的な市区町村（民宿が多く集まる順）
+	private static final String[][] PREFECTURES = {
+		{"東京都", "新宿区"}, {"京都府", "京都市東山区"}, {"北海道", "札幌市中央区"}, {"沖縄県", "那覇市"}, {"大阪府", "大阪市中央区"},
+		{"神奈川県", "足柄下郡箱根町"}, {"静岡県", "熱海市"}, {"長野県", "北安曇郡白馬村"}, {"福岡県", "福岡市博多区"}, {"奈良県", "奈良市"},
+		{"石川県", "金沢市"}, {"兵庫県", "神戸市中央区"}, {"千葉県", "浦安市"}, {"広島県", "廿日市市"}, {"大分県", "由布市"},
+		{"栃木県", "日光市"}, {"群馬県", "吾妻郡草津町"}, {"鹿児島県", "鹿児島市"}, {"宮城県", "仙台市青葉区"}, {"三重県", "伊勢市"},
+		{"岐阜県", "高山市"}, {"山梨県", "南都留郡富士河口湖町"}, {"和歌山県", "西牟婁郡白浜町"}, {"長崎県", "長崎市"}, {"愛知県", "名古屋市中区"},
+		{"熊本県", "阿蘇市"}, {"新潟県", "南魚沼郡湯沢町"}, {"青森県", "青森市"}, {"岩手県", "盛岡市"}, {"秋田県", "仙北市"},
+		{"山形県", "山形市"}, {"福島県", "会津若松市"}, {"茨城県", "水戸市"}, {"埼玉県", "秩父市"}, {"富山県", "富山市"},
+		{"福井県", "坂井市"}, {"滋賀県", "大津市"}, {"鳥取県", "鳥取市"}, {"島根県", "松江市"}, {"岡山県", "倉敷市"},
+		{"山口県", "下関市"}, {"徳島県", "徳島市"}, {"香川県", "高松市"}, {"愛媛県", "松山市"}, {"高知県", "高知市"},
+		{"佐賀県", "唐津市"}, {"宮崎県", "宮崎市"}
+	};
+
+	private static final String[] HOUSE_NAME_WORDS = {"古民家", "海辺の宿", "山荘", "湯宿", "町家", "ゲストハウス", "農家民宿", "森の宿", "離れ", "蔵の宿"};
+	private static final String[] HOUSE_FEATURES = {"温泉", "絶景", "朝食付き", "ペット可", "駅近", "庭園", "露天風呂", "自然", "家族向け", "一棟貸し"};
+	private static final String[][] FAMILY_NAMES = {{"佐藤", "サトウ"}, {"鈴木", "スズキ"}, {"高橋", "タカハシ"}, {"田中", "タナカ"}, {"伊藤", "イトウ"},
+		{"渡辺", "ワタナベ"}, {"山本", "ヤマモト"}, {"中村", "ナカムラ"}, {"小林", "コバヤシ"}, {"加藤", "カトウ"}};
+	private static final String[][] GIVEN_NAMES = {{"太郎", "タロウ"}, {"花子", "ハナコ"}, {"翔", "ショウ"}, {"陽菜", "ヒナ"}, {"蓮", "レン"},
+		{"結衣", "ユイ"}, {"大輝", "ダイキ"}, {"美咲", "ミサキ"}, {"健", "ケン"}, {"葵", "アオイ"}};
+	private static final String[] REVIEW_COMMENTS = {"とても快適に過ごせました。", "スタッフの対応が丁寧でした。", "景色が素晴らしかったです。",
+		"また利用したいです。", "部屋が少し狭く感じました。", "駅から遠く不便でした。"};
+
+	//生成する件数
+	public record Scale(int houses, int users, int reservations, int reviews, int favorites) {
+		//-Dload.houses=100000 のように指定されたシステムプロパティで既定の件数を上書きする
+		public static Scale fromSystemProperties(Scale defaults) {
+			return new Scale(Integer.getInteger("load.houses", defaults.houses()),
+					Integer.getInteger("load.users", defaults.users()),
+					Integer.getInteger("load.reservations", defaults.reservations()),
+					Integer.getInteger("load.reviews", defaults.reviews()),
+					Integer.getInteger("load.favorites", defaults.favorites()));
+		}
+	}
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Random random;
+
+	public LoadTestDataGenerator(DataSource dataSource, long seed) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.random = new Random(seed);
+	}
+
+	//会員の番号（1から始まる）に対応するメールアドレス
+	public static String email(int userNumber) {
+		return "load.user" + userNumber + "@example.com";
+	}
+
+	public static void main(String[] args) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getProperty("load.url"),
+				System.getProperty("load.username", "root"), System.getProperty("load.password", ""));
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+
+		Scale scale = Scale.fromSystemProperties(new Scale(100_000, 100_000, 10_000_000, 1_000_000, 500_000));
+		new LoadTestDataGenerator(dataSource, Long.getLong("load.seed", 1L)).generate(scale);
+	}
+
+	public void generate(Scale scale) {
+		if(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) > 0
+				|| jdbcTemplate.queryForObject("SELECT COUNT(*) FROM houses", Integer.class) > 0) {
+			throw new IllegalStateException("会員または民宿が登録済みのデータベースには生成できません。");
+		}
+
+		Zipf prefectures = new Zipf(PREFECTURES.length, PREFECTURE_EXPONENT);
+		//人気の順位と民宿のIDが一致しないよう、順位ごとの民宿をシャッフルしておく
+		int[] housesByPopularity = shuffledIds(scale.houses());
+		Zipf housePopularity = new Zipf(scale.houses(), HOUSE_POPULARITY_EXPONENT);
+		Zipf userActivity = new Zipf(scale.users(), USER_ACTIVITY_EXPONENT);
+
+		int[] housePrices = new int[scale.houses() + 1];
+		int[] houseCapacities = new int[scale.houses() + 1];
+
+		insertUsers(scale.users(), prefectures);
+		insertHouses(scale.houses(), prefectures, housePrices, houseCapacities);
+		insertReservations(scale.reservations(), () -> housesByPopularity[housePopularity.sample()], userActivity, housePrices, houseCapacities);
+		insertReviews(Math.min(scale.reviews(), (long)scale.houses() * scale.users()), () -> housesByPopularity[housePopularity.sample()], scale.users());
+		insertFavorites(Math.min(scale.favorites(), (long)scale.houses() * scale.users()), () -> housesByPopularity[housePopularity.sample()], scale.users());
+
+		//レビューの集計はサンプルデータと同じSQLで作成する
+		measure("house_review_stats", () -> new ResourceDatabasePopulator(new ClassPathResource("db/seed/V2__house_review_stats.sql")).execute(jdbcTemplate.getDataSource()));
+	}
+
+	//BCryptのハッシュ化は重いため、全員に同じハッシュ済みのパスワードを使う
+	private void insertUsers(int users, Zipf prefectures) {
+		Batch batch = new Batch("users", "INSERT INTO users (name, furigana, postal_code, address, phone_number, email, password, role_id, enabled, created_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		for(int i = 1; i <= users; i++) {
+			String[] familyName = pick(FAMILY_NAMES);
+			String[] givenName = pick(GIVEN_NAMES);
+			batch.add(familyName[0] + " " + givenName[0], familyName[1] + " " + givenName[1], postalCode(), address(prefectures, i),
+					phoneNumber(), email(i), PASSWORD_HASH, GENERAL_ROLE_ID, true, createdAt());
+		}
+		batch.flush();
+	}
+
+	private void insertHouses(int houses, Zipf prefectures, int[] housePrices, int[] houseCapacities) {
+		Batch batch = new Batch("houses", "INSERT INTO houses (name, description, price, capacity, postal_code, address, phone_number, created_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+		for(int houseId = 1; houseId <= houses; houseId++) {
+			String[] prefecture = PREFECTURES[prefectures.sample()];
+			String feature = pick(HOUSE_FEATURES);
+			//料金は3,000円〜30,000円で、安い民宿ほど多くなるようにする
+			housePrices[houseId] = 3000 + (int)(27 * Math.pow(random.nextDouble(), 2)) * 1000;
+			houseCapacities[houseId] = 1 + random.nextInt(8);
+			batch.add(prefecture[1] + "の" + pick(HOUSE_NAME_WORDS) + houseId, feature + "が自慢の" + prefecture[0] + "の民宿です。" + pick(HOUSE_FEATURES) + "も楽しめます。",
+					housePrices[houseId], houseCapacities[houseId], postalCode(), prefecture[0] + prefecture[1] + (1 + random.nextInt(9)) + "-" + (1 + random.nextInt(30)),
+					phoneNumber(), createdAt());
+		}
+		batch.flush();
+	}
+
+	//民宿ごとに宿泊日が重ならないよう、予約の入った最後の日から順に空いている日へ予約を入れる
+	//（予約の期間が埋まった民宿が選ばれた場合は選び直し、ほとんどの民宿が埋まった場合は指定された件数に満たなくても終える）
+	private void insertReservations(int reservations, IntSupplier houses, Zipf userActivity, int[] housePrices, int[] houseCapacities) {
+		int[] nextFreeDays = new int[housePrices.length];
+		Batch batch = new Batch("reservations", "INSERT INTO reservations (house_id, user_id, checkin_date, checkout_date, number_of_people, amount, created_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?)");
+		int misses = 0;
+		while(batch.count() < reservations && misses < MAX_CONSECUTIVE_MISSES) {
+			int houseId = houses.getAsInt();
+			int nights = 1 + (int)(-Math.log(1 - random.nextDouble()) * 1.5) % 7;
+			int checkinDay = nextFreeDays[houseId] + random.nextInt(4);
+			if(checkinDay + nights > RESERVATION_CALENDAR_DAYS) {
+				misses++;
+				continue;
+			}
+			misses = 0;
+			nextFreeDays[houseId] = checkinDay + nights;
+
+			LocalDate checkinDate = FIRST_RESERVATION_DATE.plusDays(checkinDay);
+			Timestamp createdAt = Timestamp.valueOf(checkinDate.atStartOfDay().minusDays(1 + random.nextInt(90)).plusMinutes(random.nextInt(24 * 60)));
+			batch.add(houseId, userActivity.sample() + 1, checkinDate, checkinDate.plusDays(nights), 1 + random.nextInt(houseCapacities[houseId]),
+					housePrices[houseId] * nights, createdAt);
+		}
+		batch.flush();
+	}
+
+	//同じ会員が同じ民宿に複数のレビューを投稿しないようにする
+	private void insertReviews(long reviews, IntSupplier houses, int users) {
+		Set<Long> reviewed = new HashSet<>();
+		Batch batch = new Batch("reviews", "INSERT INTO reviews (user_id, house_id, score, comment, created_at) VALUES (?, ?, ?, ?, ?)");
+		while(reviewed.size() < reviews) {
+			int houseId = houses.getAsInt();
+			int userId = 1 + random.nextInt(users);
+			if(reviewed.add((long)houseId << 32 | userId)) {
+				batch.add(userId, houseId, score(), pick(REVIEW_COMMENTS), createdAt());
+			}
+		}
+		batch.flush();
+	}
+
+	private void insertFavorites(long favorites, IntSupplier houses, int users) {
+		Set<Long> favorited = new HashSet<>();
+		Batch batch = new Batch("favorites", "INSERT INTO favorites (user_id, house_id, created_at) VALUES (?, ?, ?)");
+		while(favorited.size() < favorites) {
+			int houseId = houses.getAsInt();
+			int userId = 1 + random.nextInt(users);
+			if(favorited.add((long)userId << 32 | houseId)) {
+				batch.add(userId, houseId, createdAt());
+			}
+		}
+		batch.flush();
+	}
+
+	private int[] shuffledIds(int size) {
+		int[] ids = new int[size];
+		Arrays.setAll(ids, index -> index + 1);
+		for(int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int id = ids[i];
+			ids[i] = ids[j];
+			ids[j] = id;
+		}
+		return ids;
+	}
+
+	private int score() {
+		int value = random.nextInt(Arrays.stream(SCORE_WEIGHTS).sum());
+		for(int i = 0; i < SCORE_WEIGHTS.length; i++) {
+			value -= SCORE_WEIGHTS[i];
+			if(value < 0) {
+				return i + 1;
+			}
+		}
+		return SCORE_WEIGHTS.length;
+	}
+
+	private String address(Zipf prefectures, int number) {
+		String[] prefecture = PREFECTURES[prefectures.sample()];
+		return prefecture[0] + prefecture[1] + (1 + random.nextInt(9)) + "-" + (1 + random.nextInt(30)) + "-" + (1 + number % 50);
+	}
+
+	private String postalCode() {
+		return String.format("%03d-%04d", random.nextInt(1000), random.nextInt(10000));
+	}
+
+	private String phoneNumber() {
+		return String.format("090-%04d-%04d", random.nextInt(10000), random.nextInt(10000));
+	}
+
+	private Timestamp createdAt() {
+		return Timestamp.valueOf(FIRST_CREATED_AT.plusMinutes(random.nextInt(CREATED_AT_RANGE_MINUTES)));
+	}
+
+	private <T> T pick(T[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private void measure(String table, Runnable runnable) {
+		long startedAt = System.nanoTime();
+		runnable.run();
+		System.out.printf("%sを生成しました（%.1f秒）%n", table, (System.nanoTime() - startedAt) / 1_000_000_000.0);
+	}
+
+	//BATCH_SIZE行ごとにまとめてINSERTする
+	private class Batch {
+		private final String table;
+		private final String sql;
+		private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+		private final long startedAt = System.nanoTime();
+		private int count;
+
+		Batch(String table, String sql) {
+			this.table = table;
+			this.sql = sql;
+		}
+
+		void add(Object... row) {
+			rows.add(row);
+			count++;
+			if(rows.size() == BATCH_SIZE) {
+				jdbcTemplate.batchUpdate(sql, rows);
+				rows.clear();
+			}
+		}
+
+		int count() {
+			return count;
+		}
+
+		void flush() {
+			if(!rows.isEmpty()) {
+				jdbcTemplate.batchUpdate(sql, rows);
+				rows.clear();
+			}
+			System.out.printf("%sを%d件生成しました（%.1f秒）%n", table, count, (System.nanoTime() - startedAt) / 1_000_000_000.0);
+		}
+	}
+
+	//順位1〜nをZipf分布で選ぶ（0から始まる順位を返す）
+	private class Zipf {
+		private final double[] cumulative;
+
+		Zipf(int n, double exponent) {
+			cumulative = new double[n];
+			double sum = 0;
+			for(int rank = 1; rank <= n; rank++) {
+				sum += 1 / Math.pow(rank, exponent);
+				cumulative[rank - 1] = sum;
+			}
+			for(int i = 0; i < n; i++) {
+				cumulative[i] /= sum;
+			}
+		}
+
+		int sample() {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble());
+			return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.samuraitravel.load;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+//テストごとに別の組み込みデータベースを用意して、生成するデータの再現性と偏りを検証する
+public class LoadTestDataGeneratorTest {
+	private static final LoadTestDataGenerator.Scale SCALE = new LoadTestDataGenerator.Scale(500, 100, 10000, 2000, 1000);
+
+	@Test
+	public void 同じシードからは同じデータを生成する() {
+		JdbcTemplate first = generate(7L);
+		JdbcTemplate second = generate(7L);
+		JdbcTemplate other = generate(8L);
+
+		String reservations = "SELECT house_id, user_id, checkin_date, checkout_date, number_of_people, amount FROM reservations ORDER BY id";
+		assertThat(first.queryForList(reservations)).isEqualTo(second.queryForList(reservations));
+		assertThat(first.queryForList(reservations)).isNotEqualTo(other.queryForList(reservations));
+
+		String houses = "SELECT name, address, price, capacity FROM houses ORDER BY id";
+		assertThat(first.queryForList(houses)).isEqualTo(second.queryForList(houses));
+
+		String users = "SELECT name, address, email, password FROM users ORDER BY id";
+		assertThat(first.queryForList(users)).isEqualTo(second.queryForList(users));
+	}
+
+	@Test
+	public void 会員は共通のパスワードでログインできる() {
+		assertThat(new BCryptPasswordEncoder().matches(LoadTestDataGenerator.PASSWORD, LoadTestDataGenerator.PASSWORD_HASH)).isTrue();
+	}
+
+	@Test
+	public void 予約は民宿ごとに重ならず人気の民宿に偏る() {
+		JdbcTemplate jdbcTemplate = generate(1L);
+
+		assertThat(count(jdbcTemplate, "users")).isEqualTo(SCALE.users());
+		assertThat(count(jdbcTemplate, "houses")).isEqualTo(SCALE.houses());
+		assertThat(count(jdbcTemplate, "reservations")).isEqualTo(SCALE.reservations());
+		assertThat(count(jdbcTemplate, "reviews")).isEqualTo(SCALE.reviews());
+		assertThat(count(jdbcTemplate, "favorites")).isEqualTo(SCALE.favorites());
+		assertThat(count(jdbcTemplate, "house_review_stats")).isEqualTo(SCALE.houses());
+
+		//同じ民宿の予約の宿泊期間が重ならない
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations a JOIN reservations b "
+				+ "ON a.house_id = b.house_id AND a.id < b.id AND a.checkin_date < b.checkout_date AND b.checkin_date < a.checkout_date", Integer.class)).isZero();
+
+		//予約数の上位1割の民宿に、予約全体の3割以上が集まる（均等なら1割）
+		List<Integer> reservationCounts = jdbcTemplate.queryForList("SELECT COUNT(*) FROM reservations GROUP BY house_id ORDER BY COUNT(*) DESC", Integer.class);
+		int top = reservationCounts.subList(0, SCALE.houses() / 10).stream().mapToInt(Integer::intValue).sum();
+		assertThat(top).isGreaterThan(SCALE.reservations() * 3 / 10);
+
+		//住所は都道府県から始まる
+		List<Map<String, Object>> addresses = jdbcTemplate.queryForList("SELECT address FROM houses");
+		assertThat(addresses).allSatisfy(row -> assertThat((String)row.get("address")).matches("^.{2,3}[都道府県].*"));
+	}
+
+	private JdbcTemplate generate(long seed) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:generator-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+		new LoadTestDataGenerator(dataSource, seed).generate(SCALE);
+		return new JdbcTemplate(dataSource);
+	}
+
+	private int count(JdbcTemplate jdbcTemplate, String table) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+	}
+}
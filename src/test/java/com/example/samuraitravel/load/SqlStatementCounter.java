@@ -0,0 +1,121 @@
+package com.example.samuraitravel.load;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+//負荷試験のステップごとに、データベースに送ったSQLの数を数える
+//ステップはリクエストのX-Load-Stepヘッダーで指定し、ヘッダーのないリクエストや非同期の処理で送ったSQLはバックグラウンドとして数える
+public class SqlStatementCounter implements BeanPostProcessor, Ordered {
+	public static final String STEP_HEADER = "X-Load-Step";
+	public static final String BACKGROUND = "(バックグラウンド)";
+
+	private final ThreadLocal<String> currentStep = new ThreadLocal<>();
+	private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+	//同時アクセス数の制限などで包まれる前の、コネクションプールのDataSourceを包む
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if(bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)) {
+			return new CountingDataSource(dataSource);
+		}
+		return bean;
+	}
+
+	//リクエストのヘッダーからステップを取得し、リクエストを処理するスレッドに設定するフィルター
+	public OncePerRequestFilter stepFilter() {
+		return new OncePerRequestFilter() {
+			@Override
+			protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+				String step = request.getHeader(STEP_HEADER);
+				if(step == null) {
+					filterChain.doFilter(request, response);
+					return;
+				}
+
+				currentStep.set(step);
+				try {
+					filterChain.doFilter(request, response);
+				} finally {
+					currentStep.remove();
+				}
+			}
+		};
+	}
+
+	//ステップごとのSQLの数（ステップ名の順）
+	public Map<String, Long> snapshot() {
+		Map<String, Long> snapshot = new TreeMap<>();
+		counts.forEach((step, count) -> snapshot.put(step, count.sum()));
+		return snapshot;
+	}
+
+	public void reset() {
+		counts.clear();
+	}
+
+	private void count() {
+		String step = currentStep.get();
+		counts.computeIfAbsent(step != null ? step : BACKGROUND, key -> new LongAdder()).increment();
+	}
+
+	//Hibernateの統計と同じく、ステートメントを準備・作成した回数をSQLの数とする
+	private Connection countStatements(Connection connection) {
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+			String name = method.getName();
+			if(name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if(name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if(name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement")) {
+				count();
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch(InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+	}
+
+	private class CountingDataSource extends DelegatingDataSource {
+		CountingDataSource(DataSource targetDataSource) {
+			super(targetDataSource);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return countStatements(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return countStatements(super.getConnection(username, password));
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.example.samuraitravel.load;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.Gson;
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+//負荷試験用にStripeの代わりをするローカルのHTTPサーバー
+//Checkoutセッションを作成するたびに別のIDを発行して予約内容（メタデータ）を覚え、取得と決済完了のWebhookの署名に使う
+public class StripeStandIn implements AutoCloseable {
+	private static final String SESSIONS_PATH = "/v1/checkout/sessions";
+	private static final String METADATA_PREFIX = "payment_intent_data[metadata][";
+
+	private final Gson gson = new Gson();
+	private final HttpServer server;
+	private final String webhookSecret;
+	private final AtomicInteger sessionSequence = new AtomicInteger();
+	private final Map<String, Map<String, String>> sessionMetadata = new ConcurrentHashMap<>();
+	private final AtomicInteger retrievedSessions = new AtomicInteger();
+
+	public StripeStandIn(String webhookSecret) {
+		this.webhookSecret = webhookSecret;
+		try {
+			server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		server.createContext("/", this::handle);
+		//同時に作成されるセッションを待たせないよう、リクエストごとに仮想スレッドで応答する
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.start();
+	}
+
+	//StripeのAPIの接続先として指定するURL
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	public int getCreatedSessions() {
+		return sessionMetadata.size();
+	}
+
+	public int getRetrievedSessions() {
+		return retrievedSessions.get();
+	}
+
+	//決済が完了したときにStripeから送られるWebhookの本文と署名を作成する
+	public SignedEvent checkoutSessionCompleted(String sessionId) {
+		String payload = gson.toJson(Map.of(
+				"id", "evt_" + sessionId,
+				"object", "event",
+				"api_version", Stripe.API_VERSION,
+				"type", "checkout.session.completed",
+				"data", Map.of("object", Map.of("id", sessionId, "object", "checkout.session"))));
+		long timestamp = System.currentTimeMillis() / 1000;
+		try {
+			return new SignedEvent(payload, "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(webhookSecret, timestamp + "." + payload));
+		} catch(GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+		if("POST".equals(method) && path.equals(SESSIONS_PATH)) {
+			String sessionId = "cs_test_load_" + sessionSequence.incrementAndGet();
+			sessionMetadata.put(sessionId, parseMetadata(body));
+			respond(exchange, 200, Map.of("id", sessionId, "object", "checkout.session", "url", "https://checkout.stripe.com/c/pay/" + sessionId));
+			return;
+		}
+
+		if("GET".equals(method) && path.startsWith(SESSIONS_PATH + "/")) {
+			String sessionId = path.substring(SESSIONS_PATH.length() + 1);
+			Map<String, String> metadata = sessionMetadata.get(sessionId);
+			if(metadata != null) {
+				retrievedSessions.incrementAndGet();
+				respond(exchange, 200, Map.of("id", sessionId, "object", "checkout.session",
+						"payment_intent", Map.of("id", "pi_" + sessionId, "object", "payment_intent", "metadata", metadata)));
+				return;
+			}
+		}
+
+		respond(exchange, 404, Map.of("error", Map.of("type", "invalid_request_error", "message", "No such resource: " + method + " " + path)));
+	}
+
+	//フォーム形式で送られたpayment_intent_data[metadata][キー]=値を取り出す
+	private Map<String, String> parseMetadata(String form) {
+		Map<String, String> metadata = new LinkedHashMap<>();
+		for(String param : form.split("&")) {
+			String[] keyAndValue = param.split("=", 2);
+			String key = URLDecoder.decode(keyAndValue[0], StandardCharsets.UTF_8);
+			if(keyAndValue.length == 2 && key.startsWith(METADATA_PREFIX) && key.endsWith("]")) {
+				metadata.put(key.substring(METADATA_PREFIX.length(), key.length() - 1), URLDecoder.decode(keyAndValue[1], StandardCharsets.UTF_8));
+			}
+		}
+		return metadata;
+	}
+
+	private void respond(HttpExchange exchange, int status, Object json) throws IOException {
+		byte[] body = gson.toJson(json).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try(OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+
+	public record SignedEvent(String payload, String signature) {
+	}
+}
@@ -0,0 +1,259 @@
+package com.example.samuraitravel.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.samuraitravel.dto.HouseSearchCriteria;
+import com.example.samuraitravel.entity.House;
+import com.example.samuraitravel.entity.User;
+
+//リポジトリが発行するSQLを組み込みデータベース（H2）のEXPLAINにかけ、全件走査になっていないことを確認するスモークテスト
+//インデックスの付け忘れや、インデックスを使えない書き方のクエリを早めに見つけるためのもので、本番のMySQLの実行計画を保証するものではない
+//・オプティマイザーがMySQLとは異なり、件数の少ないサンプルデータとパラメーターをすべてNULLにした状態での計画しか確認できない
+//・MySQLで意図したインデックスが選ばれることは、LoadTestDataGeneratorで大量のデータを登録したMySQLに、
+//  実際の値を埋め込んだSQLでEXPLAIN（またはEXPLAIN ANALYZE）を実行して別途確認する
+//次のクエリは意図的に全件を読むため対象外にしている
+//・HouseRepository.findByNameLike、UserRepository.findByNameLikeOrFuriganaLike（管理画面の部分一致検索）
+//・HouseSearchRepository.scrollのキーワードLIKE検索（キーワード索引の構築前と、該当する民宿が多すぎる場合に使う）
+//・HouseRepository.findAllKeywordSources、HouseOccupancyRepository.findAll（索引の構築）
+//・HousePopularityRepository.insertMissingHouses、recountReservations（起動時の集計）
+//テストの実行環境の接続先に関係なく、MySQL互換モードの組み込みデータベースにスキーマとサンプルデータを作成して確認する
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.samuraitravel.repository.H2QueryPlanSmokeTest$RecordingStatementInspector",
+		"spring.datasource.url=jdbc:h2:mem:query-plan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.sql.init.mode=never",
+		"spring.jpa.hibernate.ddl-auto=none",
+		"samuraitravel.database.seed-mode=always",
+		"spring.mail.host=localhost",
+		"stripe.api-key=sk_test_query_plan",
+		"stripe.success-url=http://localhost/reservations?reserved",
+		"stripe.cancel-url=http://localhost/houses",
+		"stripe.webhook-secret=whsec_query_plan"
+})
+@Transactional
+public class H2QueryPlanSmokeTest {
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private HouseRepository houseRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private VerificationTokenRepository verificationTokenRepository;
+
+	@Autowired
+	private ReservationRepository reservationRepository;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@Autowired
+	private HouseOccupancyRepository houseOccupancyRepository;
+
+	@Autowired
+	private HousePopularityRepository housePopularityRepository;
+
+	@Autowired
+	private HouseReviewStatsRepository houseReviewStatsRepository;
+
+	@Autowired
+	private PendingReservationRepository pendingReservationRepository;
+
+	@Autowired
+	private StripeWebhookEventRepository stripeWebhookEventRepository;
+
+	@Autowired
+	private OutboxMailRepository outboxMailRepository;
+
+	@BeforeEach
+	public void setUp() {
+		RecordingStatementInspector.clear();
+	}
+
+	@Test
+	public void 民宿の一覧と検索はインデックスを使う() throws Exception {
+		houseRepository.findListItemsByOrderByCreatedAtDesc(PageRequest.of(0, 10));
+		houseRepository.findListItemsByIdIn(List.of(1, 2, 3));
+		houseRepository.findFirstByOrderByIdDesc();
+		houseRepository.findMaxUpdatedAt();
+		houseRepository.findKeywordSourcesUpdatedSince(Timestamp.from(Instant.now()));
+
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, null), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, HouseSearchCriteria.ORDER_PRICE_ASC), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, "東京都", null, null, null), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, 8000, 2, null), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, null, null, null, List.of(1, 2, 3), List.of(2)), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, null, LocalDate.of(2031, 1, 1), LocalDate.of(2031, 1, 3)), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, null),
+				ScrollPosition.forward(Map.of("createdAt", Timestamp.from(Instant.now()), "id", 10)), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, HouseSearchCriteria.ORDER_PRICE_ASC),
+				ScrollPosition.forward(Map.of("price", 8000, "id", 10)), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, HouseSearchCriteria.ORDER_RATING_DESC), ScrollPosition.keyset(), 10);
+		houseRepository.scroll(new HouseSearchCriteria(null, null, null, null, HouseSearchCriteria.ORDER_RATING_DESC),
+				ScrollPosition.forward(Map.of("averageScore", new BigDecimal("3.50"), "id", 10)), 10);
+
+		assertNoTableScans();
+	}
+
+	@Test
+	public void ユーザーとロールと認証用トークンの検索はインデックスを使う() throws Exception {
+		userRepository.findByEmail("taro.samurai@example.com");
+		roleRepository.findByName("ROLE_GENERAL");
+		verificationTokenRepository.findByToken("token");
+
+		assertNoTableScans();
+	}
+
+	@Test
+	public void 予約とレビューとお気に入りの検索はインデックスを使う() throws Exception {
+		User user = userRepository.getReferenceById(1);
+		House house = houseRepository.getReferenceById(1);
+		ScrollPosition next = ScrollPosition.forward(Map.of("createdAt", Timestamp.from(Instant.now()), "id", 10));
+
+		reservationRepository.findByUserOrderByCreatedAtDescIdDesc(user, ScrollPosition.keyset(), Limit.of(10));
+		reservationRepository.findByUserOrderByCreatedAtDescIdDesc(user, next, Limit.of(10));
+		reservationRepository.findFirstByOrderByIdDesc();
+
+		reviewRepository.findLatestListItems(house, Limit.of(10));
+		reviewRepository.findListItemsAfter(house, Timestamp.from(Instant.now()), 10, Limit.of(10));
+		reviewRepository.existsByHouseIdAndUserId(1, 1);
+
+		favoriteRepository.findByUserOrderByCreatedAtDescIdDesc(user, ScrollPosition.keyset(), Limit.of(10));
+		favoriteRepository.findByUserOrderByCreatedAtDescIdDesc(user, next, Limit.of(10));
+		favoriteRepository.findByHouseAndUser(house, user);
+		favoriteRepository.existsByUserIdAndHouseId(1, 1);
+
+		houseOccupancyRepository.findForUpdate(1, 2026);
+		houseReviewStatsRepository.findForUpdate(1);
+		houseReviewStatsRepository.findDetailStats(1, 1);
+		houseReviewStatsRepository.findDetailStats(1, null);
+
+		assertNoTableScans();
+	}
+
+	@Test
+	public void 民宿の削除に伴う一括削除はインデックスを使う() throws Exception {
+		House house = houseRepository.getReferenceById(1);
+
+		favoriteRepository.deleteByHouse(house);
+		reviewRepository.deleteByHouse(house);
+		reservationRepository.deleteByHouse(house);
+		houseOccupancyRepository.deleteByHouseId(1);
+		housePopularityRepository.deleteByHouseId(1);
+		houseReviewStatsRepository.deleteByHouseId(1);
+
+		assertNoTableScans();
+	}
+
+	@Test
+	public void 受信箱と送信箱の取り出しはインデックスを使う() throws Exception {
+		Timestamp now = Timestamp.from(Instant.now());
+
+		stripeWebhookEventRepository.findDueEventIds(now, PageRequest.of(0, 10));
+		stripeWebhookEventRepository.findStaleEventIds(now, PageRequest.of(0, 10));
+		stripeWebhookEventRepository.claim("evt_query_plan", now, now);
+
+		outboxMailRepository.findDueIds(now, PageRequest.of(0, 10));
+		outboxMailRepository.findStaleIds(now, PageRequest.of(0, 10));
+		outboxMailRepository.claim(0L, now, now);
+		outboxMailRepository.countByStatus("PENDING");
+
+		pendingReservationRepository.deleteByCreatedAtBefore(now);
+
+		assertNoTableScans();
+	}
+
+	//記録したSQLをすべてH2でEXPLAINし、実行計画に全件走査が含まれていないことを確認する
+	private void assertNoTableScans() throws SQLException {
+		List<String> statements = RecordingStatementInspector.getStatements();
+		assertThat(statements).as("記録されたSQL").isNotEmpty();
+
+		List<String> tableScans = new ArrayList<>();
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			//実行計画の文字列はH2の形式を前提にしているため、ほかのデータベースでは何も確認できずに成功してしまう
+			assertThat(connection.getMetaData().getDatabaseProductName()).as("接続先のデータベース").isEqualTo("H2");
+			for(String sql : statements) {
+				String plan = explain(connection, sql);
+				if(plan.contains(".tableScan")) {
+					tableScans.add(plan);
+				}
+			}
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+
+		assertThat(tableScans).as("全件走査になっているSQL").isEmpty();
+	}
+
+	//パラメーターはすべてNULLにして実行計画だけを取得する（値によって変わる計画の選択までは確認できない）
+	private String explain(Connection connection, String sql) throws SQLException {
+		try(PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+			int parameterCount = statement.getParameterMetaData().getParameterCount();
+			for(int i = 1; i <= parameterCount; i++) {
+				statement.setObject(i, null);
+			}
+
+			try(ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getString(1);
+			}
+		}
+	}
+
+	//Hibernateが発行するSQLを記録する
+	public static class RecordingStatementInspector implements StatementInspector {
+		private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			statements.add(sql);
+			return sql;
+		}
+
+		public static List<String> getStatements() {
+			return List.copyOf(statements);
+		}
+
+		public static void clear() {
+			statements.clear();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+//テストごとに別の組み込みデータベースを用意して、マイグレーションとサンプルデータの投入を検証する
+public class DatabaseMigrationStrategyTest {
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private Flyway flyway;
+
+	@BeforeEach
+	public void setUp() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:migration-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		flyway = Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load();
+	}
+
+	@Test
+	public void 空のデータベースにはスキーマとサンプルデータを1回だけ適用する() {
+		StartupReport startupReport = new StartupReport();
+		DatabaseMigrationStrategy strategy = new DatabaseMigrationStrategy(startupReport, DatabaseMigrationStrategy.SeedMode.IF_EMPTY);
+
+		strategy.migrate(flyway);
+		assertThat(count("users")).isEqualTo(12);
+		assertThat(count("roles")).isEqualTo(2);
+		assertThat(count("house_review_stats")).isEqualTo(count("houses"));
+		assertThat(count("house_occupancies")).isEqualTo(11);
+		assertThat(startupReport.getPhases()).containsOnlyKeys("スキーマのマイグレーション", "サンプルデータの投入");
+
+		//2回目の起動ではマイグレーションもサンプルデータも適用済みのため何もしない
+		jdbcTemplate.update("DELETE FROM favorites WHERE id = 1");
+		strategy.migrate(flyway);
+		assertThat(count("favorites")).isEqualTo(11);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flyway_seed_history WHERE success = TRUE AND version = '1'", Integer.class)).isEqualTo(1);
+	}
+
+	@Test
+	public void データが登録済みのデータベースにはサンプルデータを投入しない() {
+		flyway.migrate();
+		jdbcTemplate.update("INSERT INTO users (id, name, furigana, postal_code, address, phone_number, email, password, role_id, enabled) "
+				+ "VALUES (100, '本番 太郎', 'ホンバン タロウ', '101-0022', '東京都千代田区', '090-0000-0000', 'production@example.com', 'password', 1, true)");
+
+		StartupReport startupReport = new StartupReport();
+		new DatabaseMigrationStrategy(startupReport, DatabaseMigrationStrategy.SeedMode.IF_EMPTY).migrate(flyway);
+
+		assertThat(count("users")).isEqualTo(1);
+		assertThat(count("houses")).isZero();
+		assertThat(startupReport.getPhases()).containsOnlyKeys("スキーマのマイグレーション");
+	}
+
+	@Test
+	public void 既存の予約から予約状況をマイグレーションで作成する() {
+		//予約状況を作成するマイグレーションより前のスキーマに予約を登録しておく
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").target("5").load().migrate();
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/seed").table("flyway_seed_history").baselineOnMigrate(true).baselineVersion("0").target("2").load().migrate();
+		jdbcTemplate.update("INSERT INTO reservations (house_id, user_id, checkin_date, checkout_date, number_of_people, amount) VALUES (1, 1, '2024-12-30', '2025-01-02', 2, 18000)");
+		
+		flyway.migrate();
+		
+		assertThat(occupiedDays(1, 2023)).isEqualTo(HouseAvailabilityIndex.toNightsByYear(LocalDate.of(2023, 4, 1), LocalDate.of(2023, 4, 2)).get(2023));
+		//年をまたぐ予約は年ごとの行に分かれる
+		Map<Integer, BitSet> nightsByYear = HouseAvailabilityIndex.toNightsByYear(LocalDate.of(2024, 12, 30), LocalDate.of(2025, 1, 2));
+		assertThat(occupiedDays(1, 2024)).isEqualTo(nightsByYear.get(2024));
+		assertThat(occupiedDays(1, 2025)).isEqualTo(nightsByYear.get(2025));
+	}
+
+	private BitSet occupiedDays(Integer houseId, Integer year) {
+		return BitSet.valueOf(jdbcTemplate.queryForObject("SELECT occupied_days FROM house_occupancies WHERE house_id = ? AND stay_year = ?", byte[].class, houseId, year));
+	}
+
+	private int count(String table) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.samuraitravel.dto.HouseListItem;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class HomePageCacheTest {
+	private final StubHouseService houseService = new StubHouseService();
+	private final HomePageCache homePageCache = new HomePageCache(houseService, new SimpleMeterRegistry(), Duration.ofHours(1));
+	
+	@Test
+	public void 作り直しに失敗した場合は次のリクエストでもう一度作り直す() {
+		homePageCache.get();
+		assertThat(houseService.loadCount).isEqualTo(1);
+		
+		homePageCache.invalidate();
+		houseService.failing = true;
+		assertThatThrownBy(homePageCache::get).isInstanceOf(IllegalStateException.class);
+		
+		//失敗した作り直しで新しい内容になったとはみなさず、有効期限を待たずに作り直す
+		houseService.failing = false;
+		homePageCache.get();
+		assertThat(houseService.loadCount).isEqualTo(3);
+		
+		homePageCache.get();
+		assertThat(houseService.loadCount).isEqualTo(3);
+	}
+	
+	//データベースを使わずに、トップページに表示する民宿を返す
+	private static class StubHouseService extends HouseService {
+		private boolean failing = false;
+		private int loadCount = 0;
+		
+		StubHouseService() {
+			super(null, null, null, null, null, null, null, null, null, null, null, 0);
+		}
+		
+		@Override
+		public List<HouseListItem> findNewHouses(int limit) {
+			loadCount++;
+			if(failing) {
+				throw new IllegalStateException("データベースに接続できません。");
+			}
+			return List.of();
+		}
+		
+		@Override
+		public List<HouseListItem> findPopularHouses(int limit) {
+			return List.of();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class HouseAvailabilityIndexTest {
+	private final HouseAvailabilityIndex houseAvailabilityIndex = new HouseAvailabilityIndex();
+	
+	@Test
+	public void チェックアウト日の泊は予約済みにならない() {
+		houseAvailabilityIndex.occupy(1, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 3));
+		
+		assertThat(houseAvailabilityIndex.isAvailable(1, LocalDate.of(2025, 4, 2), LocalDate.of(2025, 4, 4))).isFalse();
+		assertThat(houseAvailabilityIndex.isAvailable(1, LocalDate.of(2025, 4, 3), LocalDate.of(2025, 4, 5))).isTrue();
+		assertThat(houseAvailabilityIndex.isAvailable(1, LocalDate.of(2025, 3, 30), LocalDate.of(2025, 4, 1))).isTrue();
+		assertThat(houseAvailabilityIndex.isAvailable(2, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 3))).isTrue();
+	}
+	
+	@Test
+	public void 年をまたぐ予約も期間の重複を判定できる() {
+		houseAvailabilityIndex.occupy(1, LocalDate.of(2024, 12, 30), LocalDate.of(2025, 1, 2));
+		houseAvailabilityIndex.occupy(2, LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3));
+		
+		assertThat(HouseAvailabilityIndex.toNightsByYear(LocalDate.of(2024, 12, 30), LocalDate.of(2025, 1, 2)))
+				.containsOnlyKeys(2024, 2025);
+		assertThat(houseAvailabilityIndex.findOccupiedHouseIds(LocalDate.of(2024, 12, 31), LocalDate.of(2025, 1, 3)))
+				.containsExactlyInAnyOrder(1, 2);
+		assertThat(houseAvailabilityIndex.findOccupiedHouseIds(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 2)))
+				.containsExactly(1);
+		
+		houseAvailabilityIndex.remove(1);
+		assertThat(houseAvailabilityIndex.findOccupiedHouseIds(LocalDate.of(2024, 12, 1), LocalDate.of(2025, 2, 1)))
+				.containsExactly(2);
+	}
+	
+	@Test
+	public void 読み込み中に反映された変更は読み込み結果で置き換えたあとも残る() {
+		houseAvailabilityIndex.occupy(1, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 3));
+		
+		houseAvailabilityIndex.beginReload();
+		houseAvailabilityIndex.occupy(2, LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 2));
+		houseAvailabilityIndex.remove(3);
+		houseAvailabilityIndex.replaceAll(new HashMap<>(Map.of(2025, new HashMap<>(Map.of(3, HouseAvailabilityIndex.toNightsByYear(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 2)).get(2025))))));
+		
+		//テーブルから読み込んだ予約状況に置き換わり、読み込み中の予約の登録と民宿の削除は適用し直される
+		assertThat(houseAvailabilityIndex.isAvailable(1, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 3))).isTrue();
+		assertThat(houseAvailabilityIndex.isAvailable(2, LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 2))).isFalse();
+		assertThat(houseAvailabilityIndex.isAvailable(3, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 2))).isTrue();
+	}
+}
@@ -0,0 +1,66 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockServletContext;
+
+public class HouseImageServiceTest {
+	@TempDir
+	private Path root;
+	
+	private LocalImageStorage localImageStorage;
+	private HouseImageService houseImageService;
+	
+	@BeforeEach
+	public void setUp() throws Exception {
+		localImageStorage = new LocalImageStorage(root.toString());
+		houseImageService = new HouseImageService(localImageStorage, new MockServletContext());
+	}
+	
+	@Test
+	public void 元の画像から幅ごとの縮小画像を生成する() throws Exception {
+		String imageName = localImageStorage.store(new MockMultipartFile("imageFile", "house.png", "image/png", png(2000, 1000)));
+		
+		houseImageService.generateDerivatives(imageName);
+		
+		assertThat(readImage(ImageVariant.THUMBNAIL.nameFor(imageName))).extracting(BufferedImage::getWidth, BufferedImage::getHeight).containsExactly(320, 160);
+		assertThat(readImage(ImageVariant.CARD.nameFor(imageName))).extracting(BufferedImage::getWidth, BufferedImage::getHeight).containsExactly(640, 320);
+		assertThat(readImage(ImageVariant.HERO.nameFor(imageName))).extracting(BufferedImage::getWidth, BufferedImage::getHeight).containsExactly(1280, 640);
+		assertThat(ImageVariant.findOriginalName(ImageVariant.CARD.nameFor(imageName))).contains(imageName);
+	}
+	
+	@Test
+	public void 元の画像より大きな縮小画像は作らない() throws Exception {
+		String imageName = localImageStorage.store(new MockMultipartFile("imageFile", "house.png", "image/png", png(400, 300)));
+		
+		houseImageService.generateDerivatives(imageName);
+		
+		assertThat(readImage(ImageVariant.THUMBNAIL.nameFor(imageName)).getWidth()).isEqualTo(320);
+		assertThat(readImage(ImageVariant.HERO.nameFor(imageName)).getWidth()).isEqualTo(400);
+		assertThat(houseImageService.srcset("house01.jpg"))
+				.isEqualTo("/storage/house01_jpg_320w.jpg 320w, /storage/house01_jpg_640w.jpg 640w, /storage/house01_jpg_1280w.jpg 1280w");
+	}
+	
+	private BufferedImage readImage(String imageName) throws Exception {
+		try(InputStream inputStream = localImageStorage.load(imageName).orElseThrow().getInputStream()) {
+			return ImageIO.read(inputStream);
+		}
+	}
+	
+	private static byte[] png(int width, int height) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", outputStream);
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+//他のサーバーでの民宿の更新・削除を、イベントを通さずにテーブルを直接変更することで再現する
+@SpringBootTest
+@ActiveProfiles("test")
+public class HouseKeywordIndexRefreshTest {
+	@Autowired
+	private HouseKeywordIndex houseKeywordIndex;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@AfterEach
+	public void tearDown() {
+		jdbcTemplate.update("UPDATE houses SET name = REPLACE(name, ' 差分更新', '') WHERE id = 5");
+		houseKeywordIndex.rebuild();
+	}
+	
+	@Test
+	public void 他のサーバーで更新された民宿は差分更新で検索できるようになる() {
+		jdbcTemplate.update("UPDATE houses SET name = CONCAT(name, ' 差分更新'), updated_at = CURRENT_TIMESTAMP WHERE id = 5");
+		assertThat(houseKeywordIndex.search("差分更新")).isEmpty();
+		
+		houseKeywordIndex.refresh();
+		
+		assertThat(houseKeywordIndex.search("差分更新")).containsExactly(5);
+	}
+	
+	@Test
+	public void 他のサーバーで削除された民宿は差分更新で索引から取り除かれる() {
+		//テーブルにない民宿が索引に残っている状態は、他のサーバーで民宿が削除された場合と同じ
+		houseKeywordIndex.put(9999, "削除済みの民宿", "東京都", "");
+		
+		houseKeywordIndex.refresh();
+		
+		assertThat(houseKeywordIndex.search("削除済み")).isEmpty();
+		assertThat(houseKeywordIndex.countDocuments()).isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM houses", Integer.class));
+	}
+}
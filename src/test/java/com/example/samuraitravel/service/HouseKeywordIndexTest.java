@@ -0,0 +1,61 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class HouseKeywordIndexTest {
+	private HouseKeywordIndex houseKeywordIndex;
+	
+	@BeforeEach
+	public void setUp() {
+		houseKeywordIndex = new HouseKeywordIndex(null, new SimpleMeterRegistry());
+		houseKeywordIndex.put(1, "SAMURAIの宿", "北海道砂川市西五条南X-XX-XX", "最寄り駅から徒歩10分。");
+		houseKeywordIndex.put(2, "ペンション SAMURAI", "青森県青森市桜川X-XX-XX", "自然豊かで閑静な場所にあります。");
+		houseKeywordIndex.put(3, "民宿 侍", "東京都千代田区神田練塀町", "長期滞在も可能です。");
+	}
+	
+	@Test
+	public void 民宿名と住所と説明文の部分一致で検索できる() {
+		assertThat(houseKeywordIndex.search("青森")).containsExactly(2);
+		assertThat(houseKeywordIndex.search("samurai")).containsExactly(1, 2);
+		assertThat(houseKeywordIndex.search("閑静")).containsExactly(2);
+		assertThat(houseKeywordIndex.search("侍")).containsExactly(3);
+	}
+	
+	@Test
+	public void 全角英数字は半角として検索できる() {
+		assertThat(houseKeywordIndex.search("ＳＡＭＵＲＡＩ")).containsExactly(1, 2);
+	}
+	
+	@Test
+	public void 空白で区切られた語はすべてを含む民宿だけが該当する() {
+		assertThat(houseKeywordIndex.search("SAMURAI 北海道")).containsExactly(1);
+		assertThat(houseKeywordIndex.search("SAMURAI 東京")).isEmpty();
+	}
+	
+	@Test
+	public void 連続していない文字の組み合わせは該当しない() {
+		//「宿」と「侍」はそれぞれ索引に含まれるが、連続した文字列としては存在しない
+		assertThat(houseKeywordIndex.search("宿侍")).isEmpty();
+	}
+	
+	@Test
+	public void フィールドをまたいだ文字列は該当しない() {
+		assertThat(houseKeywordIndex.search("宿北海道")).isEmpty();
+	}
+	
+	@Test
+	public void 更新と削除が索引に反映される() {
+		houseKeywordIndex.put(2, "ゲストハウス 桜", "青森県弘前市", "");
+		assertThat(houseKeywordIndex.search("ペンション")).isEmpty();
+		assertThat(houseKeywordIndex.search("弘前")).containsExactly(2);
+		
+		houseKeywordIndex.remove(2);
+		assertThat(houseKeywordIndex.search("青森")).isEmpty();
+		assertThat(houseKeywordIndex.countDocuments()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,34 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class HousePopularityRankingTest {
+	private final HousePopularityRanking housePopularityRanking = new HousePopularityRanking();
+	
+	@Test
+	public void 予約数の多い順に上位の民宿IDを取得できる() {
+		housePopularityRanking.replaceAll(Map.of(1, 3, 2, 5, 3, 0, 4, 3));
+		
+		//同数の場合はIDの小さい順
+		assertThat(housePopularityRanking.findTopHouseIds(3)).containsExactly(2, 1, 4);
+		assertThat(housePopularityRanking.findTopHouseIds(10)).containsExactly(2, 1, 4, 3);
+	}
+	
+	@Test
+	public void 予約の追加と民宿の追加削除がランキングに反映される() {
+		housePopularityRanking.replaceAll(Map.of(1, 1, 2, 1));
+		
+		housePopularityRanking.increment(2);
+		housePopularityRanking.increment(5);
+		housePopularityRanking.addIfAbsent(6);
+		housePopularityRanking.addIfAbsent(2);
+		assertThat(housePopularityRanking.findTopHouseIds(4)).containsExactly(2, 1, 5, 6);
+		
+		housePopularityRanking.remove(2);
+		assertThat(housePopularityRanking.findTopHouseIds(4)).containsExactly(1, 5, 6);
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+public class LocalImageStorageTest {
+	@TempDir
+	private Path root;
+	
+	@Test
+	public void 同じ内容の画像は同じ名前で1つだけ保存される() throws Exception {
+		LocalImageStorage localImageStorage = new LocalImageStorage(root.toString());
+		byte[] content = "image".getBytes(StandardCharsets.UTF_8);
+		
+		String first = localImageStorage.store(new MockMultipartFile("imageFile", "house.JPG", "image/jpeg", content));
+		String second = localImageStorage.store(new MockMultipartFile("imageFile", "copy.jpg", "image/jpeg", content));
+		
+		assertThat(first).isEqualTo(second).matches("[0-9a-f]{64}\\.jpg");
+		try(var files = Files.list(root)) {
+			assertThat(files).containsExactly(root.resolve(first));
+		}
+		assertThat(localImageStorage.load(first).orElseThrow().getContentAsByteArray()).isEqualTo(content);
+	}
+	
+	@Test
+	public void 保存先の外を指す画像名は読み込まない() throws Exception {
+		LocalImageStorage localImageStorage = new LocalImageStorage(root.resolve("images").toString());
+		Files.writeString(root.resolve("secret.txt"), "secret");
+		
+		assertThat(localImageStorage.load("../secret.txt")).isEmpty();
+		assertThat(localImageStorage.load("missing.jpg")).isEmpty();
+	}
+}
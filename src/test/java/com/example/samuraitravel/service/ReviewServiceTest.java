@@ -0,0 +1,66 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.samuraitravel.dto.HouseReviewSummary;
+import com.example.samuraitravel.entity.Review;
+import com.example.samuraitravel.form.ReviewEditForm;
+import com.example.samuraitravel.form.ReviewInputForm;
+import com.example.samuraitravel.repository.ReviewRepository;
+import com.example.samuraitravel.repository.UserRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class ReviewServiceTest {
+	@Autowired
+	private ReviewService reviewService;
+	
+	@Autowired
+	private ReviewRepository reviewRepository;
+	
+	@Autowired
+	private UserRepository userRepository;
+	
+	@Test
+	public void レビューの投稿と編集と削除がレビューの集計に反映される() {
+		//サンプルデータでレビューのない民宿を使う
+		assertThat(reviewService.findReviewSummary(40).getReviewCount()).isZero();
+		
+		createReview(40, 1, 4);
+		createReview(40, 2, 2);
+		HouseReviewSummary summary = reviewService.findReviewSummary(40);
+		assertThat(summary.getReviewCount()).isEqualTo(2);
+		assertThat(summary.getAverageScore()).isEqualByComparingTo(new BigDecimal("3.00"));
+		assertThat(summary.getScoreCounts()).containsExactly(0, 1, 0, 1, 0);
+		
+		Review review = reviewService.findLatestReviews(40, null).getContent().stream()
+				.filter(r -> r.getUserId() == 2).findFirst().flatMap(r -> reviewRepository.findById(r.getId())).orElseThrow();
+		reviewService.updateReview(new ReviewEditForm(5, "とても良かったです。"), review);
+		summary = reviewService.findReviewSummary(40);
+		assertThat(summary.getAverageScore()).isEqualByComparingTo(new BigDecimal("4.50"));
+		assertThat(summary.getScoreCounts()).containsExactly(0, 0, 0, 1, 1);
+		
+		reviewService.deleteReview(review);
+		summary = reviewService.findReviewSummary(40);
+		assertThat(summary.getReviewCount()).isEqualTo(1);
+		assertThat(summary.getAverageScore()).isEqualByComparingTo(new BigDecimal("4.00"));
+		assertThat(summary.getScorePercentage(4)).isEqualTo(100);
+	}
+	
+	private void createReview(Integer houseId, Integer userId, Integer score) {
+		ReviewInputForm reviewInputForm = new ReviewInputForm();
+		reviewInputForm.setHouseId(houseId);
+		reviewInputForm.setScore(score);
+		reviewInputForm.setComment("テスト用のレビューです。");
+		reviewService.createReview(reviewInputForm, userRepository.findById(userId).orElseThrow());
+	}
+}
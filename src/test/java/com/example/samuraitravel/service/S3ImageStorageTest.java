@@ -0,0 +1,126 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class S3ImageStorageTest {
+	private HttpServer server;
+	private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+	private final AtomicInteger putCount = new AtomicInteger();
+	
+	@BeforeEach
+	public void setUp() throws IOException {
+		//S3のAPIのうち、画像の保存・読み込みに使う操作だけに応答するローカルのHTTPサーバー
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		server.stop(0);
+	}
+	
+	@Test
+	public void 同じ内容の画像は1回だけアップロードされ読み込める() throws Exception {
+		S3ImageStorage s3ImageStorage = new S3ImageStorage("samuraitravel", "houses/", "ap-northeast-1",
+				"http://localhost:" + server.getAddress().getPort(), "test", "test");
+		byte[] content = "image".getBytes(StandardCharsets.UTF_8);
+		
+		try {
+			String first = s3ImageStorage.store(new MockMultipartFile("imageFile", "house.jpg", "image/jpeg", content));
+			String second = s3ImageStorage.store(new MockMultipartFile("imageFile", "house.jpg", "image/jpeg", content));
+			
+			assertThat(second).isEqualTo(first);
+			assertThat(putCount.get()).isEqualTo(1);
+			assertThat(objects).containsOnlyKeys("/samuraitravel/houses/" + first);
+			assertThat(s3ImageStorage.load(first).orElseThrow().getContentAsByteArray()).isEqualTo(content);
+			assertThat(s3ImageStorage.load("missing.jpg")).isEmpty();
+		} finally {
+			s3ImageStorage.close();
+		}
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		String key = exchange.getRequestURI().getPath();
+		byte[] body = exchange.getRequestBody().readAllBytes();
+		
+		switch(exchange.getRequestMethod()) {
+		case "PUT" -> {
+			putCount.incrementAndGet();
+			if(exchange.getRequestHeaders().getFirst("Content-Encoding") != null
+					&& exchange.getRequestHeaders().getFirst("Content-Encoding").contains("aws-chunked")) {
+				body = decodeChunked(body);
+			}
+			objects.put(key, body);
+			exchange.getResponseHeaders().set("ETag", "\"" + md5(body) + "\"");
+			exchange.sendResponseHeaders(200, -1);
+		}
+		case "HEAD" -> exchange.sendResponseHeaders(objects.containsKey(key) ? 200 : 404, -1);
+		case "GET" -> {
+			byte[] object = objects.get(key);
+			if(object == null) {
+				byte[] error = "<Error><Code>NoSuchKey</Code><Message>Not Found</Message></Error>".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(404, error.length);
+				try(OutputStream outputStream = exchange.getResponseBody()) {
+					outputStream.write(error);
+				}
+				return;
+			}
+			exchange.sendResponseHeaders(200, object.length);
+			try(OutputStream outputStream = exchange.getResponseBody()) {
+				outputStream.write(object);
+			}
+		}
+		default -> exchange.sendResponseHeaders(405, -1);
+		}
+		exchange.close();
+	}
+	
+	//署名付きのチャンク形式（サイズ;chunk-signature=...\r\nデータ\r\n）で送られた本文を元に戻す
+	private static byte[] decodeChunked(byte[] body) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		InputStream inputStream = new ByteArrayInputStream(body);
+		while(true) {
+			StringBuilder header = new StringBuilder();
+			int c;
+			while((c = inputStream.read()) != '\n') {
+				header.append((char)c);
+			}
+			int size = Integer.parseInt(header.toString().trim().split(";")[0], 16);
+			if(size == 0) {
+				return outputStream.toByteArray();
+			}
+			outputStream.write(inputStream.readNBytes(size));
+			inputStream.readNBytes(2);
+		}
+	}
+	
+	private static String md5(byte[] body) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(body));
+		} catch(Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.samuraitravel.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.samuraitravel.security.UserDetailsCache;
+import com.example.samuraitravel.security.UserDetailsImpl;
+import com.example.samuraitravel.security.UserDetailsServiceImpl;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class UserServiceTest {
+	private static final String EMAIL = "taro.samurai@example.com";
+	
+	@Autowired
+	private UserService userService;
+	
+	@Autowired
+	private UserDetailsServiceImpl userDetailsServiceImpl;
+	
+	@Autowired
+	private UserDetailsCache userDetailsCache;
+	
+	@Test
+	public void ログイン情報はキャッシュの複製を返し認証後のパスワードの消去がキャッシュに影響しない() {
+		UserDetailsImpl userDetailsImpl = (UserDetailsImpl)userDetailsServiceImpl.loadUserByUsername(EMAIL);
+		
+		assertThat(userDetailsImpl.getId()).isEqualTo(1);
+		assertThat(userDetailsImpl.getName()).isEqualTo("侍 太郎");
+		assertThat(userDetailsImpl.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_GENERAL");
+		
+		userDetailsImpl.eraseCredentials();
+		
+		assertThat(userDetailsCache.get(EMAIL)).isNotSameAs(userDetailsImpl);
+		assertThat(userDetailsCache.get(EMAIL).getPassword()).isNotNull();
+		assertThat(userDetailsServiceImpl.loadUserByUsername(EMAIL).getPassword()).isNotNull();
+	}
+	
+	@Test
+	public void ユーザーの有効化がコミットされるとログイン情報のキャッシュを削除する() {
+		userDetailsServiceImpl.loadUserByUsername(EMAIL);
+		assertThat(userDetailsCache.get(EMAIL)).isNotNull();
+		
+		//サンプルデータの有効なユーザーを有効化し直すため、データは変わらない
+		userService.enableUser(userService.findUserByEmail(EMAIL));
+		
+		assertThat(userDetailsCache.get(EMAIL)).isNull();
+	}
+}